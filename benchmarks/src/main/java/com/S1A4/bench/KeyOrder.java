@@ -0,0 +1,49 @@
+package com.S1A4.bench;
+
+import java.util.Random;
+
+/**
+ * Orders in which benchmark keys {@code 0 .. size-1} are fed to a structure.
+ */
+public enum KeyOrder {
+
+    RANDOM {
+        @Override
+        int[] keys(int size) {
+            int[] keys = SEQUENTIAL.keys(size);
+            Random random = new Random(SEED);
+            for (int i = size - 1; i > 0; i--) {
+                int j = random.nextInt(i + 1);
+                int tmp = keys[i]; keys[i] = keys[j]; keys[j] = tmp;
+            }
+            return keys;
+        }
+    },
+
+    SEQUENTIAL {
+        @Override
+        int[] keys(int size) {
+            int[] keys = new int[size];
+            for (int i = 0; i < size; i++) { keys[i] = i; }
+            return keys;
+        }
+    },
+
+    // Zig-zag from both ends: 0, n-1, 1, n-2, ... Every insert lands on the far
+    // side of the previous one, which keeps the fixup code rotating.
+    ADVERSARIAL {
+        @Override
+        int[] keys(int size) {
+            int[] keys = new int[size];
+            int lo = 0, hi = size - 1;
+            for (int i = 0; i < size; i++) {
+                keys[i] = (i & 1) == 0 ? lo++ : hi--;
+            }
+            return keys;
+        }
+    };
+
+    static final long SEED = 0x5EED;
+
+    abstract int[] keys(int size);
+}
@@ -0,0 +1,73 @@
+package com.S1A4.bench;
+
+import com.S1A4.List.List;
+import com.S1A4.Pair;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link List} as a bucket. Sizes stop at 16384 because every lookup walks the list.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ListBenchmark {
+
+    @Param({"8", "64", "1024", "16384"})
+    int size;
+
+    @Param({"RANDOM", "SEQUENTIAL", "ADVERSARIAL"})
+    KeyOrder order;
+
+    int[] keys;
+    Pair<Integer, Integer>[] pairs;
+    List<Integer, Integer> list;
+    int cursor;
+
+    @Setup(Level.Trial)
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        keys = order.keys(size);
+        pairs = new Pair[size];
+        list = new List<>();
+        for (int i = 0; i < size; i++) {
+            pairs[i] = new Pair<>(keys[i], keys[i]);
+            list.addNode(pairs[i]);
+        }
+    }
+
+    private int next() {
+        int i = cursor;
+        cursor = (i + 1 == size) ? 0 : i + 1;
+        return i;
+    }
+
+    @Benchmark
+    public List<Integer, Integer> buildAddNode() {
+        List<Integer, Integer> l = new List<>();
+        for (Pair<Integer, Integer> pair : pairs) { l.addNode(pair); }
+        return l;
+    }
+
+    @Benchmark
+    public Object getHit() {
+        return list.get(keys[next()]);
+    }
+
+    @Benchmark
+    public Object getMiss() {
+        return list.get(-1 - keys[next()]);
+    }
+
+    @Benchmark
+    public void removeThenAddNode(Blackhole bh) {
+        int i = next();
+        bh.consume(list.remove(keys[i]));
+        list.addNode(pairs[i]);
+    }
+}
@@ -0,0 +1,99 @@
+package com.S1A4.bench;
+
+import com.S1A4.ListTree;
+import com.S1A4.Pair;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ListTree} bucket sizes around the list/tree boundary (untreeify at 6, treeify at 8),
+ * with a {@link HashMap} baseline holding the same entries.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ListTreeBenchmark {
+
+    @Param({"5", "6", "7", "8", "9", "16", "64"})
+    int size;
+
+    @Param({"RANDOM", "SEQUENTIAL", "ADVERSARIAL"})
+    KeyOrder order;
+
+    int[] keys;
+    Pair<Integer, Integer>[] pairs;
+    Pair<Integer, Integer> extra;
+    ListTree<Integer, Integer> listTree;
+    HashMap<Integer, Integer> hashMap;
+    int cursor;
+
+    @Setup(Level.Trial)
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        keys = order.keys(size);
+        pairs = new Pair[size];
+        extra = new Pair<>(size, size);
+        listTree = new ListTree<>();
+        hashMap = new HashMap<>();
+        for (int i = 0; i < size; i++) {
+            pairs[i] = new Pair<>(keys[i], keys[i]);
+            listTree.put(pairs[i]);
+            hashMap.put(keys[i], keys[i]);
+        }
+    }
+
+    private int next() {
+        int i = cursor;
+        cursor = (i + 1 == size) ? 0 : i + 1;
+        return i;
+    }
+
+    @Benchmark
+    public ListTree<Integer, Integer> buildPut() {
+        ListTree<Integer, Integer> t = new ListTree<>();
+        for (Pair<Integer, Integer> pair : pairs) { t.put(pair); }
+        return t;
+    }
+
+    @Benchmark
+    public Object getHit() {
+        return listTree.get(keys[next()]);
+    }
+
+    @Benchmark
+    public Object getMiss() {
+        return listTree.get(-1 - keys[next()]);
+    }
+
+    @Benchmark
+    public Integer hashMapGetHit() {
+        return hashMap.get(keys[next()]);
+    }
+
+    // Grows the bucket by one and shrinks it back: at sizes 6..8 this crosses the thresholds.
+    @Benchmark
+    public void putThenRemove(Blackhole bh) {
+        listTree.put(extra);
+        bh.consume(listTree.remove(extra.getKey()));
+    }
+
+    @Benchmark
+    public void removeThenPut(Blackhole bh) {
+        int i = next();
+        bh.consume(listTree.remove(keys[i]));
+        listTree.put(pairs[i]);
+    }
+
+    @Benchmark
+    public void hashMapRemoveThenPut(Blackhole bh) {
+        int key = keys[next()];
+        bh.consume(hashMap.remove(key));
+        hashMap.put(key, key);
+    }
+}
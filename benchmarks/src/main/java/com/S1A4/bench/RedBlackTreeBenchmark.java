@@ -0,0 +1,124 @@
+package com.S1A4.bench;
+
+import com.S1A4.Pair;
+import com.S1A4.Tree.FrozenRedBlackTree;
+import com.S1A4.Tree.RedBlackTree;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link RedBlackTree} against a {@link TreeMap} baseline.
+ * <p>
+ * {@code build*} measures a whole build of {@code size} entries in the given key order,
+ * the other benchmarks measure one operation against a tree of {@code size} entries.
+ * The full size range takes hours; narrow it with e.g. {@code -p size=1024}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RedBlackTreeBenchmark {
+
+    @Param({"8", "64", "1024", "65536", "1048576", "10000000"})
+    int size;
+
+    @Param({"RANDOM", "SEQUENTIAL", "ADVERSARIAL"})
+    KeyOrder order;
+
+    int[] keys;
+    Pair<Integer, Integer>[] pairs;
+    RedBlackTree<Integer, Integer> tree;
+    FrozenRedBlackTree<Integer, Integer> frozen;
+    TreeMap<Integer, Integer> treeMap;
+    int cursor;
+
+    @Setup(Level.Trial)
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        keys = order.keys(size);
+        pairs = new Pair[size];
+        tree = new RedBlackTree<>();
+        treeMap = new TreeMap<>();
+        for (int i = 0; i < size; i++) {
+            pairs[i] = new Pair<>(keys[i], keys[i]);
+            tree.insertNode(pairs[i]);
+            treeMap.put(keys[i], keys[i]);
+        }
+        frozen = tree.freeze();
+    }
+
+    private int next() {
+        int i = cursor;
+        cursor = (i + 1 == size) ? 0 : i + 1;
+        return i;
+    }
+
+    @Benchmark
+    public RedBlackTree<Integer, Integer> buildInsertNode() {
+        RedBlackTree<Integer, Integer> t = new RedBlackTree<>();
+        for (Pair<Integer, Integer> pair : pairs) { t.insertNode(pair); }
+        return t;
+    }
+
+    @Benchmark
+    public TreeMap<Integer, Integer> buildTreeMap() {
+        TreeMap<Integer, Integer> m = new TreeMap<>();
+        for (int key : keys) { m.put(key, key); }
+        return m;
+    }
+
+    @Benchmark
+    public Object searchNodeHit() {
+        return tree.searchNode(keys[next()]);
+    }
+
+    @Benchmark
+    public Object searchNodeMiss() {
+        return tree.searchNode(-1 - keys[next()]);
+    }
+
+    @Benchmark
+    public boolean frozenContainsHit() {
+        return frozen.contains(keys[next()]);
+    }
+
+    @Benchmark
+    public boolean frozenContainsMiss() {
+        return frozen.contains(-1 - keys[next()]);
+    }
+
+    @Benchmark
+    public Object frozenFloor() {
+        return frozen.floor(keys[next()] + 1);
+    }
+
+    @Benchmark
+    public Integer treeMapGetHit() {
+        return treeMap.get(keys[next()]);
+    }
+
+    @Benchmark
+    public Integer treeMapGetMiss() {
+        return treeMap.get(-1 - keys[next()]);
+    }
+
+    // Steady-state churn: the tree keeps its size across invocations.
+    @Benchmark
+    public void deleteNodeThenInsertNode(Blackhole bh) {
+        int i = next();
+        bh.consume(tree.deleteNode(keys[i]));
+        tree.insertNode(pairs[i]);
+    }
+
+    @Benchmark
+    public void treeMapRemoveThenPut(Blackhole bh) {
+        int key = keys[next()];
+        bh.consume(treeMap.remove(key));
+        treeMap.put(key, key);
+    }
+}
@@ -0,0 +1,17 @@
+package com.S1A4;
+
+/**
+ * Decides when a {@link ListTree} bucket changes form. Called after every write, with the
+ * bucket's own counters (see {@link ListTree#getReads()} and friends) reset on each conversion.
+ * Implementations must be stateless or thread-safe: one policy is shared by many buckets.
+ */
+public interface BucketPolicy {
+
+    BucketPolicy DEFAULT = new HysteresisBucketPolicy();
+
+    /** Asked while the bucket is in list form. */
+    boolean shouldTreeify(ListTree<?, ?> bucket);
+
+    /** Asked while the bucket is in tree form. */
+    boolean shouldListify(ListTree<?, ?> bucket);
+}
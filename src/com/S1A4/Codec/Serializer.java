@@ -0,0 +1,19 @@
+package com.S1A4.Codec;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Converts keys or values to bytes and back. {@link #write} and {@link #read} work at the
+ * buffer's current position and advance it by the encoded size.
+ */
+public interface Serializer<T> {
+
+    /** Encoded size of every value in bytes, or -1 if the size depends on the value. */
+    int fixedSize();
+
+    int sizeOf(T value);
+
+    void write(ByteBuffer buffer, T value);
+
+    T read(ByteBuffer buffer);
+}
@@ -0,0 +1,53 @@
+package com.S1A4.Codec;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+public final class Serializers {
+
+    private Serializers() { }
+
+    public static final Serializer<Integer> INTEGER = new Serializer<>() {
+        @Override public int fixedSize() { return Integer.BYTES; }
+        @Override public int sizeOf(Integer value) { return Integer.BYTES; }
+        @Override public void write(ByteBuffer buffer, Integer value) { buffer.putInt(value); }
+        @Override public Integer read(ByteBuffer buffer) { return buffer.getInt(); }
+    };
+
+    public static final Serializer<Long> LONG = new Serializer<>() {
+        @Override public int fixedSize() { return Long.BYTES; }
+        @Override public int sizeOf(Long value) { return Long.BYTES; }
+        @Override public void write(ByteBuffer buffer, Long value) { buffer.putLong(value); }
+        @Override public Long read(ByteBuffer buffer) { return buffer.getLong(); }
+    };
+
+    public static final Serializer<Double> DOUBLE = new Serializer<>() {
+        @Override public int fixedSize() { return Double.BYTES; }
+        @Override public int sizeOf(Double value) { return Double.BYTES; }
+        @Override public void write(ByteBuffer buffer, Double value) { buffer.putDouble(value); }
+        @Override public Double read(ByteBuffer buffer) { return buffer.getDouble(); }
+    };
+
+    // UTF-8 bytes prefixed by their int length
+    public static final Serializer<String> STRING = new Serializer<>() {
+        @Override public int fixedSize() { return -1; }
+
+        @Override
+        public int sizeOf(String value) {
+            return Integer.BYTES + value.getBytes(StandardCharsets.UTF_8).length;
+        }
+
+        @Override
+        public void write(ByteBuffer buffer, String value) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            buffer.putInt(bytes.length).put(bytes);
+        }
+
+        @Override
+        public String read(ByteBuffer buffer) {
+            byte[] bytes = new byte[buffer.getInt()];
+            buffer.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    };
+}
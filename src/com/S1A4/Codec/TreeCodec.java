@@ -0,0 +1,280 @@
+package com.S1A4.Codec;
+
+import com.S1A4.ListTree;
+import com.S1A4.Pair;
+import com.S1A4.Tree.PersistentRedBlackTree;
+import com.S1A4.Tree.RedBlackTree;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Streams a {@link RedBlackTree} or {@link ListTree} over NIO channels in ascending key order
+ * and rebuilds it on the other side in O(n) through {@link RedBlackTree#buildFromSorted}.
+ * Stream layout (big-endian):
+ *
+ * <pre>
+ *   header, 16 bytes:
+ *     int   magic         0x52424331 ("RBC1")
+ *     int   version       1
+ *     long  entryCount
+ *   blocks:
+ *     int   blockLength   bytes after this 8-byte block header
+ *     int   blockEntries
+ *     blockEntries x (key, value) as written by the serializers
+ *   end marker: a block with blockLength 0 and blockEntries 0
+ * </pre>
+ *
+ * Blocks are filled and drained through one direct buffer per codec that is reused across
+ * calls, so a codec must not be shared between threads.
+ */
+public final class TreeCodec<K extends Comparable<K>, V> {
+
+    static final int MAGIC = 0x52424331;
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 16;
+    static final int BLOCK_HEADER_SIZE = 8;
+    static final int DEFAULT_BLOCK_SIZE = 1 << 16;
+    static final int DEFAULT_MAX_BLOCK_LENGTH = 1 << 26;
+
+    private final Serializer<K> keySerializer;
+    private final Serializer<V> valueSerializer;
+    private ByteBuffer buffer;
+    private int maxBlockLength = DEFAULT_MAX_BLOCK_LENGTH;
+
+    public TreeCodec(Serializer<K> keySerializer, Serializer<V> valueSerializer) {
+        this(keySerializer, valueSerializer, DEFAULT_BLOCK_SIZE);
+    }
+
+    public TreeCodec(Serializer<K> keySerializer, Serializer<V> valueSerializer, int blockSize) {
+        if (blockSize <= BLOCK_HEADER_SIZE + HEADER_SIZE) {
+            throw new IllegalArgumentException("Illegal block size: " + blockSize);
+        }
+        this.keySerializer = keySerializer;
+        this.valueSerializer = valueSerializer;
+        this.buffer = ByteBuffer.allocateDirect(blockSize);
+    }
+
+    /**
+     * Largest block the reader accepts, so a corrupt length fails with an IOException instead of
+     * a huge allocation. A block only outgrows the block size if a single entry does.
+     */
+    public void setMaxBlockLength(int maxBlockLength) {
+        if (maxBlockLength < BLOCK_HEADER_SIZE) {
+            throw new IllegalArgumentException("Illegal maximum block length: " + maxBlockLength);
+        }
+        this.maxBlockLength = maxBlockLength;
+    }
+
+    public int getMaxBlockLength() { return maxBlockLength; }
+
+    // -- Writing ------------------------------------------------------------------------------------
+
+    public void write(RedBlackTree<K, V> tree, WritableByteChannel out) throws IOException {
+        write(tree.iterator(), tree.size(), out);
+    }
+
+    public void write(PersistentRedBlackTree<K, V> tree, WritableByteChannel out) throws IOException {
+        write(tree.iterator(), tree.size(), out);
+    }
+
+    /** A list-form bucket is sorted first; a tree-form bucket is already in key order. */
+    public void write(ListTree<K, V> bucket, WritableByteChannel out) throws IOException {
+        if (bucket.isListForm()) {
+            ArrayList<Pair<K, V>> pairs = new ArrayList<>((int) bucket.size());
+            bucket.forEach(pairs::add);
+            pairs.sort(Comparator.comparing(Pair::getKey));
+            write(pairs.iterator(), pairs.size(), out);
+        } else {
+            write(bucket.stream().iterator(), bucket.size(), out);
+        }
+    }
+
+    private void write(Iterator<Pair<K, V>> pairs, long count, WritableByteChannel out) throws IOException {
+        buffer.clear();
+        buffer.putInt(MAGIC).putInt(VERSION).putLong(count);
+
+        int blockStart = startBlock();
+        int blockEntries = 0;
+        while (pairs.hasNext()) {
+            Pair<K, V> pair = pairs.next();
+            int entrySize = keySerializer.sizeOf(pair.getKey()) + valueSerializer.sizeOf(pair.getValue());
+            if (buffer.remaining() < entrySize) {
+                endBlock(blockStart, blockEntries);
+                drain(out);
+                if (buffer.remaining() < BLOCK_HEADER_SIZE + entrySize) {
+                    buffer = ByteBuffer.allocateDirect(BLOCK_HEADER_SIZE + entrySize);
+                }
+                blockStart = startBlock();
+                blockEntries = 0;
+            }
+            keySerializer.write(buffer, pair.getKey());
+            valueSerializer.write(buffer, pair.getValue());
+            blockEntries++;
+        }
+        endBlock(blockStart, blockEntries);
+
+        if (buffer.remaining() < BLOCK_HEADER_SIZE) {
+            drain(out);
+        }
+        buffer.putInt(0).putInt(0);
+        drain(out);
+    }
+
+    private int startBlock() {
+        int start = buffer.position();
+        buffer.position(start + BLOCK_HEADER_SIZE);
+        return start;
+    }
+
+    // An empty block would read as the end marker, so it is dropped instead
+    private void endBlock(int start, int entries) {
+        if (entries == 0) {
+            buffer.position(start);
+            return;
+        }
+        buffer.putInt(start, buffer.position() - start - BLOCK_HEADER_SIZE);
+        buffer.putInt(start + 4, entries);
+    }
+
+    private void drain(WritableByteChannel out) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    // -- Reading ------------------------------------------------------------------------------------
+
+    /** Reads one stream written by {@link #write} into a new tree, in O(n). */
+    public RedBlackTree<K, V> readTree(ReadableByteChannel in) throws IOException {
+        RedBlackTree<K, V> tree = new RedBlackTree<>();
+        read(in, (pairs, count) -> tree.buildFromSorted(pairs, count));
+        return tree;
+    }
+
+    /** Reads one stream written by {@link #write} into a new immutable tree, in O(n). */
+    public PersistentRedBlackTree<K, V> readPersistentTree(ReadableByteChannel in) throws IOException {
+        ArrayList<PersistentRedBlackTree<K, V>> tree = new ArrayList<>(1);
+        read(in, (pairs, count) -> tree.add(PersistentRedBlackTree.fromSorted(pairs, count)));
+        return tree.get(0);
+    }
+
+    /** Reads one stream written by {@link #write} into a new bucket, in O(n). */
+    public ListTree<K, V> readListTree(ReadableByteChannel in) throws IOException {
+        ListTree<K, V> bucket = new ListTree<>();
+        read(in, bucket::loadSorted);
+        return bucket;
+    }
+
+    private interface Loader<K extends Comparable<K>, V> {
+        void load(Iterator<Pair<K, V>> pairs, int count);
+    }
+
+    private void read(ReadableByteChannel in, Loader<K, V> loader) throws IOException {
+        // fill() never reads past what it was asked for, so nothing is buffered between reads and
+        // the channel is left right behind the end marker, at the next stream if there is one
+        buffer.clear().flip();
+        fill(in, HEADER_SIZE);
+        if (buffer.getInt() != MAGIC) {
+            throw new IOException("Not a tree stream");
+        }
+        if (buffer.getInt() != VERSION) {
+            throw new IOException("Unsupported tree stream version");
+        }
+        long count = buffer.getLong();
+        if (count < 0 || count > Integer.MAX_VALUE) {
+            throw new IOException("Illegal entry count: " + count);
+        }
+
+        BlockReader reader = new BlockReader(in);
+        try {
+            loader.load(reader, (int) count);
+            // Consume the rest of the stream up to and including the end marker
+            if (reader.hasNext()) {
+                throw new IOException("More entries than the header announced");
+            }
+        } catch (UncheckedReadException e) {
+            throw e.getCause();
+        }
+    }
+
+    // Makes exactly "bytes" bytes readable, growing the buffer if it is too small
+    private void fill(ReadableByteChannel in, int bytes) throws IOException {
+        if (buffer.remaining() >= bytes) {
+            return;
+        }
+        if (buffer.capacity() < bytes) {
+            ByteBuffer bigger = ByteBuffer.allocateDirect(bytes);
+            bigger.put(buffer).flip();
+            buffer = bigger;
+        }
+        buffer.compact().limit(bytes);
+        while (buffer.position() < bytes) {
+            if (in.read(buffer) < 0) {
+                throw new EOFException("Tree stream ended early");
+            }
+        }
+        buffer.flip();
+    }
+
+    private static final class UncheckedReadException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        UncheckedReadException(IOException cause) {
+            super(cause);
+        }
+
+        @Override
+        public synchronized IOException getCause() { return (IOException) super.getCause(); }
+    }
+
+    // Decodes one block at a time; buildFromSorted pulls exactly the announced number of pairs
+    private final class BlockReader implements Iterator<Pair<K, V>> {
+        private final ReadableByteChannel in;
+        private int blockEntries = 0;
+        private boolean ended = false;
+
+        private BlockReader(ReadableByteChannel in) {
+            this.in = in;
+        }
+
+        @Override
+        public boolean hasNext() {
+            try {
+                while (blockEntries == 0 && !ended) {
+                    fill(in, BLOCK_HEADER_SIZE);
+                    int blockLength = buffer.getInt();
+                    blockEntries = buffer.getInt();
+                    if (blockLength < 0 || blockLength > maxBlockLength || blockEntries < 0
+                            || (blockEntries == 0 && blockLength != 0)) {
+                        throw new IOException("Corrupt block header");
+                    }
+                    ended = (blockLength == 0 && blockEntries == 0);
+                    fill(in, blockLength);
+                }
+            } catch (IOException e) {
+                throw new UncheckedReadException(e);
+            }
+            return blockEntries > 0;
+        }
+
+        @Override
+        public Pair<K, V> next() {
+            if (!hasNext()) {
+                throw new UncheckedReadException(new EOFException("Fewer entries than the header announced"));
+            }
+            blockEntries--;
+            K key = keySerializer.read(buffer);
+            return new Pair<>(key, valueSerializer.read(buffer));
+        }
+    }
+}
@@ -0,0 +1,249 @@
+package com.S1A4;
+
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Concurrent counterpart of {@link TreeifiedHashMap}, laid out like Java8 ConcurrentHashMap.
+ * Empty bins are installed by CAS, every other access locks only the {@link ListTree} bucket
+ * it works on (so treeify/listify happen under that bucket's lock), and resizing is shared:
+ * threads that run into a moved bin claim strides of the old table and help moving them.
+ * Null keys and values are not permitted.
+ */
+public class ConcurrentTreeifiedHashMap<K extends Comparable<K>, V> {
+
+    static final float LOAD_FACTOR = 0.75f;
+    static final int MIN_TRANSFER_STRIDE = 16;
+
+    // Placed in a moved bin of the old table; one per resize
+    static final class ForwardingBucket<K extends Comparable<K>, V> extends ListTree<K, V> {
+        final AtomicReferenceArray<ListTree<K, V>> nextTable;
+
+        ForwardingBucket(AtomicReferenceArray<ListTree<K, V>> nextTable) {
+            this.nextTable = nextTable;
+        }
+    }
+
+    // Current table plus, while resizing, the table being filled and the transfer progress.
+    // Swapped as a whole so a stale thread can never start or finish a resize twice.
+    static final class State<K extends Comparable<K>, V> {
+        final AtomicReferenceArray<ListTree<K, V>> table;
+        final AtomicReferenceArray<ListTree<K, V>> nextTable;
+        final ForwardingBucket<K, V> forwarding;
+        final AtomicInteger transferIndex;
+        final AtomicInteger pendingBins;
+        final long threshold;
+
+        State(AtomicReferenceArray<ListTree<K, V>> table, AtomicReferenceArray<ListTree<K, V>> nextTable) {
+            this.table = table;
+            this.nextTable = nextTable;
+            this.forwarding = (nextTable != null) ? new ForwardingBucket<>(nextTable) : null;
+            this.transferIndex = new AtomicInteger(table.length());
+            this.pendingBins = new AtomicInteger(table.length());
+            this.threshold = (long) (table.length() * LOAD_FACTOR);
+        }
+    }
+
+    private final AtomicReference<State<K, V>> state;
+    private final LongAdder count = new LongAdder();
+
+    public ConcurrentTreeifiedHashMap() { this(TreeifiedHashMap.DEFAULT_INITIAL_CAPACITY); }
+
+    public ConcurrentTreeifiedHashMap(int initialCapacity) {
+        if (initialCapacity < 0) {
+            throw new IllegalArgumentException("Illegal initial capacity: " + initialCapacity);
+        }
+        int capacity = TreeifiedHashMap.tableSizeFor(initialCapacity);
+        this.state = new AtomicReference<>(new State<>(new AtomicReferenceArray<>(capacity), null));
+    }
+
+    private static int hash(Object key) { return TreeifiedHashMap.spread(key.hashCode()); }
+
+    public Optional<V> put(K key, V value) { return put(new Pair<>(key, value)); }
+
+    public Optional<V> put(Pair<K, V> pair) {
+        Objects.requireNonNull(pair.getKey(), "key");
+        Objects.requireNonNull(pair.getValue(), "value");
+
+        int hash = hash(pair.getKey());
+        AtomicReferenceArray<ListTree<K, V>> tab = state.get().table;
+        while (true) {
+            int n = tab.length();
+            int index = hash & (n - 1);
+            ListTree<K, V> bucket = tab.get(index);
+
+            if (bucket == null) {
+                ListTree<K, V> newBucket = new ListTree<>();
+                newBucket.put(pair);
+                if (tab.compareAndSet(index, null, newBucket)) {
+                    addCount(tab, false);
+                    return Optional.empty();
+                }
+            } else if (bucket instanceof ForwardingBucket) {
+                tab = helpTransfer(tab, (ForwardingBucket<K, V>) bucket);
+            } else {
+                boolean mustGrow;
+                synchronized (bucket) {
+                    if (tab.get(index) != bucket) { continue; }
+
+                    Optional<V> oldValue = bucket.replace(pair);
+                    if (oldValue.isPresent()) { return oldValue; }
+
+                    boolean mayTreeify = n >= TreeifiedHashMap.MIN_TREEIFY_CAPACITY;
+                    bucket.put(pair, mayTreeify);
+                    mustGrow = !mayTreeify && bucket.size() >= ListTree.TREEIFY_THRESHOLD;
+                }
+                addCount(tab, mustGrow);
+                return Optional.empty();
+            }
+        }
+    }
+
+    public Optional<V> get(K key) {
+        int hash = hash(key);
+        AtomicReferenceArray<ListTree<K, V>> tab = state.get().table;
+        while (true) {
+            int index = hash & (tab.length() - 1);
+            ListTree<K, V> bucket = tab.get(index);
+
+            if (bucket == null) {
+                return Optional.empty();
+            } else if (bucket instanceof ForwardingBucket) {
+                tab = ((ForwardingBucket<K, V>) bucket).nextTable;
+            } else {
+                synchronized (bucket) {
+                    if (tab.get(index) == bucket) { return bucket.get(key); }
+                }
+            }
+        }
+    }
+
+    public boolean contains(K key) { return get(key).isPresent(); }
+
+    public Optional<V> remove(K key) {
+        int hash = hash(key);
+        AtomicReferenceArray<ListTree<K, V>> tab = state.get().table;
+        while (true) {
+            int index = hash & (tab.length() - 1);
+            ListTree<K, V> bucket = tab.get(index);
+
+            if (bucket == null) {
+                return Optional.empty();
+            } else if (bucket instanceof ForwardingBucket) {
+                tab = helpTransfer(tab, (ForwardingBucket<K, V>) bucket);
+            } else {
+                Optional<V> value;
+                synchronized (bucket) {
+                    if (tab.get(index) != bucket) { continue; }
+
+                    value = bucket.remove(key);
+                    if (bucket.isEmpty()) { tab.set(index, null); }
+                }
+                if (value.isPresent()) { count.decrement(); }
+                return value;
+            }
+        }
+    }
+
+    public int size() {
+        long sum = count.sum();
+        return (sum < 0L) ? 0 : (sum > Integer.MAX_VALUE) ? Integer.MAX_VALUE : (int) sum;
+    }
+
+    public boolean isEmpty() { return count.sum() <= 0L; }
+
+    public int capacity() { return state.get().table.length(); }
+
+    // -- Resizing -----------------------------------------------------------------------------------
+
+    private void addCount(AtomicReferenceArray<ListTree<K, V>> tab, boolean mustGrow) {
+        count.increment();
+        State<K, V> current = state.get();
+        if (mustGrow || count.sum() > current.threshold) {
+            tryResize(tab);
+        }
+    }
+
+    private AtomicReferenceArray<ListTree<K, V>> helpTransfer(AtomicReferenceArray<ListTree<K, V>> tab,
+                                                              ForwardingBucket<K, V> forwarding) {
+        State<K, V> current = state.get();
+        if (current.table == tab && current.nextTable == forwarding.nextTable) {
+            transfer(current);
+        }
+        return forwarding.nextTable;
+    }
+
+    private void tryResize(AtomicReferenceArray<ListTree<K, V>> tab) {
+        State<K, V> current = state.get();
+        if (current.table != tab) { return; }
+
+        if (current.nextTable == null) {
+            if (tab.length() >= TreeifiedHashMap.MAXIMUM_CAPACITY) { return; }
+            State<K, V> resizing = new State<>(tab, new AtomicReferenceArray<>(tab.length() << 1));
+            if (!state.compareAndSet(current, resizing)) {
+                current = state.get();
+                if (current.table != tab || current.nextTable == null) { return; }
+            } else {
+                current = resizing;
+            }
+        }
+        transfer(current);
+    }
+
+    // Claims strides of bins, from the top of the old table down, until none are left.
+    // Whoever moves the last bin publishes the new table.
+    private void transfer(State<K, V> resizing) {
+        AtomicReferenceArray<ListTree<K, V>> tab = resizing.table;
+        int n = tab.length();
+        int stride = Math.max(MIN_TRANSFER_STRIDE, n / (Runtime.getRuntime().availableProcessors() * 8));
+
+        while (true) {
+            int hi = resizing.transferIndex.getAndAdd(-stride);
+            if (hi <= 0) { return; }
+            int lo = Math.max(hi - stride, 0);
+
+            for (int i = hi - 1; i >= lo; i--) {
+                moveBin(resizing, i);
+            }
+
+            if (resizing.pendingBins.addAndGet(lo - hi) == 0) {
+                state.compareAndSet(resizing, new State<>(resizing.nextTable, null));
+                return;
+            }
+        }
+    }
+
+    private void moveBin(State<K, V> resizing, int index) {
+        AtomicReferenceArray<ListTree<K, V>> tab = resizing.table;
+        AtomicReferenceArray<ListTree<K, V>> nextTab = resizing.nextTable;
+        int n = tab.length();
+        boolean mayTreeify = (n << 1) >= TreeifiedHashMap.MIN_TREEIFY_CAPACITY;
+
+        while (true) {
+            ListTree<K, V> bucket = tab.get(index);
+            if (bucket == null) {
+                if (tab.compareAndSet(index, null, resizing.forwarding)) { return; }
+                continue;
+            }
+
+            synchronized (bucket) {
+                if (tab.get(index) != bucket) { continue; }
+
+                ListTree<K, V> low = new ListTree<>();
+                ListTree<K, V> high = new ListTree<>();
+                bucket.forEach(pair -> {
+                    if ((hash(pair.getKey()) & n) == 0) { low.put(pair, mayTreeify); }
+                    else { high.put(pair, mayTreeify); }
+                });
+                if (!low.isEmpty()) { nextTab.set(index, low); }
+                if (!high.isEmpty()) { nextTab.set(index + n, high); }
+                tab.set(index, resizing.forwarding);
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.S1A4.Filter;
+
+/**
+ * Counting Bloom filter over key hash codes: {@link #mightContain} never returns false for a key
+ * that was added and not removed, and returns true for other keys with about the configured
+ * false-positive rate while no more than {@link #capacity()} keys are in it.
+ * <p>
+ * Counters are 4 bits wide, 16 per long. A counter that reaches 15 stays there, so removals
+ * can never cause false negatives; the owner rebuilds the filter with {@link #reset} when it
+ * grows past its capacity.
+ * <p>
+ * Membership follows {@code hashCode()}: an owner that matches keys with {@code compareTo} needs
+ * an ordering consistent with equals.
+ */
+public final class CountingBloomFilter<K> {
+
+    public static final double DEFAULT_FALSE_POSITIVE_RATE = 0.01;
+
+    private static final int MIN_COUNTERS = 64;
+    private static final int MAX_HASHES = 16;
+    private static final long SATURATED = 15L;
+
+    private final double falsePositiveRate;
+    private long[] words;
+    private int counterMask;
+    private int hashes;
+    private int capacity;
+    private int entries = 0;
+
+    public CountingBloomFilter(int expectedEntries) { this(expectedEntries, DEFAULT_FALSE_POSITIVE_RATE); }
+
+    public CountingBloomFilter(int expectedEntries, double falsePositiveRate) {
+        if (!(falsePositiveRate > 0.0 && falsePositiveRate < 1.0)) {
+            throw new IllegalArgumentException("Illegal false-positive rate: " + falsePositiveRate);
+        }
+        this.falsePositiveRate = falsePositiveRate;
+        reset(expectedEntries);
+    }
+
+    /** Empties the filter and sizes it for {@code expectedEntries} keys. */
+    public void reset(int expectedEntries) {
+        if (expectedEntries < 0) {
+            throw new IllegalArgumentException("Illegal expected entries: " + expectedEntries);
+        }
+        int n = Math.max(expectedEntries, 1);
+
+        // m = -n ln(p) / ln(2)^2 counters, rounded up to a power of two; k = m/n ln(2) hashes
+        double optimal = -n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2));
+        int counters = (int) Math.min(1L << 30, Math.max(MIN_COUNTERS, Long.highestOneBit((long) Math.ceil(optimal) - 1) << 1));
+        words = new long[counters >>> 4];
+        counterMask = counters - 1;
+        hashes = (int) Math.max(1, Math.min(MAX_HASHES, Math.round((double) counters / n * Math.log(2))));
+        capacity = n;
+        entries = 0;
+    }
+
+    public int capacity() { return capacity; }
+
+    /** Keys added and not removed since the last reset. */
+    public int size() { return entries; }
+
+    /** True once more keys were added than the filter was sized for. */
+    public boolean isOverloaded() { return entries > capacity; }
+
+    public void add(K key) {
+        long hash = mix(key.hashCode());
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+        for (int i = 0; i < hashes; i++) {
+            int counter = (h1 + i * h2) & counterMask;
+            int word = counter >>> 4;
+            int shift = (counter & 15) << 2;
+            if (((words[word] >>> shift) & SATURATED) != SATURATED) {
+                words[word] += 1L << shift;
+            }
+        }
+        entries++;
+    }
+
+    /** Must only be called for a key that was added and not yet removed. */
+    public void remove(K key) {
+        long hash = mix(key.hashCode());
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+        for (int i = 0; i < hashes; i++) {
+            int counter = (h1 + i * h2) & counterMask;
+            int word = counter >>> 4;
+            int shift = (counter & 15) << 2;
+            long count = (words[word] >>> shift) & SATURATED;
+            if (count != 0 && count != SATURATED) {
+                words[word] -= 1L << shift;
+            }
+        }
+        entries--;
+    }
+
+    public boolean mightContain(K key) {
+        long hash = mix(key.hashCode());
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+        for (int i = 0; i < hashes; i++) {
+            int counter = (h1 + i * h2) & counterMask;
+            if (((words[counter >>> 4] >>> ((counter & 15) << 2)) & SATURATED) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // MurmurHash3 fmix64, so that sequential hash codes spread over both halves
+    private static long mix(int hashCode) {
+        long h = hashCode;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,66 @@
+package com.S1A4;
+
+/**
+ * Default {@link BucketPolicy}: the ListTree thresholds, plus
+ * <ul>
+ *   <li>a cooldown: after {@value #FREE_CONVERSIONS} conversions, a bucket keeps its form for at
+ *   least {@code cooldown} operations, so a size hovering around the thresholds can't flap;</li>
+ *   <li>a cost check: once a bucket has {@code cooldown} operations of history, it is only
+ *   treeified if reads are at least a quarter of the writes and a list read probes more nodes
+ *   on average than a tree read would.</li>
+ * </ul>
+ * A list is always treeified at {@code 4 * treeifyThreshold} entries, whatever the history.
+ */
+public class HysteresisBucketPolicy implements BucketPolicy {
+
+    static final int DEFAULT_COOLDOWN = 64;
+    static final int FREE_CONVERSIONS = 3;
+
+    private final int treeifyThreshold;
+    private final int untreeifyThreshold;
+    private final int cooldown;
+
+    public HysteresisBucketPolicy() {
+        this(ListTree.TREEIFY_THRESHOLD, ListTree.UNTREEIFY_THRESHOLD, DEFAULT_COOLDOWN);
+    }
+
+    public HysteresisBucketPolicy(int treeifyThreshold, int untreeifyThreshold, int cooldown) {
+        if (untreeifyThreshold < 0 || untreeifyThreshold >= treeifyThreshold) {
+            throw new IllegalArgumentException("Need 0 <= untreeifyThreshold < treeifyThreshold, got "
+                    + untreeifyThreshold + " and " + treeifyThreshold);
+        }
+        if (cooldown < 0) {
+            throw new IllegalArgumentException("Illegal cooldown: " + cooldown);
+        }
+        this.treeifyThreshold = treeifyThreshold;
+        this.untreeifyThreshold = untreeifyThreshold;
+        this.cooldown = cooldown;
+    }
+
+    @Override
+    public boolean shouldTreeify(ListTree<?, ?> bucket) {
+        long size = bucket.size();
+        if (size < treeifyThreshold) { return false; }
+        if (size >= 4L * treeifyThreshold) { return true; }
+        if (coolingDown(bucket)) { return false; }
+
+        long reads = bucket.getReads();
+        long writes = bucket.getWrites();
+        if (reads + writes < cooldown) { return true; }
+        if (reads * 4 < writes) { return false; }
+
+        // Nodes a lookup visits in a balanced tree of this size: floor(log2(size)) + 1
+        long treeProbes = 64 - Long.numberOfLeadingZeros(size);
+        return bucket.getProbes() > reads * treeProbes;
+    }
+
+    @Override
+    public boolean shouldListify(ListTree<?, ?> bucket) {
+        return bucket.size() <= untreeifyThreshold && !coolingDown(bucket);
+    }
+
+    // A bucket that only crosses the thresholds now and then behaves as with fixed thresholds
+    private boolean coolingDown(ListTree<?, ?> bucket) {
+        return bucket.getConversions() >= FREE_CONVERSIONS && bucket.getOpsSinceConversion() < cooldown;
+    }
+}
@@ -27,7 +27,7 @@ public class List<K extends Comparable<K>, V> {
 
     public static class Node<K extends Comparable<K>, V> {
 
-        private final Pair<K, V> data;
+        private Pair<K, V> data;
         protected Node<K, V> next;
 
         public Node(Pair<K, V> data) {
@@ -49,9 +49,6 @@ public class List<K extends Comparable<K>, V> {
             head = newNode;
         }
         else {
-            Node<K, V> node = head;
-            while (node.next != null) { node = node.next; }
-            node.next = newNode;
             tail.next = newNode;
         }
 
@@ -60,16 +57,20 @@ public class List<K extends Comparable<K>, V> {
         size++;
     }
 
+    public void clear() {
+        head = null;
+        tail = null;
+        size = 0;
+    }
+
     public boolean contains(K key) {
         Node<K, V> curNode = head;
 
-        if (this.isNotEmpty()) {
-            do {
-                if (curNode.data.contains(key)) {
-                    return true;
-                }
-                curNode = curNode.next;
-            } while (curNode != head);
+        while (curNode != null) {
+            if (curNode.data.contains(key)) {
+                return true;
+            }
+            curNode = curNode.next;
         }
         return false;
     }
@@ -77,38 +78,44 @@ public class List<K extends Comparable<K>, V> {
     public Optional<V> get(K key) {
         Node<K, V> curNode = head;
 
-        if (this.isNotEmpty()) {
-            do {
-                if (curNode.data.getKey() == key)
-                { return Optional.of(curNode.data.getValue()); }
-                curNode = curNode.next;
-            } while (curNode != head);
+        while (curNode != null) {
+            if (curNode.data.contains(key))
+            { return Optional.of(curNode.data.getValue()); }
+            curNode = curNode.next;
+        }
+        return Optional.empty();
+    }
+
+    public Optional<V> replace(Pair<K, V> pair) {
+        Node<K, V> curNode = head;
+
+        while (curNode != null) {
+            if (curNode.data.contains(pair.getKey())) {
+                Optional<V> oldValue = Optional.of(curNode.data.getValue());
+                curNode.data = pair;
+                return oldValue;
+            }
+            curNode = curNode.next;
         }
         return Optional.empty();
     }
 
     public boolean isNotEmpty() { return head != null; }
 
-    public Optional<V> remove(K neededKey ) {
+    public Optional<V> remove(K neededKey) {
+        Node<K, V> prevNode = null;
         Node<K, V> curNode = head;
-        if (this.isNotEmpty()) {
-            do {
-                Node<K, V> nextNode = curNode.next;
-                if (nextNode.data.getKey() == neededKey) {
-                    Optional<V> neededValue = Optional.of(nextNode.data.getValue());
-                    if (tail == head) {
-                        head = null;
-                        tail = null;
-                    } else {
-                        curNode.next = nextNode.next;
-                        if (head == nextNode) { head = head.next; }
-                        if (tail == nextNode) { tail = curNode; }
-                    }
-                    size--;
-                    return neededValue;
-                }
-                curNode = nextNode;
-            } while (curNode != head);
+
+        while (curNode != null) {
+            if (curNode.data.contains(neededKey)) {
+                if (prevNode == null) { head = curNode.next; }
+                else { prevNode.next = curNode.next; }
+                if (tail == curNode) { tail = prevNode; }
+                size--;
+                return Optional.of(curNode.data.getValue());
+            }
+            prevNode = curNode;
+            curNode = curNode.next;
         }
 
         return Optional.empty();
@@ -1,9 +1,21 @@
 package com.S1A4;
 
+import com.S1A4.Filter.CountingBloomFilter;
 import com.S1A4.List.List;
+import com.S1A4.Metrics.BucketConversionEvent;
+import com.S1A4.Metrics.BucketMetrics;
+import com.S1A4.Tree.Node;
 import com.S1A4.Tree.RedBlackTree;
 
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class ListTree<K extends Comparable<K>, V> {
 
@@ -16,35 +28,227 @@ public class ListTree<K extends Comparable<K>, V> {
     public List<K, V> listContainer = new List<>();
     RedBlackTree<K, V> treeContainer = new RedBlackTree<>();
 
-    public void put(Pair<K, V> pair) {
+    private BucketMetrics metrics;
+
+    // Counters for the BucketPolicy, reset on every conversion and halved every DECAY_WINDOW ops
+    static final int DECAY_WINDOW = 1024;
+
+    private BucketPolicy policy = BucketPolicy.DEFAULT;
+    private int reads = 0;
+    private int writes = 0;
+    private long probes = 0;
+    private int opsSinceConversion = 0;
+    private int conversions = 0;
+
+    public void setPolicy(BucketPolicy policy) { this.policy = Objects.requireNonNull(policy, "policy"); }
+
+    public BucketPolicy getPolicy() { return policy; }
+
+    /** Lookups since the last conversion (decayed). */
+    public int getReads() { return reads; }
+
+    /** Puts, replaces and removes since the last conversion (decayed). */
+    public int getWrites() { return writes; }
+
+    /** Nodes visited by list-form lookups since the last conversion (decayed with the reads). */
+    public long getProbes() { return probes; }
+
+    public int getOpsSinceConversion() { return opsSinceConversion; }
+
+    public int getConversions() { return conversions; }
+
+    private void recordOp(boolean isRead, int probeLength) {
+        if (isRead) {
+            reads++;
+            probes += probeLength;
+        } else {
+            writes++;
+        }
+        if (opsSinceConversion < Integer.MAX_VALUE) { opsSinceConversion++; }
+        if (reads + writes >= DECAY_WINDOW) {
+            reads >>>= 1;
+            writes >>>= 1;
+            probes >>>= 1;
+        }
+    }
+
+    /** Attaches counters to this bucket and its tree form, or detaches them with null. */
+    public void setMetrics(BucketMetrics metrics) {
+        this.metrics = metrics;
+        treeContainer.setMetrics(metrics != null ? metrics.treeMetrics() : null);
+    }
+
+    public BucketMetrics getMetrics() { return metrics; }
+
+    // Incremental conversion: while migrating, isListForm is already the target form, new
+    // entries go there, and every operation moves up to migrationStep entries over from the
+    // other form. Each entry is in exactly one of the two containers, so a conversion back
+    // that starts mid-migration just flips isListForm.
+    private int migrationStep = 0;
+    private boolean migrating = false;
+    private long migrationNanos = 0;
+    // Spans the whole migration, from its first step to its last
+    private BucketConversionEvent migrationEvent;
+
+    /**
+     * Converts buckets larger than {@code entriesPerOp} a few entries per operation instead of
+     * all at once inside the put/remove that crosses the threshold. 0 (the default) converts
+     * synchronously.
+     */
+    public void setIncrementalConversion(int entriesPerOp) {
+        if (entriesPerOp < 0) {
+            throw new IllegalArgumentException("Illegal entries per operation: " + entriesPerOp);
+        }
+        if (entriesPerOp == 0) { finishMigration(); }
+        this.migrationStep = entriesPerOp;
+    }
+
+    public int getIncrementalConversion() { return migrationStep; }
+
+    public boolean isMigrating() { return migrating; }
+
+    // Optional negative-lookup filter over the keys of both containers
+    private CountingBloomFilter<K> filter;
+
+    /**
+     * Answers lookups of keys a counting Bloom filter rules out without walking the bucket. As with
+     * {@link com.S1A4.Tree.RedBlackTree#setLookupFilter}, the key ordering must be consistent with
+     * equals. Inside a {@link TreeifiedHashMap} this changes no answer, as buckets are already
+     * chosen by hash code.
+     */
+    public void setLookupFilter(boolean enabled) {
+        filter = enabled ? new CountingBloomFilter<>(2 * TREEIFY_THRESHOLD) : null;
+        rebuildFilter();
+    }
+
+    public boolean hasLookupFilter() { return filter != null; }
+
+    private boolean ruledOut(K key) { return filter != null && !filter.mightContain(key); }
+
+    // For tests
+    CountingBloomFilter<K> lookupFilter() { return filter; }
+
+    // Sized for twice the current content; doesn't touch a pending migration
+    private void rebuildFilter() {
+        if (filter == null) { return; }
+        filter.reset((int) Math.max(2 * TREEIFY_THRESHOLD, 2 * size));
+        for (List.Node<K, V> node = listContainer.getHead(); node != null; node = node.getNext()) {
+            filter.add(node.getKey());
+        }
+        treeContainer.spliterator().forEachRemaining(pair -> filter.add(pair.getKey()));
+    }
+
+    public void put(Pair<K, V> pair) { put(pair, true); }
+
+    void put(Pair<K, V> pair, boolean mayTreeify) {
         if (isListForm) {
             listContainer.addNode(pair);
-            if (++size >= ListTree.TREEIFY_THRESHOLD) {
+            size++;
+            recordOp(false, 0);
+            if (mayTreeify && policy.shouldTreeify(this)) {
                 isListForm = false;
-                treeify();
+                convert(true);
+            } else if (migrating) {
+                migrateStep();
             }
         } else {
-            size++;
+            // Throws on a key already in the tree, before anything here has changed
             treeContainer.insertNode(pair);
+            size++;
+            recordOp(false, 0);
+            if (migrating) { migrateStep(); }
+        }
+
+        if (filter != null) {
+            filter.add(pair.getKey());
+            if (filter.isOverloaded()) { rebuildFilter(); }
         }
     }
 
+    public Optional<V> replace(Pair<K, V> pair) {
+        recordOp(false, 0);
+        Optional<V> oldValue = isListForm ? listContainer.replace(pair) : treeContainer.replace(pair);
+        if (migrating) {
+            if (oldValue.isEmpty()) {
+                oldValue = isListForm ? treeContainer.replace(pair) : listContainer.replace(pair);
+            }
+            migrateStep();
+        }
+        return oldValue;
+    }
+
     public Optional<V> get(K key) {
-        if (isListForm) { return listContainer.get(key); }
-        else { return treeContainer.get(key); }
+        if (ruledOut(key)) { return Optional.empty(); }
+
+        Optional<V> value;
+        if (isListForm) {
+            List.Node<K, V> node = findInList(key);
+            value = (node == null) ? Optional.empty() : Optional.of(node.getData().getValue());
+        } else {
+            recordOp(true, 0);
+            value = treeContainer.get(key);
+        }
+
+        if (migrating) {
+            if (value.isEmpty()) {
+                value = isListForm ? treeContainer.get(key) : listContainer.get(key);
+            }
+            migrateStep();
+        }
+        return value;
+    }
+
+    // Same walk as List.get, but it counts the probes for the policy
+    private List.Node<K, V> findInList(K key) {
+        int probeLength = 0;
+        List.Node<K, V> node = listContainer.getHead();
+        while (node != null) {
+            probeLength++;
+            if (node.getData().contains(key)) { break; }
+            node = node.getNext();
+        }
+        recordOp(true, probeLength);
+        return node;
     }
 
-    public boolean isEmpty() { return size > 0; }
+    public boolean isEmpty() { return size == 0; }
+
+    public boolean isListForm() { return isListForm; }
 
     public Optional<V> remove(K key) {
-        if (isListForm) {
-            return listContainer.remove(key);
+        if (ruledOut(key)) { return Optional.empty(); }
+
+        Optional<V> value = removeFromContainers(key);
+        if (filter != null && value.isPresent()) { filter.remove(key); }
+        return value;
+    }
+
+    private Optional<V> removeFromContainers(K key) {
+        if (migrating) {
+            Optional<V> value = listContainer.remove(key);
+            if (value.isEmpty()) { value = treeContainer.deleteNode(key); }
+            if (value.isPresent()) { size--; }
+            recordOp(false, 0);
+            if (!isListForm && value.isPresent() && policy.shouldListify(this)) {
+                isListForm = true;
+                convert(false);
+            } else {
+                migrateStep();
+            }
+            return value;
+        } else if (isListForm) {
+            Optional<V> value = listContainer.remove(key);
+            if (value.isPresent()) { size--; }
+            recordOp(false, 0);
+            return value;
         } else {
             Optional<V> value = treeContainer.deleteNode(key);
-            if (value != Optional.empty()) {
-                if (--size <= ListTree.UNTREEIFY_THRESHOLD) {
+            recordOp(false, 0);
+            if (value.isPresent()) {
+                size--;
+                if (policy.shouldListify(this)) {
                     isListForm = true;
-                    listify();
+                    convert(false);
                 }
             }
             return value;
@@ -52,16 +256,29 @@ public class ListTree<K extends Comparable<K>, V> {
     }
 
     public boolean contains(K key) {
+        if (ruledOut(key)) { return false; }
+
+        boolean found;
         if (isListForm) {
-            return listContainer.contains(key);
+            found = findInList(key) != null;
         } else {
-            return treeContainer.contains(key);
+            recordOp(true, 0);
+            found = treeContainer.contains(key);
+        }
+
+        if (migrating) {
+            if (!found) {
+                found = isListForm ? treeContainer.contains(key) : listContainer.contains(key);
+            }
+            migrateStep();
         }
+        return found;
     }
 
     public long size() { return size; }
 
     public void printStdOutContent() {
+        finishMigration();
         if (isListForm) {
             listContainer.printList();
         } else {
@@ -69,18 +286,163 @@ public class ListTree<K extends Comparable<K>, V> {
         }
     }
 
+    // Iteration finishes a pending migration first; it is O(n) anyway
+    public void forEach(Consumer<Pair<K, V>> action) {
+        finishMigration();
+        if (isListForm) {
+            List.Node<K, V> tmpNode = listContainer.getHead();
+            while (tmpNode != null) {
+                action.accept(tmpNode.getData());
+                tmpNode = tmpNode.getNext();
+            }
+        } else {
+            treeContainer.spliterator().forEachRemaining(action);
+        }
+    }
+
+    public Spliterator<Pair<K, V>> spliterator() {
+        finishMigration();
+        if (isListForm) {
+            return Spliterators.spliterator(iterate(listContainer.getHead()), size,
+                    Spliterator.ORDERED | Spliterator.NONNULL);
+        } else {
+            return treeContainer.spliterator();
+        }
+    }
+
+    public Stream<Pair<K, V>> stream() { return StreamSupport.stream(spliterator(), false); }
+
+    public Stream<Pair<K, V>> parallelStream() { return StreamSupport.stream(spliterator(), true); }
+
+    private static <K extends Comparable<K>, V> Iterator<Pair<K, V>> iterate(List.Node<K, V> head) {
+        return new Iterator<>() {
+            private List.Node<K, V> tmpNode = head;
+
+            @Override
+            public boolean hasNext() { return tmpNode != null; }
+
+            @Override
+            public Pair<K, V> next() {
+                if (tmpNode == null) { throw new NoSuchElementException(); }
+                Pair<K, V> pair = tmpNode.getData();
+                tmpNode = tmpNode.getNext();
+                return pair;
+            }
+        };
+    }
+
+    private void convert(boolean toTree) {
+        conversions++;
+        reads = 0;
+        writes = 0;
+        probes = 0;
+        opsSinceConversion = 0;
+        // A migration the other way is abandoned where it is; only finished ones are counted
+        migrationEvent = null;
+
+        if (migrationStep > 0 && size > migrationStep) {
+            migrating = true;
+            migrationNanos = 0;
+            migrationEvent = (metrics != null) ? metrics.beginConversion(toTree, (int) size) : null;
+            migrateStep();
+            return;
+        }
+
+        if (metrics == null) {
+            if (toTree) { treeify(); }
+            else { listify(); }
+            return;
+        }
+
+        BucketConversionEvent event = metrics.beginConversion(toTree, (int) size);
+        long start = System.nanoTime();
+        if (toTree) { treeify(); }
+        else { listify(); }
+        metrics.converted(toTree, System.nanoTime() - start);
+        event.commit();
+    }
+
+    // Moves up to migrationStep entries into the target form, in key order from the tree and in
+    // insertion order from the list
+    private void migrateStep() {
+        long start = (metrics != null) ? System.nanoTime() : 0L;
+        for (int moved = 0; moved < migrationStep; moved++) {
+            if (isListForm) {
+                Node<K, V> first = treeContainer.first();
+                if (first == null) { break; }
+                Pair<K, V> pair = first.getData();
+                treeContainer.deleteNode(pair.getKey());
+                listContainer.addNode(pair);
+            } else {
+                List.Node<K, V> head = listContainer.getHead();
+                if (head == null) { break; }
+                listContainer.remove(head.getKey());
+                treeContainer.insertNode(head.getData());
+            }
+        }
+
+        if (isListForm ? treeContainer.getRoot() == null : listContainer.getHead() == null) {
+            migrating = false;
+        }
+        if (metrics != null) {
+            migrationNanos += System.nanoTime() - start;
+            if (!migrating) { metrics.converted(!isListForm, migrationNanos); }
+        }
+        if (!migrating && migrationEvent != null) {
+            migrationEvent.commit();
+            migrationEvent = null;
+        }
+    }
+
+    private void finishMigration() {
+        while (migrating) { migrateStep(); }
+    }
+
+    // Both take the entries of both containers, so they also finish or undo a pending migration
+
     public void listify() {
-        listContainer = treeContainer.traverseLevelOrder(treeContainer.getRoot(), new List<>());
+        List<K, V> list = new List<>();
+        for (Iterator<Pair<K, V>> pairs = treeContainer.levelOrderIterator(); pairs.hasNext(); ) {
+            list.addNode(pairs.next());
+        }
+        for (List.Node<K, V> node = listContainer.getHead(); node != null; node = node.getNext()) {
+            list.addNode(node.getData());
+        }
+        listContainer = list;
         treeContainer.setRoot(null);
+        migrating = false;
     }
 
     public void treeify() {
-        List.Node<K, V> tmpNode = listContainer.getHead();
-        while (tmpNode != null) {
-            treeContainer.insertNode(tmpNode.getData());
-            tmpNode = tmpNode.getNext();
+        treeContainer.spliterator().forEachRemaining(listContainer::addNode);
+        List.Node<K, V> sortedHead = listContainer.mergeSort(listContainer.getHead());
+        treeContainer.buildFromSorted(iterate(sortedHead), (int) size);
+        listContainer.clear();
+        migrating = false;
+    }
+
+    /**
+     * Replaces the content with {@code count} pairs in strictly ascending key order, in O(n):
+     * buckets of at least TREEIFY_THRESHOLD pairs are built as a tree directly.
+     */
+    public void loadSorted(Iterator<Pair<K, V>> pairs, int count) {
+        migrating = false;
+        migrationEvent = null;
+        listContainer.clear();
+        treeContainer.setRoot(null);
+        if (count >= TREEIFY_THRESHOLD) {
+            treeContainer.buildFromSorted(pairs, count);
+            isListForm = false;
+        } else {
+            for (int i = 0; i < count; i++) { listContainer.addNode(pairs.next()); }
+            isListForm = true;
         }
-        listContainer.setHead(null); listContainer.setTail(null);
+        size = count;
+        reads = 0;
+        writes = 0;
+        probes = 0;
+        opsSinceConversion = 0;
+        rebuildFilter();
     }
 
     public static void main(String[] args) {
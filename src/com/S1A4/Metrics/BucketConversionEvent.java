@@ -0,0 +1,19 @@
+package com.S1A4.Metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("com.S1A4.BucketConversion")
+@Label("Bucket Conversion")
+@Category({"S1A4", "ListTree"})
+@Description("A ListTree bucket converted between list and tree form")
+public class BucketConversionEvent extends jdk.jfr.Event {
+
+    @Label("Conversion")
+    String conversion;
+
+    @Label("Bucket Size")
+    int bucketSize;
+}
@@ -0,0 +1,80 @@
+package com.S1A4.Metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Opt-in counters for {@code ListTree} buckets: list/tree conversions and the time spent in
+ * them, plus the {@link TreeMetrics} of the buckets' tree form. One instance can be shared by
+ * all buckets of a map.
+ */
+public final class BucketMetrics {
+
+    private final TreeMetrics treeMetrics = new TreeMetrics();
+    private final LongAdder treeifies = new LongAdder();
+    private final LongAdder listifies = new LongAdder();
+    private final LongAdder treeifyNanos = new LongAdder();
+    private final LongAdder listifyNanos = new LongAdder();
+
+    public TreeMetrics treeMetrics() { return treeMetrics; }
+
+    /** Starts a JFR event for a conversion; committing it is a no-op unless JFR records it. */
+    public BucketConversionEvent beginConversion(boolean toTree, int bucketSize) {
+        BucketConversionEvent event = new BucketConversionEvent();
+        if (event.isEnabled()) {
+            event.conversion = toTree ? "treeify" : "listify";
+            event.bucketSize = bucketSize;
+            event.begin();
+        }
+        return event;
+    }
+
+    /** One conversion that took {@code nanos} in total (summed over its steps if incremental). */
+    public void converted(boolean toTree, long nanos) {
+        if (toTree) {
+            treeifies.increment();
+            treeifyNanos.add(nanos);
+        } else {
+            listifies.increment();
+            listifyNanos.add(nanos);
+        }
+    }
+
+    public void reset() {
+        treeMetrics.reset();
+        treeifies.reset();
+        listifies.reset();
+        treeifyNanos.reset();
+        listifyNanos.reset();
+    }
+
+    public Snapshot snapshot() { return new Snapshot(this); }
+
+    public static final class Snapshot {
+        private final long treeifies;
+        private final long listifies;
+        private final long treeifyNanos;
+        private final long listifyNanos;
+        private final TreeMetrics.Snapshot tree;
+
+        private Snapshot(BucketMetrics metrics) {
+            treeifies = metrics.treeifies.sum();
+            listifies = metrics.listifies.sum();
+            treeifyNanos = metrics.treeifyNanos.sum();
+            listifyNanos = metrics.listifyNanos.sum();
+            tree = metrics.treeMetrics.snapshot();
+        }
+
+        public long getTreeifies() { return treeifies; }
+        public long getListifies() { return listifies; }
+        public long getTreeifyNanos() { return treeifyNanos; }
+        public long getListifyNanos() { return listifyNanos; }
+        public TreeMetrics.Snapshot getTree() { return tree; }
+
+        @Override
+        public String toString() {
+            return "BucketMetrics{treeifies=" + treeifies + ", listifies=" + listifies
+                    + ", treeifyNanos=" + treeifyNanos + ", listifyNanos=" + listifyNanos
+                    + ", tree=" + tree + "}";
+        }
+    }
+}
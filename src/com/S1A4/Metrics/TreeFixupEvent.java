@@ -0,0 +1,25 @@
+package com.S1A4.Metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+// One per fixup, so off unless enabled in the recording settings
+@Name("com.S1A4.TreeFixup")
+@Label("Red-Black Tree Fixup")
+@Category({"S1A4", "Tree"})
+@Description("Rebalancing after an insert or delete in a tree with metrics attached")
+@Enabled(false)
+@StackTrace(false)
+public class TreeFixupEvent extends jdk.jfr.Event {
+
+    @Label("Operation")
+    String operation;
+
+    @Label("Depth")
+    @Description("Tree levels the fixup climbed")
+    int depth;
+}
@@ -0,0 +1,115 @@
+package com.S1A4.Metrics;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Opt-in counters for a red-black tree, attached with {@code RedBlackTree.setMetrics}. Trees
+ * without metrics only pay a null check per instrumented step. Safe to share between trees
+ * and threads.
+ */
+public final class TreeMetrics {
+
+    private final LongAdder descents = new LongAdder();
+    private final LongAdder comparisons = new LongAdder();
+    private final LongAdder rotations = new LongAdder();
+    private final LongAdder recolors = new LongAdder();
+    private final LongAdder insertFixups = new LongAdder();
+    private final LongAdder deleteFixups = new LongAdder();
+    private final LongAdder fixupSteps = new LongAdder();
+    private final LongAccumulator maxFixupDepth = new LongAccumulator(Long::max, 0L);
+    private final LongAccumulator maxDescent = new LongAccumulator(Long::max, 0L);
+
+    /** One root-to-node search that compared {@code length} keys. */
+    public void descent(int length) {
+        descents.increment();
+        comparisons.add(length);
+        maxDescent.accumulate(length);
+    }
+
+    public void rotation() { rotations.increment(); }
+
+    public void recolors(int count) { recolors.add(count); }
+
+    /** One insert or delete fixup that climbed {@code depth} levels. */
+    public void fixup(boolean afterInsert, int depth) {
+        (afterInsert ? insertFixups : deleteFixups).increment();
+        fixupSteps.add(depth);
+        maxFixupDepth.accumulate(depth);
+
+        TreeFixupEvent event = new TreeFixupEvent();
+        if (event.isEnabled()) {
+            event.operation = afterInsert ? "insert" : "delete";
+            event.depth = depth;
+            event.commit();
+        }
+    }
+
+    public void reset() {
+        descents.reset();
+        comparisons.reset();
+        rotations.reset();
+        recolors.reset();
+        insertFixups.reset();
+        deleteFixups.reset();
+        fixupSteps.reset();
+        maxFixupDepth.reset();
+        maxDescent.reset();
+    }
+
+    public Snapshot snapshot() { return new Snapshot(this); }
+
+    /**
+     * Counter values at one point in time. There is no height counter: {@link #getMaxDescent()}
+     * is the nearest thing, and it is a high-water mark of search paths, not the current height.
+     */
+    public static final class Snapshot {
+        private final long descents;
+        private final long comparisons;
+        private final long rotations;
+        private final long recolors;
+        private final long insertFixups;
+        private final long deleteFixups;
+        private final long fixupSteps;
+        private final long maxFixupDepth;
+        private final long maxDescent;
+
+        private Snapshot(TreeMetrics metrics) {
+            descents = metrics.descents.sum();
+            comparisons = metrics.comparisons.sum();
+            rotations = metrics.rotations.sum();
+            recolors = metrics.recolors.sum();
+            insertFixups = metrics.insertFixups.sum();
+            deleteFixups = metrics.deleteFixups.sum();
+            fixupSteps = metrics.fixupSteps.sum();
+            maxFixupDepth = metrics.maxFixupDepth.get();
+            maxDescent = metrics.maxDescent.get();
+        }
+
+        public long getDescents() { return descents; }
+        public long getComparisons() { return comparisons; }
+        public long getRotations() { return rotations; }
+        public long getRecolors() { return recolors; }
+        public long getInsertFixups() { return insertFixups; }
+        public long getDeleteFixups() { return deleteFixups; }
+        public long getFixupSteps() { return fixupSteps; }
+        public long getMaxFixupDepth() { return maxFixupDepth; }
+
+        /**
+         * Number of keys compared by the longest search since the last reset. It never goes down,
+         * so after deletions it can exceed the current height, and paths no search took don't count.
+         */
+        public long getMaxDescent() { return maxDescent; }
+
+        public double getComparisonsPerDescent() { return descents == 0 ? 0.0 : (double) comparisons / descents; }
+
+        @Override
+        public String toString() {
+            return "TreeMetrics{descents=" + descents + ", comparisons=" + comparisons
+                    + ", rotations=" + rotations + ", recolors=" + recolors
+                    + ", insertFixups=" + insertFixups + ", deleteFixups=" + deleteFixups
+                    + ", fixupSteps=" + fixupSteps + ", maxFixupDepth=" + maxFixupDepth
+                    + ", maxDescent=" + maxDescent + "}";
+        }
+    }
+}
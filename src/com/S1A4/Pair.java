@@ -19,6 +19,6 @@ public class Pair<K extends Comparable<K>, V> {
     }
 
     public boolean contains(K key) {
-        return this.key == key;
+        return this.key.compareTo(key) == 0;
     }
 }
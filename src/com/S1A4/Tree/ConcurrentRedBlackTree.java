@@ -0,0 +1,161 @@
+package com.S1A4.Tree;
+
+
+import com.S1A4.Pair;
+
+import java.io.PrintStream;
+import java.util.Collection;
+import java.util.Optional;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Thread-safe {@link RedBlackTree}. Writers (and so all rotations) run under a write lock;
+ * readers descend optimistically without locking and only fall back to a read lock if a writer
+ * got in between. Nodes returned by {@link #searchNode(Comparable)} must be treated as read-only.
+ */
+public class ConcurrentRedBlackTree<K extends Comparable<K>, V> implements BinarySearchTree<K, V> {
+
+  // Height bound of any red-black tree with less than 2^31 nodes. A longer optimistic descent
+  // has followed links of a half-done rotation and is retried under the read lock.
+  private static final int MAX_HEIGHT = 64;
+
+  private final RedBlackTree<K, V> tree = new RedBlackTree<>();
+  private final StampedLock lock = new StampedLock();
+
+  // Marks an optimistic descent that gave up
+  private final Node<K, V> retry = new Node<>(null);
+
+  // -- Reads --------------------------------------------------------------------------------------
+
+  @Override
+  public Node<K, V> searchNode(K key) {
+    long stamp = lock.tryOptimisticRead();
+    if (stamp != 0L) {
+      Node<K, V> node = optimisticSearch(key);
+      if (node != retry && lock.validate(stamp)) {
+        return node;
+      }
+    }
+
+    stamp = lock.readLock();
+    try {
+      return tree.searchNode(key);
+    } finally {
+      lock.unlockRead(stamp);
+    }
+  }
+
+  public boolean contains(K key) { return (searchNode(key) != null); }
+
+  public Optional<V> get(K key) {
+    long stamp = lock.tryOptimisticRead();
+    if (stamp != 0L) {
+      Node<K, V> node = optimisticSearch(key);
+      if (node != retry) {
+        // Two-child deletes swap node data, so the pair has to be read before validation too
+        Pair<K, V> data = (node != null) ? node.data : null;
+        if (lock.validate(stamp)) {
+          return (data != null) ? Optional.of(data.getValue()) : Optional.empty();
+        }
+      }
+    }
+
+    stamp = lock.readLock();
+    try {
+      return tree.get(key);
+    } finally {
+      lock.unlockRead(stamp);
+    }
+  }
+
+  private Node<K, V> optimisticSearch(K key) {
+    try {
+      Node<K, V> node = tree.root;
+      for (int depth = 0; node != null; depth++) {
+        if (depth > MAX_HEIGHT) {
+          return retry;
+        }
+
+        int cmp = key.compareTo(node.data.getKey());
+        if (cmp < 0) {
+          node = node.left;
+        } else if (cmp > 0) {
+          node = node.right;
+        } else {
+          return node;
+        }
+      }
+      return null;
+    } catch (RuntimeException e) {
+      // Inconsistent view of a node being written (e.g. one just unlinked)
+      return retry;
+    }
+  }
+
+  public void printPreOrder(PrintStream os) {
+    long stamp = lock.readLock();
+    try {
+      tree.printPreOrder(os);
+    } finally {
+      lock.unlockRead(stamp);
+    }
+  }
+
+  // -- Writes -------------------------------------------------------------------------------------
+
+  @Override
+  public void insertNode(Pair<K, V> toAdd) {
+    long stamp = lock.writeLock();
+    try {
+      tree.insertNode(toAdd);
+    } finally {
+      lock.unlockWrite(stamp);
+    }
+  }
+
+  @Override
+  public Optional<V> deleteNode(K key) {
+    long stamp = lock.writeLock();
+    try {
+      return tree.deleteNode(key);
+    } finally {
+      lock.unlockWrite(stamp);
+    }
+  }
+
+  public Optional<V> replace(Pair<K, V> pair) {
+    long stamp = lock.writeLock();
+    try {
+      return tree.replace(pair);
+    } finally {
+      lock.unlockWrite(stamp);
+    }
+  }
+
+  public void putAll(Collection<Pair<K, V>> pairs) {
+    long stamp = lock.writeLock();
+    try {
+      tree.putAll(pairs);
+    } finally {
+      lock.unlockWrite(stamp);
+    }
+  }
+
+  public void insertAll(Collection<Pair<K, V>> pairs) {
+    long stamp = lock.writeLock();
+    try {
+      tree.insertAll(pairs);
+    } finally {
+      lock.unlockWrite(stamp);
+    }
+  }
+
+  public int deleteAll(Collection<K> keys) {
+    long stamp = lock.writeLock();
+    try {
+      return tree.deleteAll(keys);
+    } finally {
+      lock.unlockWrite(stamp);
+    }
+  }
+}
@@ -0,0 +1,574 @@
+package com.S1A4.Tree;
+
+
+import com.S1A4.Codec.Serializer;
+import com.S1A4.Codec.TreeCodec;
+import com.S1A4.Pair;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32C;
+
+/**
+ * {@link PersistentRedBlackTree} kept in memory and made durable with a write-ahead log in a
+ * directory of its own. {@link #put} and {@link #remove} append a record to the log and return
+ * once it is on disk. Writers that arrive while an fsync is running are committed together by the
+ * next one. Once the log grows past the checkpoint threshold, a background thread writes the tree
+ * out as a {@link TreeCodec} stream and deletes the older log segments. {@link #open} loads the
+ * latest checkpoint and replays the log written after it.
+ * <p>
+ * Every write publishes a new version of the tree, at the cost of copying one root-to-node path.
+ * Reads take no lock, and a checkpoint writes out the version current when it started while
+ * writers carry on.
+ * <p>
+ * Files, named by a generation number that is bumped by every checkpoint:
+ *
+ * <pre>
+ *   wal-&lt;gen&gt;.log          records, each: int bodyLength, int crc32c(body), body
+ *                           body: byte op (1 = put, 2 = remove), key, value (put only)
+ *   checkpoint-&lt;gen&gt;.rbc   the tree as it was when wal-&lt;gen&gt; was started
+ * </pre>
+ *
+ * A torn record at the end of the last segment is a write that never committed and is cut off.
+ * Readers may see a write before it is durable. After a failed log write, every later write
+ * throws.
+ */
+public class DurableRedBlackTree<K extends Comparable<K>, V> implements AutoCloseable {
+
+  static final long DEFAULT_CHECKPOINT_BYTES = 64L << 20;
+
+  private static final byte PUT = 1;
+  private static final byte REMOVE = 2;
+  private static final int RECORD_HEADER_SIZE = 8;
+  private static final int BUFFER_SIZE = 1 << 16;
+
+  private final Path directory;
+  private final Serializer<K> keySerializer;
+  private final Serializer<V> valueSerializer;
+  private final ReentrantLock lock = new ReentrantLock();
+  private final CRC32C crc = new CRC32C();
+  // Replaced, never changed, by writers holding "lock"
+  private volatile PersistentRedBlackTree<K, V> tree = PersistentRedBlackTree.empty();
+
+  // Log tail, guarded by "lock". Records are appended to "pending" and written out by
+  // the commit leader, which swaps it with "spare" first.
+  private FileChannel log;
+  private long generation;
+  private ByteBuffer pending = ByteBuffer.allocateDirect(BUFFER_SIZE);
+  private ByteBuffer spare = ByteBuffer.allocateDirect(BUFFER_SIZE);
+  private long appended = 0;
+  private volatile long logBytes = 0;
+  private boolean closed = false;
+
+  // Group commit, guarded by commitMonitor
+  private final Object commitMonitor = new Object();
+  private long durable = 0;
+  private boolean flushing = false;
+  private IOException failure;
+
+  // Checkpoints run one at a time and own the codec. Those triggered by the log size run on a
+  // thread of their own, so no writer waits for one and a failed one fails no write.
+  private final ReentrantLock checkpointLock = new ReentrantLock();
+  private final TreeCodec<K, V> codec;
+  private volatile long checkpointBytes = DEFAULT_CHECKPOINT_BYTES;
+  private final AtomicBoolean checkpointQueued = new AtomicBoolean();
+  private volatile IOException checkpointFailure;
+  private final ExecutorService checkpointer = Executors.newSingleThreadExecutor(runnable -> {
+    Thread thread = new Thread(runnable, "DurableRedBlackTree-checkpoint");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  private DurableRedBlackTree(Path directory, Serializer<K> keySerializer, Serializer<V> valueSerializer) {
+    this.directory = directory;
+    this.keySerializer = keySerializer;
+    this.valueSerializer = valueSerializer;
+    this.codec = new TreeCodec<>(keySerializer, valueSerializer);
+  }
+
+  /** Opens the store in {@code directory}, creating it if needed, and recovers its content. */
+  public static <K extends Comparable<K>, V> DurableRedBlackTree<K, V> open(Path directory,
+                                                                           Serializer<K> keySerializer,
+                                                                           Serializer<V> valueSerializer)
+          throws IOException {
+    DurableRedBlackTree<K, V> store = new DurableRedBlackTree<>(directory, keySerializer, valueSerializer);
+    store.recover();
+    return store;
+  }
+
+  /** Log size in bytes after which a write triggers a checkpoint. */
+  public void setCheckpointThreshold(long bytes) {
+    if (bytes <= 0) {
+      throw new IllegalArgumentException("Illegal checkpoint threshold: " + bytes);
+    }
+    checkpointBytes = bytes;
+  }
+
+  public long getCheckpointThreshold() { return checkpointBytes; }
+
+  /** Error of the last background checkpoint, if it failed; the next one is tried as usual. */
+  public Optional<IOException> getCheckpointFailure() { return Optional.ofNullable(checkpointFailure); }
+
+  // -- Reads --------------------------------------------------------------------------------------
+
+  public Optional<V> get(K key) { return tree.get(key); }
+
+  public boolean contains(K key) { return get(key).isPresent(); }
+
+  public int size() { return tree.size(); }
+
+  // -- Writes -------------------------------------------------------------------------------------
+
+  /** Inserts or replaces the value of {@code key}; durable once this returns. */
+  public Optional<V> put(K key, V value) throws IOException {
+    Optional<V> oldValue;
+    long sequence;
+    lock.lock();
+    try {
+      ensureWritable();
+      append(PUT, key, value);
+      sequence = appended;
+
+      oldValue = tree.get(key);
+      tree = tree.put(new Pair<>(key, value));
+    } finally {
+      lock.unlock();
+    }
+    commit(sequence);
+    return oldValue;
+  }
+
+  /** Removes {@code key}; durable once this returns. Absent keys are not logged. */
+  public Optional<V> remove(K key) throws IOException {
+    Optional<V> oldValue;
+    long sequence;
+    lock.lock();
+    try {
+      ensureWritable();
+      if (!tree.contains(key)) {
+        return Optional.empty();
+      }
+      append(REMOVE, key, null);
+      sequence = appended;
+      oldValue = tree.get(key);
+      tree = tree.delete(key);
+    } finally {
+      lock.unlock();
+    }
+    commit(sequence);
+    return oldValue;
+  }
+
+  private void ensureWritable() throws IOException {
+    if (closed) {
+      throw new IOException("Store is closed");
+    }
+    synchronized (commitMonitor) {
+      if (failure != null) {
+        throw new IOException("Log write failed earlier", failure);
+      }
+    }
+  }
+
+  private void append(byte op, K key, V value) {
+    int bodySize = 1 + keySerializer.sizeOf(key) + ((op == PUT) ? valueSerializer.sizeOf(value) : 0);
+    if (pending.remaining() < RECORD_HEADER_SIZE + bodySize) {
+      ByteBuffer bigger = ByteBuffer.allocateDirect(Math.max(2 * pending.capacity(),
+              pending.position() + RECORD_HEADER_SIZE + bodySize));
+      bigger.put(pending.flip());
+      pending = bigger;
+    }
+
+    int start = pending.position();
+    pending.position(start + RECORD_HEADER_SIZE);
+    pending.put(op);
+    keySerializer.write(pending, key);
+    if (op == PUT) {
+      valueSerializer.write(pending, value);
+    }
+    crc.reset();
+    crc.update(pending.slice(start + RECORD_HEADER_SIZE, bodySize));
+    pending.putInt(start, bodySize).putInt(start + 4, (int) crc.getValue());
+
+    appended++;
+    logBytes += RECORD_HEADER_SIZE + bodySize;
+  }
+
+  // -- Group commit -------------------------------------------------------------------------------
+
+  // Waits until record "sequence" is on disk. If no fsync is running, the caller becomes the
+  // leader and writes everything appended so far, its own record included.
+  private void commit(long sequence) throws IOException {
+    synchronized (commitMonitor) {
+      while (true) {
+        if (durable >= sequence) {
+          return;
+        }
+        if (failure != null) {
+          throw new IOException("Log write failed", failure);
+        }
+        if (!flushing) {
+          flushing = true;
+          break;
+        }
+        awaitCommit();
+      }
+    }
+
+    long target = 0;
+    IOException error = null;
+    try {
+      target = flushPending();
+    } catch (IOException e) {
+      error = e;
+    }
+    endFlush(target, error);
+
+    if (logBytes >= checkpointBytes && checkpointQueued.compareAndSet(false, true)) {
+      try {
+        checkpointer.execute(this::backgroundCheckpoint);
+      } catch (RejectedExecutionException e) {
+        // Closing; the log keeps every record
+        checkpointQueued.set(false);
+      }
+    }
+  }
+
+  private void awaitCommit() throws InterruptedIOException {
+    try {
+      commitMonitor.wait();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for the log");
+    }
+  }
+
+  // Makes the caller the only thread writing to the log file
+  private void beginFlush() throws IOException {
+    synchronized (commitMonitor) {
+      while (flushing) {
+        awaitCommit();
+      }
+      flushing = true;
+    }
+  }
+
+  private void endFlush(long target, IOException error) {
+    synchronized (commitMonitor) {
+      if (error != null) {
+        failure = error;
+      } else {
+        durable = Math.max(durable, target);
+      }
+      flushing = false;
+      commitMonitor.notifyAll();
+    }
+  }
+
+  // Only the flush leader calls this, so nobody else is using "spare"
+  private long flushPending() throws IOException {
+    ByteBuffer batch;
+    FileChannel channel;
+    long target;
+    lock.lock();
+    try {
+      batch = pending;
+      pending = spare.clear();
+      spare = batch;
+      channel = log;
+      target = appended;
+    } finally {
+      lock.unlock();
+    }
+
+    writeFully(channel, batch.flip());
+    channel.force(false);
+    return target;
+  }
+
+  private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+  }
+
+  // -- Checkpoints --------------------------------------------------------------------------------
+
+  private void backgroundCheckpoint() {
+    checkpointQueued.set(false);
+    try {
+      if (logBytes >= checkpointBytes) {
+        checkpoint();
+      }
+      checkpointFailure = null;
+    } catch (IOException e) {
+      checkpointFailure = e;
+    }
+  }
+
+  /**
+   * Starts a new log segment, writes the tree to a new checkpoint and deletes the files it
+   * replaces. Writers are blocked only while the segment is switched: the checkpoint is written
+   * from the version of the tree current at the switch.
+   */
+  public void checkpoint() throws IOException {
+    checkpointLock.lock();
+    try {
+      PersistentRedBlackTree<K, V> snapshot;
+      long checkpointGeneration;
+
+      beginFlush();
+      long target = 0;
+      IOException error = null;
+      lock.lock();
+      try {
+        ensureWritable();
+        try {
+          // Records up to here go to the old segment, everything after to the new one
+          writeFully(log, pending.flip());
+          pending.clear();
+          log.force(false);
+          target = appended;
+
+          FileChannel next = FileChannel.open(segment(generation + 1), StandardOpenOption.CREATE_NEW,
+                  StandardOpenOption.WRITE);
+          log.close();
+          log = next;
+          generation++;
+          logBytes = 0;
+        } catch (IOException e) {
+          error = e;
+          throw e;
+        }
+
+        checkpointGeneration = generation;
+        snapshot = tree;
+      } finally {
+        lock.unlock();
+        endFlush(target, error);
+      }
+
+      Path temporary = directory.resolve(checkpointName(checkpointGeneration) + ".tmp");
+      try (FileChannel out = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+              StandardOpenOption.TRUNCATE_EXISTING)) {
+        codec.write(snapshot, out);
+        out.force(true);
+      }
+      Files.move(temporary, directory.resolve(checkpointName(checkpointGeneration)), StandardCopyOption.ATOMIC_MOVE);
+      syncDirectory();
+
+      deleteBefore(checkpointGeneration);
+    } finally {
+      checkpointLock.unlock();
+    }
+  }
+
+  // Makes the rename durable; not every platform can open a directory for that
+  private void syncDirectory() {
+    try (FileChannel dir = FileChannel.open(directory, StandardOpenOption.READ)) {
+      dir.force(true);
+    } catch (IOException ignored) {
+    }
+  }
+
+  private void deleteBefore(long checkpointGeneration) throws IOException {
+    for (Path file : list("wal-*.log")) {
+      if (generationOf(file) < checkpointGeneration) {
+        Files.deleteIfExists(file);
+      }
+    }
+    for (Path file : list("checkpoint-*.rbc")) {
+      if (generationOf(file) < checkpointGeneration) {
+        Files.deleteIfExists(file);
+      }
+    }
+    for (Path file : list("checkpoint-*.tmp")) {
+      Files.deleteIfExists(file);
+    }
+  }
+
+  // -- Recovery -----------------------------------------------------------------------------------
+
+  private void recover() throws IOException {
+    Files.createDirectories(directory);
+
+    long checkpointGeneration = 0;
+    ArrayList<Long> checkpoints = generations(list("checkpoint-*.rbc"));
+    if (!checkpoints.isEmpty()) {
+      checkpointGeneration = checkpoints.get(checkpoints.size() - 1);
+      try (FileChannel in = FileChannel.open(directory.resolve(checkpointName(checkpointGeneration)),
+              StandardOpenOption.READ)) {
+        tree = codec.readPersistentTree(in);
+      }
+    }
+
+    ArrayList<Long> segments = generations(list("wal-*.log"));
+    long oldest = checkpointGeneration;
+    segments.removeIf(segment -> segment < oldest);
+    generation = segments.isEmpty() ? checkpointGeneration : segments.get(segments.size() - 1);
+    for (long segment : segments) {
+      try (FileChannel in = FileChannel.open(segment(segment), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+        replay(segment(segment), in, segment == generation);
+      }
+    }
+
+    log = FileChannel.open(segment(generation), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+    log.position(log.size());
+    logBytes = log.size();
+    deleteBefore(checkpointGeneration);
+  }
+
+  // Applies the valid records of one segment. Only the last segment may end in a torn record,
+  // which is cut off so new records follow the valid ones. A record with a valid checksum that
+  // can't be applied is an error, not a torn write: the serializers don't match the log.
+  private void replay(Path file, FileChannel in, boolean last) throws IOException {
+    long fileSize = in.size();
+    long position = 0;
+    ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).flip();
+
+    while (position + RECORD_HEADER_SIZE <= fileSize) {
+      buffer = fill(in, buffer, RECORD_HEADER_SIZE);
+      int bodySize = buffer.getInt();
+      int checksum = buffer.getInt();
+      if (bodySize <= 0 || bodySize > fileSize - position - RECORD_HEADER_SIZE) {
+        break;
+      }
+      buffer = fill(in, buffer, bodySize);
+      int start = buffer.position();
+      crc.reset();
+      crc.update(buffer.slice(start, bodySize));
+      if ((int) crc.getValue() != checksum) {
+        break;
+      }
+
+      try {
+        byte op = buffer.get();
+        K key = keySerializer.read(buffer);
+        if (op == PUT) {
+          tree = tree.put(new Pair<>(key, valueSerializer.read(buffer)));
+        } else if (op == REMOVE) {
+          tree = tree.delete(key);
+        } else {
+          throw new IOException("Unknown log record type " + op + " in " + file + " at byte " + position);
+        }
+      } catch (RuntimeException e) {
+        throw new IOException("Cannot replay the record in " + file + " at byte " + position, e);
+      }
+      if (buffer.position() != start + bodySize) {
+        throw new IOException("Record in " + file + " at byte " + position + " has " + bodySize
+                + " bytes, but " + (buffer.position() - start) + " were read");
+      }
+      position += RECORD_HEADER_SIZE + bodySize;
+    }
+
+    if (position < fileSize) {
+      if (!last) {
+        throw new IOException("Log segment " + file + " is corrupt at byte " + position);
+      }
+      in.truncate(position);
+      in.force(false);
+    }
+  }
+
+  // Makes at least "bytes" bytes readable, growing the buffer if it is too small; the caller
+  // has checked that the file holds them
+  private static ByteBuffer fill(FileChannel in, ByteBuffer buffer, int bytes) throws IOException {
+    if (buffer.remaining() >= bytes) {
+      return buffer;
+    }
+    if (buffer.capacity() < bytes) {
+      ByteBuffer bigger = ByteBuffer.allocateDirect(bytes);
+      bigger.put(buffer).flip();
+      buffer = bigger;
+    }
+    buffer.compact();
+    while (buffer.position() < bytes) {
+      if (in.read(buffer) < 0) {
+        throw new IOException("Log segment ended early");
+      }
+    }
+    return buffer.flip();
+  }
+
+  // -- Files --------------------------------------------------------------------------------------
+
+  private Path segment(long generation) { return directory.resolve(String.format("wal-%016x.log", generation)); }
+
+  private static String checkpointName(long generation) { return String.format("checkpoint-%016x.rbc", generation); }
+
+  private static long generationOf(Path file) {
+    String name = file.getFileName().toString();
+    return Long.parseUnsignedLong(name.substring(name.indexOf('-') + 1, name.indexOf('.')), 16);
+  }
+
+  private ArrayList<Path> list(String glob) throws IOException {
+    ArrayList<Path> files = new ArrayList<>();
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, glob)) {
+      stream.forEach(files::add);
+    }
+    return files;
+  }
+
+  private static ArrayList<Long> generations(ArrayList<Path> files) {
+    ArrayList<Long> generations = new ArrayList<>();
+    for (Path file : files) {
+      generations.add(generationOf(file));
+    }
+    Collections.sort(generations);
+    return generations;
+  }
+
+  /** Writes out and syncs every pending record, then closes the log. */
+  @Override
+  public void close() throws IOException {
+    // Checkpoints that are running or queued finish first
+    checkpointer.shutdown();
+    try {
+      checkpointer.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for a checkpoint");
+    }
+
+    beginFlush();
+    long target = 0;
+    IOException error = null;
+    lock.lock();
+    try {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      writeFully(log, pending.flip());
+      pending.clear();
+      log.force(false);
+      target = appended;
+    } catch (IOException e) {
+      error = e;
+      throw e;
+    } finally {
+      try {
+        log.close();
+      } finally {
+        lock.unlock();
+        endFlush(target, error);
+      }
+    }
+  }
+}
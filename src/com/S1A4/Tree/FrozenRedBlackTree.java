@@ -0,0 +1,151 @@
+package com.S1A4.Tree;
+
+
+import com.S1A4.Pair;
+
+import java.util.Optional;
+
+/**
+ * Immutable lookup copy of a {@link RedBlackTree}, made by {@link RedBlackTree#freeze()}. Keys are
+ * stored in one array in Eytzinger (BFS) order: the children of slot i are 2i and 2i + 1, so
+ * the top levels of every search share a few cache lines and there are no node pointers to
+ * chase. Each search step picks the next slot arithmetically from the sign of the comparison,
+ * without a data-dependent branch. Integer and Long keys are also copied into a long[], so their
+ * searches don't load key objects at all.
+ */
+public final class FrozenRedBlackTree<K extends Comparable<K>, V> {
+
+  // Slot 0 is unused so the children of i are 2i and 2i + 1
+  private final Object[] keys;
+  private final Pair<K, V>[] pairs;
+  private final long[] longKeys;
+  private final int size;
+
+  FrozenRedBlackTree(RedBlackTree<K, V> tree) {
+    size = tree.size();
+    Pair<K, V>[] sorted = newPairs(size);
+    int index = 0;
+    for (Node<K, V> node = tree.first(); node != null; node = RedBlackTree.successor(node)) {
+      sorted[index++] = node.data;
+    }
+
+    keys = new Object[size + 1];
+    pairs = newPairs(size + 1);
+    fill(sorted, 0, 1);
+    for (int i = 1; i <= size; i++) {
+      keys[i] = pairs[i].getKey();
+    }
+
+    // Mixed Integer and Long keys would not compare like the objects do
+    if (size > 0 && (allOf(Integer.class) || allOf(Long.class))) {
+      longKeys = new long[size + 1];
+      for (int i = 1; i <= size; i++) {
+        longKeys[i] = ((Number) keys[i]).longValue();
+      }
+    } else {
+      longKeys = null;
+    }
+  }
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private static <K extends Comparable<K>, V> Pair<K, V>[] newPairs(int length) {
+    return (Pair<K, V>[]) new Pair[length];
+  }
+
+  private boolean allOf(Class<?> type) {
+    for (int i = 1; i <= size; i++) {
+      if (keys[i].getClass() != type) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  // In-order walk over the implicit tree; returns the next index into "sorted"
+  private int fill(Pair<K, V>[] sorted, int next, int slot) {
+    if (slot <= size) {
+      next = fill(sorted, next, 2 * slot);
+      pairs[slot] = sorted[next++];
+      next = fill(sorted, next, 2 * slot + 1);
+    }
+    return next;
+  }
+
+  public int size() { return size; }
+
+  public boolean isEmpty() { return size == 0; }
+
+  public boolean contains(K key) { return find(key) != 0; }
+
+  public Optional<V> get(K key) {
+    int slot = find(key);
+    return (slot != 0) ? Optional.of(pairs[slot].getValue()) : Optional.empty();
+  }
+
+  /** Pair with the greatest key less than or equal to {@code key}, or null. */
+  public Pair<K, V> floor(K key) {
+    int slot = 1;
+    if (longKeys != null && (key instanceof Integer || key instanceof Long)) {
+      long k = ((Number) key).longValue();
+      while (slot <= size) {
+        slot = 2 * slot + (less(k, longKeys[slot]) ^ 1);
+      }
+    } else {
+      while (slot <= size) {
+        slot = 2 * slot + (~compare(key, slot) >>> 31);
+      }
+    }
+    // The answer is the last slot where the search went right: drop the trailing left moves and
+    // that right move
+    slot >>>= Integer.numberOfTrailingZeros(slot) + 1;
+    return (slot != 0) ? pairs[slot] : null;
+  }
+
+  /** Pair with the least key greater than or equal to {@code key}, or null. */
+  public Pair<K, V> ceiling(K key) {
+    int slot = lowerBound(key);
+    return (slot != 0) ? pairs[slot] : null;
+  }
+
+  private int find(K key) {
+    int slot = lowerBound(key);
+    return (slot != 0 && compare(key, slot) == 0) ? slot : 0;
+  }
+
+  // Slot of the least key >= key, or 0
+  private int lowerBound(K key) {
+    int slot = 1;
+    if (longKeys != null && (key instanceof Integer || key instanceof Long)) {
+      long k = ((Number) key).longValue();
+      while (slot <= size) {
+        slot = 2 * slot + less(longKeys[slot], k);
+      }
+    } else {
+      while (slot <= size) {
+        slot = 2 * slot + (compareSlot(slot, key) >>> 31);
+      }
+    }
+    // The answer is the last slot where the search went left: drop the trailing right moves and
+    // that left move
+    slot >>>= Integer.numberOfTrailingZeros(~slot) + 1;
+    return slot;
+  }
+
+  // Sign bits only: 1 if the comparison is negative. Negating a compareTo result would overflow
+  // for Integer.MIN_VALUE, so each search compares in the direction it needs.
+  @SuppressWarnings("unchecked")
+  private int compare(K key, int slot) {
+    return key.compareTo((K) keys[slot]);
+  }
+
+  @SuppressWarnings("unchecked")
+  private int compareSlot(int slot, K key) {
+    return ((K) keys[slot]).compareTo(key);
+  }
+
+  // 1 if a < b, without a branch and without overflowing on a - b (Hacker's Delight 2-12)
+  private static int less(long a, long b) {
+    long difference = a - b;
+    return (int) ((difference ^ ((a ^ b) & (difference ^ a))) >>> 63);
+  }
+}
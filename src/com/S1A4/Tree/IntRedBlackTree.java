@@ -0,0 +1,45 @@
+package com.S1A4.Tree;
+
+
+import java.util.Optional;
+
+/**
+ * {@link RedBlackTree} specialized for {@code int} keys: a {@link LongRedBlackTree} whose keys
+ * are widened on the way in and narrowed on the way out, so there is one implementation for both
+ * key types. Keys are not boxed; slots are those of the underlying tree.
+ */
+public class IntRedBlackTree<V> {
+
+  public static final int NIL = LongRedBlackTree.NIL;
+
+  private final LongRedBlackTree<V> tree;
+
+  public IntRedBlackTree() { tree = new LongRedBlackTree<>(); }
+
+  public IntRedBlackTree(int initialCapacity) { tree = new LongRedBlackTree<>(initialCapacity); }
+
+  public int size() { return tree.size(); }
+
+  public boolean isEmpty() { return tree.isEmpty(); }
+
+  public int getRoot() { return tree.getRoot(); }
+
+  public int keyAt(int node) { return (int) tree.keyAt(node); }
+
+  public V valueAt(int node) { return tree.valueAt(node); }
+
+  /** Returns the slot holding {@code key}, or {@link #NIL}. */
+  public int searchNode(int key) { return tree.searchNode(key); }
+
+  public boolean contains(int key) { return tree.contains(key); }
+
+  public Optional<V> get(int key) { return tree.get(key); }
+
+  /** Allocation-free variant of {@link #get(int)}. */
+  public V getOrDefault(int key, V defaultValue) { return tree.getOrDefault(key, defaultValue); }
+
+  public void insertNode(int key, V value) { tree.insertNode(key, value); }
+
+  /** Removes {@code key}; returns false if it was not present. */
+  public boolean deleteNode(int key) { return tree.deleteNode(key); }
+}
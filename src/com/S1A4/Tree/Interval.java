@@ -0,0 +1,55 @@
+package com.S1A4.Tree;
+
+
+import java.util.Objects;
+
+/**
+ * Closed interval [low, high], ordered by low endpoint and then by high endpoint. Used as the key
+ * of an {@link IntervalRedBlackTree}.
+ */
+public final class Interval<T extends Comparable<T>> implements Comparable<Interval<T>> {
+
+  private final T low;
+  private final T high;
+
+  /**
+   * @throws IllegalArgumentException if {@code low > high}
+   */
+  public Interval(T low, T high) {
+    if (low.compareTo(high) > 0) {
+      throw new IllegalArgumentException("Interval low " + low + " is greater than high " + high);
+    }
+    this.low = low;
+    this.high = high;
+  }
+
+  public T getLow() { return low; }
+
+  public T getHigh() { return high; }
+
+  /** Whether this interval and [lo, hi] share at least one point. */
+  public boolean overlaps(T lo, T hi) { return low.compareTo(hi) <= 0 && high.compareTo(lo) >= 0; }
+
+  public boolean contains(T point) { return overlaps(point, point); }
+
+  @Override
+  public int compareTo(Interval<T> other) {
+    int cmp = low.compareTo(other.low);
+    return (cmp != 0) ? cmp : high.compareTo(other.high);
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (!(o instanceof Interval)) {
+      return false;
+    }
+    Interval<?> other = (Interval<?>) o;
+    return low.equals(other.low) && high.equals(other.high);
+  }
+
+  @Override
+  public int hashCode() { return Objects.hash(low, high); }
+
+  @Override
+  public String toString() { return "[" + low + ", " + high + "]"; }
+}
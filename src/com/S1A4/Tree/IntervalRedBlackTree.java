@@ -0,0 +1,129 @@
+package com.S1A4.Tree;
+
+
+import com.S1A4.Pair;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.function.Consumer;
+
+/**
+ * {@link RedBlackTree} of {@link Interval}s whose nodes also store the greatest high endpoint
+ * in their subtree. Like the subtree sizes of {@link OrderStatisticRedBlackTree}, the maxima are
+ * kept up to date by insertNode, deleteNode, the rotations of both fixups, join and split.
+ * <p>
+ * Overlap and stabbing queries walk the tree in order and skip every subtree whose maximum lies
+ * before the query and everything after the first interval that starts behind it. Finding one
+ * overlapping interval is O(log n); reporting k of them visits at most the paths to them,
+ * O(min(n, k log n)).
+ */
+public class IntervalRedBlackTree<T extends Comparable<T>, V> extends RedBlackTree<Interval<T>, V> {
+
+  static final class MaxNode<T extends Comparable<T>, V> extends Node<Interval<T>, V> {
+    T max;
+
+    MaxNode(Pair<Interval<T>, V> data) {
+      super(data);
+      max = data.getKey().getHigh();
+    }
+  }
+
+  @Override
+  protected Node<Interval<T>, V> newNode(Pair<Interval<T>, V> pair) {
+    return new MaxNode<>(pair);
+  }
+
+  @Override
+  protected void refresh(Node<Interval<T>, V> node) {
+    if (node instanceof MaxNode) {
+      T max = node.data.getKey().getHigh();
+      if (node.left != null && maxOf(node.left).compareTo(max) > 0) {
+        max = maxOf(node.left);
+      }
+      if (node.right != null && maxOf(node.right).compareTo(max) > 0) {
+        max = maxOf(node.right);
+      }
+      ((MaxNode<T, V>) node).max = max;
+    }
+  }
+
+  @Override
+  protected void afterStructureChange(Node<Interval<T>, V> node) {
+    for (; node != null; node = node.parent) {
+      refresh(node);
+    }
+  }
+
+  @Override
+  protected RedBlackTree<Interval<T>, V> newTree() {
+    return new IntervalRedBlackTree<>();
+  }
+
+  // Nodes that were not created by this tree (setRoot) only know their own interval
+  @SuppressWarnings("unchecked")
+  static <T extends Comparable<T>> T maxOf(Node<Interval<T>, ?> node) {
+    return (node instanceof MaxNode) ? ((MaxNode<T, ?>) node).max : node.data.getKey().getHigh();
+  }
+
+  public void insertNode(T low, T high, V value) { insertNode(new Pair<>(new Interval<>(low, high), value)); }
+
+  /** Greatest high endpoint of all intervals, or null if the tree is empty. */
+  public T maxEndpoint() { return (getRoot() == null) ? null : maxOf(getRoot()); }
+
+  // -- Queries ------------------------------------------------------------------------------------
+
+  /** Some node whose interval overlaps [lo, hi], or null; O(log n). */
+  public Node<Interval<T>, V> anyOverlapping(T lo, T hi) {
+    Node<Interval<T>, V> node = getRoot();
+    while (node != null && !node.data.getKey().overlaps(lo, hi)) {
+      // If the left subtree reaches lo but has no overlap, nothing to the right has one either
+      if (node.left != null && maxOf(node.left).compareTo(lo) >= 0) {
+        node = node.left;
+      } else {
+        node = node.right;
+      }
+    }
+    return node;
+  }
+
+  /** Every interval overlapping [lo, hi], in key order; empty if {@code lo > hi}. */
+  public Collection<Pair<Interval<T>, V>> overlapping(T lo, T hi) {
+    ArrayList<Pair<Interval<T>, V>> result = new ArrayList<>();
+    forEachOverlapping(lo, hi, result::add);
+    return result;
+  }
+
+  /** Every interval containing {@code point}, in key order. */
+  public Collection<Pair<Interval<T>, V>> stabbing(T point) { return overlapping(point, point); }
+
+  public void forEachOverlapping(T lo, T hi, Consumer<Pair<Interval<T>, V>> action) {
+    if (lo.compareTo(hi) > 0) {
+      return;
+    }
+
+    ArrayDeque<Node<Interval<T>, V>> stack = new ArrayDeque<>();
+    Node<Interval<T>, V> node = getRoot();
+    while (true) {
+      // Subtrees ending before lo hold no overlap
+      while (node != null && maxOf(node).compareTo(lo) >= 0) {
+        stack.push(node);
+        node = node.left;
+      }
+      if (stack.isEmpty()) {
+        return;
+      }
+
+      node = stack.pop();
+      Interval<T> interval = node.data.getKey();
+      if (interval.getLow().compareTo(hi) > 0) {
+        // This and every later interval start after hi
+        return;
+      }
+      if (interval.getHigh().compareTo(lo) >= 0) {
+        action.accept(node.data);
+      }
+      node = node.right;
+    }
+  }
+}
@@ -0,0 +1,164 @@
+package com.S1A4.Tree;
+
+
+import java.util.Arrays;
+import java.util.Optional;
+
+/**
+ * {@link RedBlackTree} specialized for {@code long} keys. Nodes are slots in parallel arrays
+ * (key, value, left, right, parent, color) linked by int indexes; the balancing is that of
+ * {@link SlotRedBlackTree}. Freed slots are recycled, so insert/search/delete allocate nothing
+ * except when the arrays grow.
+ * <p>
+ * The root is always black, as in CLRS. RedBlackTree keeps its original rule that the root may
+ * be red. {@link IntRedBlackTree} is this tree with widened keys.
+ */
+public class LongRedBlackTree<V> extends SlotRedBlackTree {
+
+  private static final int DEFAULT_CAPACITY = 16;
+
+  private long[] keys;
+  private Object[] values;
+  private int[] left, right, parent;
+  private boolean[] color;
+
+  public LongRedBlackTree() { this(DEFAULT_CAPACITY); }
+
+  public LongRedBlackTree(int initialCapacity) {
+    if (initialCapacity < 0) {
+      throw new IllegalArgumentException("Illegal initial capacity: " + initialCapacity);
+    }
+    int slots = initialCapacity + 1;
+    keys = new long[slots];
+    values = new Object[slots];
+    left = new int[slots];
+    right = new int[slots];
+    parent = new int[slots];
+    color = new boolean[slots];
+    color[NIL] = BLACK;
+  }
+
+  public int getRoot() { return root; }
+
+  public long keyAt(int node) { return keys[node]; }
+
+  @SuppressWarnings("unchecked")
+  public V valueAt(int node) { return (V) values[node]; }
+
+  // -- Search -------------------------------------------------------------------------------------
+
+  /** Returns the slot holding {@code key}, or {@link #NIL}. */
+  public int searchNode(long key) {
+    int node = root;
+    while (node != NIL) {
+      long nodeKey = keys[node];
+      if (key < nodeKey) {
+        node = left[node];
+      } else if (key > nodeKey) {
+        node = right[node];
+      } else {
+        return node;
+      }
+    }
+    return NIL;
+  }
+
+  public boolean contains(long key) { return searchNode(key) != NIL; }
+
+  public Optional<V> get(long key) {
+    int node = searchNode(key);
+    return (node != NIL) ? Optional.of(valueAt(node)) : Optional.empty();
+  }
+
+  /** Allocation-free variant of {@link #get(long)}. */
+  public V getOrDefault(long key, V defaultValue) {
+    int node = searchNode(key);
+    return (node != NIL) ? valueAt(node) : defaultValue;
+  }
+
+  // -- Updates ------------------------------------------------------------------------------------
+
+  public void insertNode(long key, V value) {
+    int node = root;
+    int nodeParent = NIL;
+    boolean isLeft = false;
+
+    while (node != NIL) {
+      nodeParent = node;
+      long nodeKey = keys[node];
+      if (key < nodeKey) {
+        node = left[node];
+        isLeft = true;
+      } else if (key > nodeKey) {
+        node = right[node];
+        isLeft = false;
+      } else {
+        throw new IllegalArgumentException("BST already contains a node with key " + key);
+      }
+    }
+
+    int newNode = allocate();
+    keys[newNode] = key;
+    values[newNode] = value;
+    link(newNode, nodeParent, isLeft);
+  }
+
+  /** Removes {@code key}; returns false if it was not present. */
+  public boolean deleteNode(long key) {
+    int node = searchNode(key);
+    if (node == NIL) {
+      return false;
+    }
+    unlink(node);
+    return true;
+  }
+
+  // -- Slot storage -------------------------------------------------------------------------------
+
+  @Override
+  int left(int node) { return left[node]; }
+
+  @Override
+  int right(int node) { return right[node]; }
+
+  @Override
+  int parent(int node) { return parent[node]; }
+
+  @Override
+  boolean color(int node) { return color[node]; }
+
+  @Override
+  void setLeft(int node, int child) { left[node] = child; }
+
+  @Override
+  void setRight(int node, int child) { right[node] = child; }
+
+  @Override
+  void setParent(int node, int nodeParent) { parent[node] = nodeParent; }
+
+  @Override
+  void setColor(int node, boolean color) { this.color[node] = color; }
+
+  @Override
+  int capacity() { return keys.length; }
+
+  @Override
+  void release(int node) {
+    values[node] = null;
+    super.release(node);
+  }
+
+  @Override
+  void grow() {
+    int newLength = keys.length + Math.max(keys.length >> 1, DEFAULT_CAPACITY);
+    if (newLength < 0) {
+      throw new IllegalStateException("Tree is full");
+    }
+    keys = Arrays.copyOf(keys, newLength);
+    values = Arrays.copyOf(values, newLength);
+    left = Arrays.copyOf(left, newLength);
+    right = Arrays.copyOf(right, newLength);
+    parent = Arrays.copyOf(parent, newLength);
+    color = Arrays.copyOf(color, newLength);
+  }
+}
@@ -0,0 +1,304 @@
+package com.S1A4.Tree;
+
+
+import com.S1A4.Codec.Serializer;
+import com.S1A4.Pair;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Optional;
+import java.util.Queue;
+
+/**
+ * Read-only {@link RedBlackTree} snapshot file, opened with {@link FileChannel#map} and searched
+ * directly on the mapped pages. File layout (big-endian):
+ *
+ * <pre>
+ *   header, 32 bytes:
+ *     int   magic         0x52425431 ("RBT1")
+ *     int   version       1
+ *     int   nodeCount
+ *     int   keySize       fixed key width in bytes
+ *     int   valueSize     fixed value width in bytes
+ *     int   recordSize    9 + keySize + valueSize
+ *     8 bytes reserved
+ *   nodeCount records in level order, the root is record 0:
+ *     int   left          record index of the left child, -1 if none
+ *     int   right         record index of the right child, -1 if none
+ *     byte  color         0 = red, 1 = black
+ *     key   (keySize bytes)
+ *     value (valueSize bytes)
+ * </pre>
+ *
+ * Keys and values need fixed-width serializers. Opening checks the file length and reads the
+ * child links of every record once, so a truncated or corrupt file fails there with an
+ * IOException rather than in a lookup. Lookups are safe from several threads.
+ */
+public class MappedRedBlackTree<K extends Comparable<K>, V> implements AutoCloseable {
+
+  static final int MAGIC = 0x52425431;
+  static final int VERSION = 1;
+  static final int HEADER_SIZE = 32;
+
+  private static final int LEFT = 0;
+  private static final int RIGHT = 4;
+  private static final int COLOR = 8;
+  private static final int KEY = 9;
+  private static final int NO_CHILD = -1;
+
+  private final FileChannel channel;
+  private final Serializer<K> keySerializer;
+  private final Serializer<V> valueSerializer;
+  private final int nodeCount;
+  private final int recordSize;
+  private final int valueOffset;
+  private final int regionShift;
+  private final int regionMask;
+  private final MappedByteBuffer[] regions;
+
+  private MappedRedBlackTree(FileChannel channel, Serializer<K> keySerializer, Serializer<V> valueSerializer)
+          throws IOException {
+    this.channel = channel;
+    this.keySerializer = keySerializer;
+    this.valueSerializer = valueSerializer;
+
+    ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+    int read = 0;
+    while (header.hasRemaining() && read >= 0) {
+      read = channel.read(header, header.position());
+    }
+    header.flip();
+    if (header.remaining() < HEADER_SIZE || header.getInt() != MAGIC) {
+      throw new IOException("Not a red-black tree snapshot");
+    }
+    if (header.getInt() != VERSION) {
+      throw new IOException("Unsupported snapshot version");
+    }
+    nodeCount = header.getInt();
+    int keySize = header.getInt();
+    int valueSize = header.getInt();
+    recordSize = header.getInt();
+    if (keySize != keySerializer.fixedSize() || valueSize != valueSerializer.fixedSize()
+            || recordSize != KEY + keySize + valueSize) {
+      throw new IOException("Snapshot was written with different key/value serializers");
+    }
+    if (nodeCount < 0 || channel.size() < HEADER_SIZE + (long) nodeCount * recordSize) {
+      throw new IOException("Truncated snapshot: " + nodeCount + " records need "
+              + (HEADER_SIZE + (long) nodeCount * recordSize) + " bytes, the file has " + channel.size());
+    }
+    valueOffset = KEY + keySize;
+
+    int regionRecords = Integer.highestOneBit(Integer.MAX_VALUE / recordSize);
+    regionShift = Integer.numberOfTrailingZeros(regionRecords);
+    regionMask = regionRecords - 1;
+
+    int regionCount = (int) (((long) nodeCount + regionRecords - 1) >>> regionShift);
+    regions = new MappedByteBuffer[regionCount];
+    for (int i = 0; i < regionCount; i++) {
+      long first = (long) i << regionShift;
+      long records = Math.min(regionRecords, nodeCount - first);
+      regions[i] = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE + first * recordSize, records * recordSize);
+    }
+    validateLinks();
+  }
+
+  // save() numbers the children in level order, so every link must be the next unused index.
+  // That rules out links past the end, shared children and cycles in one pass.
+  private void validateLinks() throws IOException {
+    int nextIndex = 1;
+    for (int index = 0; index < nodeCount; index++) {
+      ByteBuffer region = regions[index >>> regionShift];
+      int offset = (index & regionMask) * recordSize;
+      for (int child : new int[] {region.getInt(offset + LEFT), region.getInt(offset + RIGHT)}) {
+        if (child != NO_CHILD && child != nextIndex++) {
+          throw new IOException("Corrupt snapshot: record " + index + " links to record " + child);
+        }
+      }
+      if ((region.get(offset + COLOR) & ~1) != 0) {
+        throw new IOException("Corrupt snapshot: record " + index + " has no valid color");
+      }
+    }
+    if (nodeCount > 0 && nextIndex != nodeCount) {
+      throw new IOException("Corrupt snapshot: " + nextIndex + " of " + nodeCount + " records are linked");
+    }
+  }
+
+  // -- Writing ------------------------------------------------------------------------------------
+
+  /**
+   * Writes {@code tree} to {@code file} in the layout described above. The snapshot is written
+   * to a sibling temporary file that then replaces {@code file} atomically, so a crash never
+   * leaves a half-written snapshot and readers that still have the old file mapped keep their
+   * copy.
+   */
+  public static <K extends Comparable<K>, V> void save(RedBlackTree<K, V> tree, Path file,
+                                                       Serializer<K> keySerializer,
+                                                       Serializer<V> valueSerializer) throws IOException {
+    int keySize = keySerializer.fixedSize();
+    int valueSize = valueSerializer.fixedSize();
+    if (keySize < 0 || valueSize < 0) {
+      throw new IllegalArgumentException("Snapshots need fixed-width key and value serializers");
+    }
+    int recordSize = KEY + keySize + valueSize;
+
+    Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+    try (FileChannel out = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING)) {
+      ByteBuffer buffer = ByteBuffer.allocateDirect(Math.max(1 << 16, recordSize));
+      out.position(HEADER_SIZE);
+
+      // Level order: children get their record index when they are queued
+      int nodeCount = 0;
+      int nextIndex = 1;
+      Queue<Node<K, V>> queue = new ArrayDeque<>();
+      if (tree.getRoot() != null) {
+        queue.add(tree.getRoot());
+      }
+      while (!queue.isEmpty()) {
+        Node<K, V> node = queue.poll();
+        if (buffer.remaining() < recordSize) {
+          writeFully(out, buffer);
+        }
+
+        int left = NO_CHILD, right = NO_CHILD;
+        if (node.left != null) {
+          left = nextIndex++;
+          queue.add(node.left);
+        }
+        if (node.right != null) {
+          right = nextIndex++;
+          queue.add(node.right);
+        }
+        buffer.putInt(left).putInt(right).put(node.color == RedBlackTree.BLACK ? (byte) 1 : (byte) 0);
+        keySerializer.write(buffer, node.data.getKey());
+        valueSerializer.write(buffer, node.data.getValue());
+        nodeCount++;
+      }
+      writeFully(out, buffer);
+
+      buffer.putInt(MAGIC).putInt(VERSION).putInt(nodeCount)
+              .putInt(keySize).putInt(valueSize).putInt(recordSize).putLong(0L);
+      out.position(0);
+      writeFully(out, buffer);
+      out.force(true);
+    } catch (IOException | RuntimeException e) {
+      Files.deleteIfExists(temporary);
+      throw e;
+    }
+    Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE);
+    syncDirectory(file.toAbsolutePath().getParent());
+  }
+
+  // Makes the rename durable; not every platform can open a directory, which is fine
+  private static void syncDirectory(Path directory) {
+    try (FileChannel dir = FileChannel.open(directory, StandardOpenOption.READ)) {
+      dir.force(true);
+    } catch (IOException ignored) {
+    }
+  }
+
+  private static void writeFully(FileChannel out, ByteBuffer buffer) throws IOException {
+    buffer.flip();
+    while (buffer.hasRemaining()) {
+      out.write(buffer);
+    }
+    buffer.clear();
+  }
+
+  // -- Reading ------------------------------------------------------------------------------------
+
+  /** Maps a snapshot written by {@link #save}; nothing is deserialized up front. */
+  public static <K extends Comparable<K>, V> MappedRedBlackTree<K, V> open(Path file,
+                                                                          Serializer<K> keySerializer,
+                                                                          Serializer<V> valueSerializer)
+          throws IOException {
+    FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+    try {
+      return new MappedRedBlackTree<>(channel, keySerializer, valueSerializer);
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  public int size() { return nodeCount; }
+
+  public boolean contains(K key) { return get(key).isPresent(); }
+
+  public Optional<V> get(K key) {
+    ByteBuffer view = null;
+    int viewRegion = -1;
+
+    int node = (nodeCount > 0) ? 0 : NO_CHILD;
+    while (node != NO_CHILD) {
+      // Serializers move the position, so every lookup reads through its own view
+      int region = node >>> regionShift;
+      if (region != viewRegion) {
+        view = regions[region].duplicate();
+        viewRegion = region;
+      }
+      int offset = (node & regionMask) * recordSize;
+
+      view.position(offset + KEY);
+      int cmp = key.compareTo(keySerializer.read(view));
+      if (cmp < 0) {
+        node = view.getInt(offset + LEFT);
+      } else if (cmp > 0) {
+        node = view.getInt(offset + RIGHT);
+      } else {
+        view.position(offset + valueOffset);
+        return Optional.of(valueSerializer.read(view));
+      }
+    }
+    return Optional.empty();
+  }
+
+  /** Rebuilds an on-heap copy with the same shape and colors. */
+  public RedBlackTree<K, V> load() {
+    RedBlackTree<K, V> tree = new RedBlackTree<>();
+    if (nodeCount == 0) {
+      return tree;
+    }
+
+    // Level order again, so every record's parent was created before the record itself
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    Node<K, V>[] nodes = (Node<K, V>[]) new Node[nodeCount];
+    nodes[0] = new Node<>(null);
+    for (int index = 0; index < nodeCount; index++) {
+      ByteBuffer view = regions[index >>> regionShift].duplicate();
+      int offset = (index & regionMask) * recordSize;
+
+      view.position(offset + KEY);
+      K key = keySerializer.read(view);
+      view.position(offset + valueOffset);
+      Node<K, V> node = nodes[index];
+      node.data = new Pair<>(key, valueSerializer.read(view));
+      node.color = view.get(offset + COLOR) != 0 ? RedBlackTree.BLACK : RedBlackTree.RED;
+
+      int left = view.getInt(offset + LEFT);
+      int right = view.getInt(offset + RIGHT);
+      if (left != NO_CHILD) {
+        node.left = nodes[left] = new Node<>(null);
+        node.left.parent = node;
+      }
+      if (right != NO_CHILD) {
+        node.right = nodes[right] = new Node<>(null);
+        node.right.parent = node;
+      }
+    }
+    tree.setRoot(nodes[0]);
+    return tree;
+  }
+
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+}
@@ -0,0 +1,224 @@
+package com.S1A4.Tree;
+
+
+import com.S1A4.Codec.Serializer;
+import com.S1A4.Pair;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.Optional;
+
+/**
+ * {@link RedBlackTree} whose nodes live in direct (off-heap) memory, so the garbage collector
+ * never scans them. Every node is a fixed-width slot in one of several direct buffers:
+ *
+ * <pre>
+ *   offset 0   int   left slot
+ *   offset 4   int   right slot
+ *   offset 8   int   parent slot
+ *   offset 12  byte  color (0 = red, 1 = black)
+ *   offset 13  key   (keySerializer.fixedSize() bytes)
+ *   ...        value (valueSerializer.fixedSize() bytes)
+ * </pre>
+ *
+ * The balancing is that of {@link SlotRedBlackTree}; slot 0 is the shared black NIL sentinel and
+ * freed slots are recycled. Keys and values need fixed-width serializers.
+ * {@link #searchNode(Comparable)} returns a detached on-heap copy.
+ */
+public class OffHeapRedBlackTree<K extends Comparable<K>, V> extends SlotRedBlackTree
+        implements BinarySearchTree<K, V> {
+
+  private static final int LEFT = 0;
+  private static final int RIGHT = 4;
+  private static final int PARENT = 8;
+  private static final int COLOR = 12;
+  private static final int HEADER = 13;
+
+  private static final int DEFAULT_CHUNK_SLOTS = 1 << 16;
+
+  private final Serializer<K> keySerializer;
+  private final Serializer<V> valueSerializer;
+  private final int valueOffset;
+  private final int slotSize;
+  private final int chunkShift;
+  private final int chunkMask;
+
+  private ByteBuffer[] chunks = new ByteBuffer[0];
+
+  public OffHeapRedBlackTree(Serializer<K> keySerializer, Serializer<V> valueSerializer) {
+    this(keySerializer, valueSerializer, DEFAULT_CHUNK_SLOTS);
+  }
+
+  /**
+   * @param slotsPerChunk nodes per direct buffer; rounded up to a power of two
+   */
+  public OffHeapRedBlackTree(Serializer<K> keySerializer, Serializer<V> valueSerializer, int slotsPerChunk) {
+    if (keySerializer.fixedSize() < 0 || valueSerializer.fixedSize() < 0) {
+      throw new IllegalArgumentException("Off-heap nodes need fixed-width key and value serializers");
+    }
+    this.keySerializer = keySerializer;
+    this.valueSerializer = valueSerializer;
+    this.valueOffset = HEADER + keySerializer.fixedSize();
+    this.slotSize = valueOffset + valueSerializer.fixedSize();
+
+    int maxChunkSlots = Integer.highestOneBit(Integer.MAX_VALUE / slotSize);
+    int chunkSlots = Math.min(Math.max(Integer.highestOneBit(Math.max(slotsPerChunk, 2) - 1) << 1, 2), maxChunkSlots);
+    this.chunkShift = Integer.numberOfTrailingZeros(chunkSlots);
+    this.chunkMask = chunkSlots - 1;
+
+    grow();
+    setColor(NIL, BLACK);
+  }
+
+  /** Off-heap bytes currently reserved by this tree. */
+  public long reservedBytes() { return (long) chunks.length * (chunkMask + 1) * slotSize; }
+
+  /** Drops all nodes; the direct buffers are released once they are garbage collected. */
+  public void clear() {
+    chunks = new ByteBuffer[0];
+    reset();
+    grow();
+    setColor(NIL, BLACK);
+  }
+
+  // -- Search -------------------------------------------------------------------------------------
+
+  @Override
+  public Node<K, V> searchNode(K key) {
+    int node = findSlot(key);
+    if (node == NIL) {
+      return null;
+    }
+    Node<K, V> copy = new Node<>(new Pair<>(readKey(node), readValue(node)));
+    copy.color = color(node);
+    return copy;
+  }
+
+  public boolean contains(K key) { return findSlot(key) != NIL; }
+
+  public Optional<V> get(K key) {
+    int node = findSlot(key);
+    return (node != NIL) ? Optional.of(readValue(node)) : Optional.empty();
+  }
+
+  private int findSlot(K key) {
+    int node = root;
+    while (node != NIL) {
+      int cmp = key.compareTo(readKey(node));
+      if (cmp < 0) {
+        node = left(node);
+      } else if (cmp > 0) {
+        node = right(node);
+      } else {
+        return node;
+      }
+    }
+    return NIL;
+  }
+
+  // -- Updates ------------------------------------------------------------------------------------
+
+  @Override
+  public void insertNode(Pair<K, V> toAdd) {
+    K key = toAdd.getKey();
+    int node = root;
+    int nodeParent = NIL;
+    boolean isLeft = false;
+
+    while (node != NIL) {
+      nodeParent = node;
+      int cmp = key.compareTo(readKey(node));
+      if (cmp < 0) {
+        node = left(node);
+        isLeft = true;
+      } else if (cmp > 0) {
+        node = right(node);
+        isLeft = false;
+      } else {
+        throw new IllegalArgumentException("BST already contains a node with key " + key);
+      }
+    }
+
+    int newNode = allocate();
+    writeKey(newNode, key);
+    writeValue(newNode, toAdd.getValue());
+    link(newNode, nodeParent, isLeft);
+  }
+
+  @Override
+  public Optional<V> deleteNode(K key) {
+    int node = findSlot(key);
+    if (node == NIL) {
+      return Optional.empty();
+    }
+    V deletedValue = readValue(node);
+    unlink(node);
+    return Optional.of(deletedValue);
+  }
+
+  // -- Slot access --------------------------------------------------------------------------------
+
+  private ByteBuffer chunk(int node) { return chunks[node >>> chunkShift]; }
+
+  private int offset(int node) { return (node & chunkMask) * slotSize; }
+
+  @Override
+  int left(int node) { return chunk(node).getInt(offset(node) + LEFT); }
+
+  @Override
+  int right(int node) { return chunk(node).getInt(offset(node) + RIGHT); }
+
+  @Override
+  int parent(int node) { return chunk(node).getInt(offset(node) + PARENT); }
+
+  @Override
+  boolean color(int node) { return chunk(node).get(offset(node) + COLOR) != 0; }
+
+  @Override
+  void setLeft(int node, int child) { chunk(node).putInt(offset(node) + LEFT, child); }
+
+  @Override
+  void setRight(int node, int child) { chunk(node).putInt(offset(node) + RIGHT, child); }
+
+  @Override
+  void setParent(int node, int nodeParent) { chunk(node).putInt(offset(node) + PARENT, nodeParent); }
+
+  @Override
+  void setColor(int node, boolean color) {
+    chunk(node).put(offset(node) + COLOR, color == BLACK ? (byte) 1 : (byte) 0);
+  }
+
+  K readKey(int node) {
+    ByteBuffer chunk = chunk(node);
+    chunk.position(offset(node) + HEADER);
+    return keySerializer.read(chunk);
+  }
+
+  private V readValue(int node) {
+    ByteBuffer chunk = chunk(node);
+    chunk.position(offset(node) + valueOffset);
+    return valueSerializer.read(chunk);
+  }
+
+  private void writeKey(int node, K key) {
+    ByteBuffer chunk = chunk(node);
+    chunk.position(offset(node) + HEADER);
+    keySerializer.write(chunk, key);
+  }
+
+  private void writeValue(int node, V value) {
+    ByteBuffer chunk = chunk(node);
+    chunk.position(offset(node) + valueOffset);
+    valueSerializer.write(chunk, value);
+  }
+
+  @Override
+  int capacity() { return (int) Math.min((long) chunks.length * (chunkMask + 1), Integer.MAX_VALUE); }
+
+  @Override
+  void grow() {
+    chunks = Arrays.copyOf(chunks, chunks.length + 1);
+    chunks[chunks.length - 1] = ByteBuffer.allocateDirect((chunkMask + 1) * slotSize).order(ByteOrder.nativeOrder());
+  }
+}
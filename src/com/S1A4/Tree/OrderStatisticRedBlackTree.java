@@ -0,0 +1,106 @@
+package com.S1A4.Tree;
+
+
+import com.S1A4.Pair;
+
+/**
+ * {@link RedBlackTree} whose nodes also store the size of their subtree. The sizes are kept up
+ * to date by insertNode, deleteNode and the rotations, which makes rank, select and range
+ * counts O(log n).
+ */
+public class OrderStatisticRedBlackTree<K extends Comparable<K>, V> extends RedBlackTree<K, V> {
+
+  static final class SizedNode<K extends Comparable<K>, V> extends Node<K, V> {
+    int size = 1;
+
+    SizedNode(Pair<K, V> data) {
+      super(data);
+    }
+  }
+
+  @Override
+  protected Node<K, V> newNode(Pair<K, V> pair) {
+    return new SizedNode<>(pair);
+  }
+
+  @Override
+  protected void refresh(Node<K, V> node) {
+    if (node instanceof SizedNode) {
+      ((SizedNode<K, V>) node).size = 1 + sizeOf(node.left) + sizeOf(node.right);
+    }
+  }
+
+  @Override
+  protected void afterStructureChange(Node<K, V> node) {
+    for (; node != null; node = node.parent) {
+      refresh(node);
+    }
+  }
+
+  @Override
+  protected RedBlackTree<K, V> newTree() {
+    return new OrderStatisticRedBlackTree<>();
+  }
+
+  @Override
+  protected int countNodes() {
+    return sizeOf(getRoot());
+  }
+
+  static int sizeOf(Node<?, ?> node) {
+    return (node instanceof SizedNode) ? ((SizedNode<?, ?>) node).size : 0;
+  }
+
+  /** Number of keys strictly less than {@code key}. */
+  public int rank(K key) { return countBelow(key, false); }
+
+  /**
+   * Node holding the {@code index}-th smallest key, counting from 0.
+   *
+   * @throws IndexOutOfBoundsException if index is not in [0, size)
+   */
+  public Node<K, V> select(int index) {
+    if (index < 0 || index >= size()) {
+      throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size());
+    }
+
+    Node<K, V> node = getRoot();
+    while (true) {
+      int leftSize = sizeOf(node.left);
+      if (index < leftSize) {
+        node = node.left;
+      } else if (index > leftSize) {
+        index -= leftSize + 1;
+        node = node.right;
+      } else {
+        return node;
+      }
+    }
+  }
+
+  /** Number of keys with {@code lo <= key <= hi}. */
+  public int countBetween(K lo, K hi) {
+    if (lo.compareTo(hi) > 0) {
+      return 0;
+    }
+    return countBelow(hi, true) - countBelow(lo, false);
+  }
+
+  private int countBelow(K key, boolean inclusive) {
+    int count = 0;
+    Node<K, V> node = getRoot();
+    while (node != null) {
+      int cmp = key.compareTo(node.data.getKey());
+      if (cmp < 0 || (cmp == 0 && !inclusive)) {
+        node = node.left;
+      } else {
+        count += sizeOf(node.left) + 1;
+        if (cmp == 0) {
+          return count;
+        }
+        node = node.right;
+      }
+    }
+    return count;
+  }
+}
@@ -0,0 +1,314 @@
+package com.S1A4.Tree;
+
+
+import com.S1A4.Pair;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+
+/**
+ * Immutable red-black tree. {@link #insert} and {@link #delete} copy only the path from the root
+ * to the changed node and return a new version that shares every other node with this one, so
+ * old versions stay valid and {@link #snapshot()} is O(1).
+ * <p>
+ * Nodes are never modified once a version is returned and their parent links are unused.
+ * Insertion follows Okasaki's balancing, deletion follows Kahrs' algorithm.
+ */
+public final class PersistentRedBlackTree<K extends Comparable<K>, V> implements Iterable<Pair<K, V>> {
+
+  static final boolean RED = RedBlackTree.RED;
+  static final boolean BLACK = RedBlackTree.BLACK;
+
+  private static final PersistentRedBlackTree<?, ?> EMPTY = new PersistentRedBlackTree<>(null, 0);
+
+  private final Node<K, V> root;
+  private final int size;
+
+  private PersistentRedBlackTree(Node<K, V> root, int size) {
+    this.root = root;
+    this.size = size;
+  }
+
+  @SuppressWarnings("unchecked")
+  public static <K extends Comparable<K>, V> PersistentRedBlackTree<K, V> empty() {
+    return (PersistentRedBlackTree<K, V>) EMPTY;
+  }
+
+  /** Builds a tree of {@code size} pairs in strictly ascending key order, in O(n). */
+  public static <K extends Comparable<K>, V> PersistentRedBlackTree<K, V> fromSorted(Iterator<Pair<K, V>> pairs,
+                                                                                   int size) {
+    RedBlackTree<K, V> tree = new RedBlackTree<>();
+    tree.buildFromSorted(pairs, size);
+    // Nothing else references these nodes, so they won't change anymore
+    return new PersistentRedBlackTree<>(tree.getRoot(), size);
+  }
+
+  public Node<K, V> getRoot() { return root; }
+
+  public int size() { return size; }
+
+  public boolean isEmpty() { return size == 0; }
+
+  /** This version itself: it can never change. */
+  public PersistentRedBlackTree<K, V> snapshot() { return this; }
+
+  // -- Search -------------------------------------------------------------------------------------
+
+  public Node<K, V> searchNode(K key) {
+    Node<K, V> node = root;
+    while (node != null) {
+      int cmp = key.compareTo(node.data.getKey());
+      if (cmp < 0) {
+        node = node.left;
+      } else if (cmp > 0) {
+        node = node.right;
+      } else {
+        return node;
+      }
+    }
+    return null;
+  }
+
+  public boolean contains(K key) { return (searchNode(key) != null); }
+
+  public Optional<V> get(K key) {
+    Node<K, V> node = searchNode(key);
+    if (node != null) {
+      return Optional.of(node.data.getValue());
+    }
+    return Optional.empty();
+  }
+
+  // -- Insertion ----------------------------------------------------------------------------------
+
+  /**
+   * @throws IllegalArgumentException if the key is already present, like {@link RedBlackTree#insertNode}
+   */
+  public PersistentRedBlackTree<K, V> insert(Pair<K, V> toAdd) {
+    return new PersistentRedBlackTree<>(blacken(insert(root, toAdd)), size + 1);
+  }
+
+  /** Inserts {@code pair}, or replaces the value of its key without changing the shape. */
+  public PersistentRedBlackTree<K, V> put(Pair<K, V> pair) {
+    if (!contains(pair.getKey())) {
+      return insert(pair);
+    }
+    return new PersistentRedBlackTree<>(replace(root, pair), size);
+  }
+
+  // Copies the path to the node of the key, which must be present
+  private static <K extends Comparable<K>, V> Node<K, V> replace(Node<K, V> node, Pair<K, V> pair) {
+    int cmp = pair.getKey().compareTo(node.data.getKey());
+    if (cmp < 0) {
+      return node(node.color, node.data, replace(node.left, pair), node.right);
+    } else if (cmp > 0) {
+      return node(node.color, node.data, node.left, replace(node.right, pair));
+    }
+    return node(node.color, pair, node.left, node.right);
+  }
+
+  private static <K extends Comparable<K>, V> Node<K, V> insert(Node<K, V> node, Pair<K, V> toAdd) {
+    if (node == null) {
+      return node(RED, toAdd, null, null);
+    }
+
+    int cmp = toAdd.getKey().compareTo(node.data.getKey());
+    if (cmp < 0) {
+      return balance(node.color, node.data, insert(node.left, toAdd), node.right);
+    } else if (cmp > 0) {
+      return balance(node.color, node.data, node.left, insert(node.right, toAdd));
+    } else {
+      throw new IllegalArgumentException("BST already contains a node with key " + toAdd.getKey());
+    }
+  }
+
+  // Okasaki: a black node with a red child that has a red child becomes a red node with two
+  // black children
+  private static <K extends Comparable<K>, V> Node<K, V> balance(boolean color, Pair<K, V> data,
+                                                                 Node<K, V> left, Node<K, V> right) {
+    if (color == BLACK) {
+      if (isRed(left) && isRed(left.left)) {
+        return node(RED, left.data, blacken(left.left), node(BLACK, data, left.right, right));
+      }
+      if (isRed(left) && isRed(left.right)) {
+        return node(RED, left.right.data, node(BLACK, left.data, left.left, left.right.left),
+                node(BLACK, data, left.right.right, right));
+      }
+      if (isRed(right) && isRed(right.left)) {
+        return node(RED, right.left.data, node(BLACK, data, left, right.left.left),
+                node(BLACK, right.data, right.left.right, right.right));
+      }
+      if (isRed(right) && isRed(right.right)) {
+        return node(RED, right.data, node(BLACK, data, left, right.left), blacken(right.right));
+      }
+    }
+    return node(color, data, left, right);
+  }
+
+  // -- Deletion -----------------------------------------------------------------------------------
+
+  /** Returns this version unchanged if the key is not present. */
+  public PersistentRedBlackTree<K, V> delete(K key) {
+    if (!contains(key)) {
+      return this;
+    }
+    return new PersistentRedBlackTree<>(blacken(delete(root, key)), size - 1);
+  }
+
+  private static <K extends Comparable<K>, V> Node<K, V> delete(Node<K, V> node, K key) {
+    int cmp = key.compareTo(node.data.getKey());
+    if (cmp < 0) {
+      Node<K, V> left = delete(node.left, key);
+      return isBlack(node.left)
+              ? balanceLeft(node.data, left, node.right)
+              : node(RED, node.data, left, node.right);
+    } else if (cmp > 0) {
+      Node<K, V> right = delete(node.right, key);
+      return isBlack(node.right)
+              ? balanceRight(node.data, node.left, right)
+              : node(RED, node.data, node.left, right);
+    } else {
+      return append(node.left, node.right);
+    }
+  }
+
+  // The left subtree lost one black level
+  private static <K extends Comparable<K>, V> Node<K, V> balanceLeft(Pair<K, V> data, Node<K, V> left,
+                                                                     Node<K, V> right) {
+    if (isRed(left)) {
+      return node(RED, data, blacken(left), right);
+    } else if (isBlack(right)) {
+      return rebalance(data, left, redden(right));
+    } else if (isRed(right) && isBlack(right.left)) {
+      return node(RED, right.left.data, node(BLACK, data, left, right.left.left),
+              rebalance(right.data, right.left.right, redden(right.right)));
+    }
+    throw new IllegalStateException("Red-black invariant violated");
+  }
+
+  // The right subtree lost one black level
+  private static <K extends Comparable<K>, V> Node<K, V> balanceRight(Pair<K, V> data, Node<K, V> left,
+                                                                      Node<K, V> right) {
+    if (isRed(right)) {
+      return node(RED, data, left, blacken(right));
+    } else if (isBlack(left)) {
+      return rebalance(data, redden(left), right);
+    } else if (isRed(left) && isBlack(left.right)) {
+      return node(RED, left.right.data, rebalance(left.data, redden(left.left), left.right.left),
+              node(BLACK, data, left.right.right, right));
+    }
+    throw new IllegalStateException("Red-black invariant violated");
+  }
+
+  private static <K extends Comparable<K>, V> Node<K, V> rebalance(Pair<K, V> data, Node<K, V> left,
+                                                                   Node<K, V> right) {
+    if (isRed(left)) {
+      if (isRed(right)) {
+        return node(RED, data, blacken(left), blacken(right));
+      } else if (isRed(left.left)) {
+        return node(RED, left.data, blacken(left.left), node(BLACK, data, left.right, right));
+      } else if (isRed(left.right)) {
+        return node(RED, left.right.data, node(BLACK, left.data, left.left, left.right.left),
+                node(BLACK, data, left.right.right, right));
+      }
+    } else if (isRed(right)) {
+      if (isRed(right.right)) {
+        return node(RED, right.data, node(BLACK, data, left, right.left), blacken(right.right));
+      } else if (isRed(right.left)) {
+        return node(RED, right.left.data, node(BLACK, data, left, right.left.left),
+                node(BLACK, right.data, right.left.right, right.right));
+      }
+    }
+    return node(BLACK, data, left, right);
+  }
+
+  // Joins the two subtrees of a deleted node
+  private static <K extends Comparable<K>, V> Node<K, V> append(Node<K, V> left, Node<K, V> right) {
+    if (left == null) {
+      return right;
+    } else if (right == null) {
+      return left;
+    } else if (isRed(left) && isRed(right)) {
+      Node<K, V> middle = append(left.right, right.left);
+      if (isRed(middle)) {
+        return node(RED, middle.data, node(RED, left.data, left.left, middle.left),
+                node(RED, right.data, middle.right, right.right));
+      }
+      return node(RED, left.data, left.left, node(RED, right.data, middle, right.right));
+    } else if (isBlack(left) && isBlack(right)) {
+      Node<K, V> middle = append(left.right, right.left);
+      if (isRed(middle)) {
+        return node(RED, middle.data, node(BLACK, left.data, left.left, middle.left),
+                node(BLACK, right.data, middle.right, right.right));
+      }
+      return balanceLeft(left.data, left.left, node(BLACK, right.data, middle, right.right));
+    } else if (isRed(right)) {
+      return node(RED, right.data, append(left, right.left), right.right);
+    } else {
+      return node(RED, left.data, left.left, append(left.right, right));
+    }
+  }
+
+  // -- Traversal ----------------------------------------------------------------------------------
+
+  /** In key order; keeps the path to the next node on a stack, as there are no parent links. */
+  @Override
+  public Iterator<Pair<K, V>> iterator() {
+    return new Iterator<>() {
+      private final ArrayDeque<Node<K, V>> path = new ArrayDeque<>();
+
+      {
+        pushLeftSpine(root);
+      }
+
+      private void pushLeftSpine(Node<K, V> node) {
+        for (; node != null; node = node.left) {
+          path.push(node);
+        }
+      }
+
+      @Override
+      public boolean hasNext() { return !path.isEmpty(); }
+
+      @Override
+      public Pair<K, V> next() {
+        if (path.isEmpty()) {
+          throw new NoSuchElementException();
+        }
+        Node<K, V> node = path.pop();
+        pushLeftSpine(node.right);
+        return node.data;
+      }
+    };
+  }
+
+  // -- Node helpers -------------------------------------------------------------------------------
+
+  private static <K extends Comparable<K>, V> Node<K, V> node(boolean color, Pair<K, V> data,
+                                                              Node<K, V> left, Node<K, V> right) {
+    Node<K, V> node = new Node<>(data);
+    node.color = color;
+    node.left = left;
+    node.right = right;
+    return node;
+  }
+
+  private static <K extends Comparable<K>, V> Node<K, V> blacken(Node<K, V> node) {
+    return (node == null || node.color == BLACK) ? node : node(BLACK, node.data, node.left, node.right);
+  }
+
+  private static <K extends Comparable<K>, V> Node<K, V> redden(Node<K, V> node) {
+    return (node.color == RED) ? node : node(RED, node.data, node.left, node.right);
+  }
+
+  private static boolean isRed(Node<?, ?> node) {
+    return node != null && node.color == RED;
+  }
+
+  // Unlike RedBlackTree.isBlack, an empty subtree is not a black node here
+  private static boolean isBlack(Node<?, ?> node) {
+    return node != null && node.color == BLACK;
+  }
+}
@@ -1,34 +1,118 @@
 package com.S1A4.Tree;
 
 
+import com.S1A4.Filter.CountingBloomFilter;
 import com.S1A4.List.List;
+import com.S1A4.Metrics.TreeMetrics;
 import com.S1A4.Pair;
 
 import java.io.PrintStream;
 import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
 import java.util.Optional;
 import java.util.Queue;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
-public class RedBlackTree<K extends Comparable<K>, V> extends BaseBinaryTree<K, V> implements BinarySearchTree<K, V> {
+public class RedBlackTree<K extends Comparable<K>, V> extends BaseBinaryTree<K, V>
+        implements BinarySearchTree<K, V>, Iterable<Pair<K, V>> {
 
   static final boolean RED = false;
   static final boolean BLACK = true;
 
+  // Split and the set operations don't know the sizes of the trees they build; those are counted
+  // on the first size() call
+  private static final int UNKNOWN_SIZE = -1;
+
+  private int size = 0;
+
+  public int size() {
+    if (size == UNKNOWN_SIZE) {
+      size = countNodes();
+    }
+    return size;
+  }
+
+  // Opt-in instrumentation; every instrumented step checks for null first
+  private TreeMetrics metrics;
+
+  /** Attaches counters to this tree, or detaches them with null. */
+  public void setMetrics(TreeMetrics metrics) { this.metrics = metrics; }
+
+  public TreeMetrics getMetrics() { return metrics; }
+
+  // Optional negative-lookup filter: searches for keys it rules out skip the descent. Single
+  // inserts and deletes keep it up to date; bulk changes rebuild it.
+  private static final int MIN_FILTER_CAPACITY = 16;
+
+  private CountingBloomFilter<K> filter;
+
+  /**
+   * Puts a counting Bloom filter in front of every search, or removes it. The filter hashes
+   * {@code hashCode()} while the tree compares with {@code compareTo}, so keys must have a natural
+   * ordering consistent with equals: with BigDecimal, for example, a search for 1.0 would be
+   * ruled out although the tree holds 1.00.
+   */
+  public void setLookupFilter(boolean enabled) {
+    filter = enabled ? new CountingBloomFilter<>(MIN_FILTER_CAPACITY) : null;
+    rebuildFilter();
+  }
+
+  public boolean hasLookupFilter() { return filter != null; }
+
+  // Sized for twice the current content, so that growth rebuilds it O(log n) times
+  private void rebuildFilter() {
+    if (filter == null) {
+      return;
+    }
+    filter.reset(Math.max(MIN_FILTER_CAPACITY, 2 * size()));
+    for (Node<K, V> node = first(); node != null; node = successor(node)) {
+      filter.add(node.data.getKey());
+    }
+  }
 
   @Override
-  public Node<K, V> searchNode(K key) {
+  public void setRoot(Node<K, V> newRoot) {
+    super.setRoot(newRoot);
+    size = UNKNOWN_SIZE;
+    rebuildFilter();
+  }
 
-    Node<K, V> node = getRoot();
+  @Override
+  public Node<K, V> searchNode(K key) { return search(getRoot(), key); }
+
+  // Descends from "node" (null for an empty tree), the root of a subtree whose key range
+  // contains the key
+  private Node<K, V> search(Node<K, V> node, K key) {
+    if (filter != null && !filter.mightContain(key)) {
+      return null;
+    }
+
+    int depth = 0;
     while (node != null) {
 
-      switch (key.compareTo(node.getData().getKey())) {
-        case 0: return node;
-        case -1: node = node.left;
-        case 1: node = node.right;
+      depth++;
+      int cmp = key.compareTo(node.getData().getKey());
+      if (cmp < 0) {
+        node = node.left;
+      } else if (cmp > 0) {
+        node = node.right;
+      } else {
+        break;
       }
     }
 
-    return null;
+    if (metrics != null) {
+      metrics.descent(depth);
+    }
+    return node;
   }
 
   public boolean contains(K key) { return (searchNode(key) != null); }
@@ -41,217 +125,779 @@ public class RedBlackTree<K extends Comparable<K>, V> extends BaseBinaryTree<K,
     return Optional.empty();
   }
 
+  public Optional<V> replace(Pair<K, V> pair) {
+    Node<K, V> node = searchNode(pair.getKey());
+    if (node != null) {
+      Optional<V> oldValue = Optional.of(node.getData().getValue());
+      node.data = pair;
+      return oldValue;
+    }
+    return Optional.empty();
+  }
+
+  // -- Navigation ---------------------------------------------------------------------------------
+
+  /** Node with the greatest key less than or equal to {@code key}, or null. */
+  public Node<K, V> floor(K key) { return findNearest(key, true, true); }
+
+  /** Node with the least key greater than or equal to {@code key}, or null. */
+  public Node<K, V> ceiling(K key) { return findNearest(key, false, true); }
+
+  /** Node with the greatest key strictly less than {@code key}, or null. */
+  public Node<K, V> lower(K key) { return findNearest(key, true, false); }
+
+  /** Node with the least key strictly greater than {@code key}, or null. */
+  public Node<K, V> higher(K key) { return findNearest(key, false, false); }
+
+  public Node<K, V> first() { return (getRoot() == null) ? null : findMinimum(getRoot()); }
+
+  public Node<K, V> last() { return (getRoot() == null) ? null : findMaximum(getRoot()); }
+
+  /**
+   * Lazily iterates the pairs with {@code from <= key < to} in ascending order, following parent
+   * pointers from node to node. The tree must not be modified while iterating. Unlike
+   * {@link java.util.TreeMap#subMap}, a range with {@code from > to} is empty rather than an error.
+   */
+  public Iterator<Pair<K, V>> range(K from, K to) { return range(from, true, to, false); }
+
+  public Iterator<Pair<K, V>> range(K from, boolean fromInclusive, K to, boolean toInclusive) {
+    Node<K, V> start = fromInclusive ? ceiling(from) : higher(from);
+    return new RangeIterator<>(start, to, toInclusive);
+  }
+
+  private Node<K, V> findNearest(K key, boolean below, boolean inclusive) {
+    Node<K, V> nearest = null;
+    Node<K, V> node = getRoot();
+    while (node != null) {
+      int cmp = key.compareTo(node.data.getKey());
+      if (cmp == 0 && inclusive) {
+        return node;
+      }
+
+      // Node lies on the wanted side of the key: remember it and look for a closer one
+      if (below ? cmp > 0 : cmp < 0) {
+        nearest = node;
+        node = below ? node.right : node.left;
+      } else {
+        node = below ? node.left : node.right;
+      }
+    }
+    return nearest;
+  }
+
+  static <K extends Comparable<K>, V> Node<K, V> predecessor(Node<K, V> node) {
+    if (node.left != null) {
+      node = node.left;
+      while (node.right != null) {
+        node = node.right;
+      }
+      return node;
+    }
+
+    Node<K, V> parent = node.parent;
+    while (parent != null && node == parent.left) {
+      node = parent;
+      parent = parent.parent;
+    }
+    return parent;
+  }
+
+  static <K extends Comparable<K>, V> Node<K, V> successor(Node<K, V> node) {
+    if (node.right != null) {
+      node = node.right;
+      while (node.left != null) {
+        node = node.left;
+      }
+      return node;
+    }
+
+    Node<K, V> parent = node.parent;
+    while (parent != null && node == parent.right) {
+      node = parent;
+      parent = parent.parent;
+    }
+    return parent;
+  }
+
+  private static final class RangeIterator<K extends Comparable<K>, V> implements Iterator<Pair<K, V>> {
+    private final K to;
+    private final boolean toInclusive;
+    private Node<K, V> next;
+
+    private RangeIterator(Node<K, V> start, K to, boolean toInclusive) {
+      this.to = to;
+      this.toInclusive = toInclusive;
+      this.next = inRange(start) ? start : null;
+    }
+
+    private boolean inRange(Node<K, V> node) {
+      if (node == null) {
+        return false;
+      }
+      int cmp = node.data.getKey().compareTo(to);
+      return cmp < 0 || (cmp == 0 && toInclusive);
+    }
+
+    @Override
+    public boolean hasNext() { return next != null; }
+
+    @Override
+    public Pair<K, V> next() {
+      if (next == null) {
+        throw new NoSuchElementException();
+      }
+      Pair<K, V> pair = next.data;
+      Node<K, V> following = successor(next);
+      next = inRange(following) ? following : null;
+      return pair;
+    }
+  }
+
   // -- Insertion ----------------------------------------------------------------------------------
 
   @Override
-  public void insertNode(Pair<K, V> toAdd) {
-    Node<K, V> node = getRoot();
+  public void insertNode(Pair<K, V> toAdd) { insert(getRoot(), toAdd); }
+
+  // Descends from "node" like search() and returns the new node
+  private Node<K, V> insert(Node<K, V> node, Pair<K, V> toAdd) {
+    K key = toAdd.getKey();
     Node<K, V> parent = null;
+    int cmp = 0;
+    int depth = 0;
 
-    // Traverse the tree to the left or right depending on the key
+    // Traverse the tree to the left or right depending on the key; the last comparison also
+    // tells on which side of the parent the new node goes
     while (node != null) {
       parent = node;
 
-      switch (toAdd.getKey().compareTo(node.getData().getKey())) {
-        case 0 -> throw new IllegalArgumentException("BST already contains a node with key " + toAdd.getKey());
-        case -1 -> node = node.left;
-        case 1 -> node = node.right;
+      depth++;
+      cmp = key.compareTo(node.data.getKey());
+      if (cmp < 0) {
+        node = node.left;
+      } else if (cmp > 0) {
+        node = node.right;
+      } else {
+        throw new IllegalArgumentException("BST already contains a node with key " + key);
       }
     }
 
     // Insert new node
-    Node<K, V> newNode = new Node<>(toAdd);
+    Node<K, V> newNode = newNode(toAdd);
     newNode.color = RED;
     if (parent == null) {
       root = newNode;
-    } else if (toAdd.getKey().compareTo(parent.getData().getKey()) < 0) {
+    } else if (cmp < 0) {
       parent.left = newNode;
     } else {
       parent.right = newNode;
     }
     newNode.parent = parent;
+    if (size != UNKNOWN_SIZE) {
+      size++;
+    }
+    afterStructureChange(newNode);
+    if (filter != null) {
+      filter.add(key);
+      if (filter.isOverloaded()) {
+        rebuildFilter();
+      }
+    }
 
-    fixRedBlackPropertiesAfterInsert(newNode);
+    int fixupDepth = fixRedBlackPropertiesAfterInsert(newNode);
+    if (metrics != null) {
+      metrics.descent(depth);
+      metrics.fixup(true, fixupDepth);
+    }
+    return newNode;
   }
 
-  private void fixRedBlackPropertiesAfterInsert(Node<K, V> node) {
-    Node<K, V> parent = node.parent;
+  // Returns the number of levels the fixup climbed
+  private int fixRedBlackPropertiesAfterInsert(Node<K, V> node) {
+    for (int depth = 0; ; depth++) {
+      Node<K, V> parent = node.parent;
 
-    // Case 1: Parent is null, we've reached the root, the end of the recursion
-    if (parent == null) {
-      // to enforce black roots (rule 2):
-      // node.color = BLACK;
-      return;
+      // Case 1: Parent is null, we've reached the root, the end of the loop
+      if (parent == null) {
+        // to enforce black roots (rule 2):
+        // node.color = BLACK;
+        return depth;
+      }
+
+      // Parent is black --> nothing to do
+      if (parent.color == BLACK) {
+        return depth;
+      }
+
+      // From here on, parent is red
+      Node<K, V> grandparent = parent.parent;
+
+      // Case 2:
+      // Not having a grandparent means that parent is the root. If we enforce black roots
+      // (rule 2), grandparent will never be null, and the following if-then block can be
+      // removed.
+      if (grandparent == null) {
+        // As this loop only runs on red nodes (either on newly inserted ones - or - on red
+        // grandparents), all we have to do is to recolor the root black.
+        parent.color = BLACK;
+        recolored(1);
+        return depth;
+      }
+
+      // Get the uncle (may be null/nil, in which case its color is BLACK). The direction
+      // check is reused below for cases 4 and 5.
+      boolean parentIsLeftChild = parent == grandparent.left;
+      Node<K, V> uncle = parentIsLeftChild ? grandparent.right : grandparent.left;
+
+      // Case 3: Uncle is red -> recolor parent, grandparent and uncle
+      if (uncle != null && uncle.color == RED) {
+        parent.color = BLACK;
+        grandparent.color = RED;
+        uncle.color = BLACK;
+        recolored(3);
+
+        // Continue with the grandparent, which is now red.
+        // It might be root or have a red parent, in which case we need to fix more...
+        node = grandparent;
+        continue;
+      }
+
+      // Parent is left child of grandparent
+      if (parentIsLeftChild) {
+        // Case 4a: Uncle is black and node is left->right "inner child" of its grandparent
+        if (node == parent.right) {
+          rotateLeft(parent);
+
+          // Let "parent" point to the new root node of the rotated sub-tree.
+          // It will be recolored in the next step, which we're going to fall-through to.
+          parent = node;
+        }
+
+        // Case 5a: Uncle is black and node is left->left "outer child" of its grandparent
+        rotateRight(grandparent);
+      }
+
+      // Parent is right child of grandparent
+      else {
+        // Case 4b: Uncle is black and node is right->left "inner child" of its grandparent
+        if (node == parent.left) {
+          rotateRight(parent);
+
+          // Let "parent" point to the new root node of the rotated sub-tree.
+          // It will be recolored in the next step, which we're going to fall-through to.
+          parent = node;
+        }
+
+        // Case 5b: Uncle is black and node is right->right "outer child" of its grandparent
+        rotateLeft(grandparent);
+      }
+
+      // Recolor original parent and grandparent
+      parent.color = BLACK;
+      grandparent.color = RED;
+      recolored(2);
+      return depth;
     }
+  }
 
-    // Parent is black --> nothing to do
-    if (parent.color == BLACK) {
-      return;
+  // -- Bulk construction --------------------------------------------------------------------------
+
+  /**
+   * Replaces the content of this tree with {@code size} pairs taken from {@code pairs}, which must
+   * be in strictly ascending key order. Runs in O(n) without rotations: the tree is perfectly
+   * balanced, all nodes are black except the bottom level of an incomplete tree, which is red.
+   */
+  public void buildFromSorted(Iterator<Pair<K, V>> pairs, int size) {
+    if (size < 0) {
+      throw new IllegalArgumentException("Illegal size: " + size);
+    }
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    Node<K, V>[] last = (Node<K, V>[]) new Node[1];
+    Node<K, V> newRoot = buildFromSorted(0, 0, size - 1, computeRedLevel(size), pairs, last);
+    if (newRoot != null) {
+      newRoot.parent = null;
+    }
+    root = newRoot;
+    this.size = size;
+    rebuildFilter();
+  }
+
+  /**
+   * Inserts all pairs. If this tree is empty and the pairs are already in strictly ascending key
+   * order, the tree is built by {@link #buildFromSorted(Iterator, int)} instead of one
+   * {@link #insertNode(Pair)} per pair.
+   */
+  public void putAll(Collection<Pair<K, V>> pairs) {
+    if (getRoot() == null && isStrictlyAscending(pairs)) {
+      buildFromSorted(pairs.iterator(), pairs.size());
+    } else {
+      for (Pair<K, V> pair : pairs) {
+        insertNode(pair);
+      }
     }
+  }
 
-    // From here on, parent is red
-    Node<K, V> grandparent = parent.parent;
+  private boolean isStrictlyAscending(Collection<Pair<K, V>> pairs) {
+    K previous = null;
+    for (Pair<K, V> pair : pairs) {
+      if (previous != null && previous.compareTo(pair.getKey()) >= 0) {
+        return false;
+      }
+      previous = pair.getKey();
+    }
+    return true;
+  }
 
-    // Case 2:
-    // Not having a grandparent means that parent is the root. If we enforce black roots
-    // (rule 2), grandparent will never be null, and the following if-then block can be
-    // removed.
-    if (grandparent == null) {
-      // As this method is only called on red nodes (either on newly inserted ones - or -
-      // recursively on red grandparents), all we have to do is to recolor the root black.
-      parent.color = BLACK;
-      return;
+  // "last" holds the most recently built node, to check ascending order without a second pass
+  private Node<K, V> buildFromSorted(int level, int lo, int hi, int redLevel,
+                                     Iterator<Pair<K, V>> pairs, Node<K, V>[] last) {
+    if (hi < lo) {
+      return null;
     }
 
-    // Get the uncle (may be null/nil, in which case its color is BLACK)
-    Node<K, V> uncle = getUncle(parent);
+    int mid = (lo + hi) >>> 1;
 
-    // Case 3: Uncle is red -> recolor parent, grandparent and uncle
-    if (uncle != null && uncle.color == RED) {
-      parent.color = BLACK;
-      grandparent.color = RED;
-      uncle.color = BLACK;
+    Node<K, V> left = null;
+    if (lo < mid) {
+      left = buildFromSorted(level + 1, lo, mid - 1, redLevel, pairs, last);
+    }
 
-      // Call recursively for grandparent, which is now red.
-      // It might be root or have a red parent, in which case we need to fix more...
-      fixRedBlackPropertiesAfterInsert(grandparent);
+    Pair<K, V> pair = pairs.next();
+    if (last[0] != null && last[0].data.getKey().compareTo(pair.getKey()) >= 0) {
+      throw new IllegalArgumentException("Keys are not in strictly ascending order at key " + pair.getKey());
     }
+    Node<K, V> middle = newNode(pair);
+    middle.color = (level == redLevel) ? RED : BLACK;
+    last[0] = middle;
 
-    // Note on performance:
-    // It would be faster to do the uncle color check within the following code. This way
-    // we would avoid checking the grandparent-parent direction twice (once in getUncle()
-    // and once in the following else-if). But for better understanding of the code,
-    // I left the uncle color check as a separate step.
+    if (left != null) {
+      middle.left = left;
+      left.parent = middle;
+    }
 
-    // Parent is left child of grandparent
-    else if (parent == grandparent.left) {
-      // Case 4a: Uncle is black and node is left->right "inner child" of its grandparent
-      if (node == parent.right) {
-        rotateLeft(parent);
+    if (mid < hi) {
+      Node<K, V> right = buildFromSorted(level + 1, mid + 1, hi, redLevel, pairs, last);
+      middle.right = right;
+      right.parent = middle;
+    }
 
-        // Let "parent" point to the new root node of the rotated sub-tree.
-        // It will be recolored in the next step, which we're going to fall-through to.
-        parent = node;
+    refresh(middle);
+    return middle;
+  }
+
+  // Level of the bottom row of an incomplete tree with "size" nodes; -1 if the tree is complete
+  private static int computeRedLevel(int size) {
+    return (size + 1 == Integer.highestOneBit(size + 1)) ? -1 : 31 - Integer.numberOfLeadingZeros(size);
+  }
+
+  // -- Freezing -----------------------------------------------------------------------------------
+
+  /**
+   * Read-only copy for lookups, with the keys in one array in Eytzinger order, in O(n). Later
+   * changes to this tree don't show in the copy.
+   */
+  public FrozenRedBlackTree<K, V> freeze() { return new FrozenRedBlackTree<>(this); }
+
+  // -- Batch updates ------------------------------------------------------------------------------
+
+  /**
+   * Inserts all pairs in ascending key order. Each insert starts from the previously inserted
+   * node, climbs only until the next key falls inside the subtree reached, and descends from
+   * there. The descent can still take the full height of that subtree; only dense or adjacent
+   * keys come to O(log d) amortized for a key distance d, and no insert costs more than a climb
+   * to the root and a descent from it. A batch at least as large as the tree is merged with its
+   * content and rebuilt by {@link #buildFromSorted(Iterator, int)}.
+   *
+   * @throws IllegalArgumentException if a key occurs twice in the batch (nothing is inserted) or
+   *                                  is already present (pairs with smaller keys may be inserted)
+   */
+  public void insertAll(Collection<Pair<K, V>> pairs) {
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    Pair<K, V>[] batch = pairs.toArray(new Pair[0]);
+    Arrays.sort(batch, (a, b) -> a.getKey().compareTo(b.getKey()));
+    for (int i = 1; i < batch.length; i++) {
+      if (batch[i - 1].getKey().compareTo(batch[i].getKey()) == 0) {
+        throw new IllegalArgumentException("Batch contains key " + batch[i].getKey() + " twice");
       }
+    }
 
-      // Case 5a: Uncle is black and node is left->left "outer child" of its grandparent
-      rotateRight(grandparent);
+    if (batch.length >= size()) {
+      rebuildWith(batch);
+      return;
+    }
 
-      // Recolor original parent and grandparent
-      parent.color = BLACK;
-      grandparent.color = RED;
+    Node<K, V> finger = null;
+    for (Pair<K, V> pair : batch) {
+      finger = insert(climb(finger, pair.getKey()), pair);
     }
+  }
 
-    // Parent is right child of grandparent
-    else {
-      // Case 4b: Uncle is black and node is right->left "inner child" of its grandparent
-      if (node == parent.left) {
-        rotateRight(parent);
+  /**
+   * Deletes all keys, visiting them in ascending order with the same finger climbing as
+   * {@link #insertAll}. Returns the number of keys that were present.
+   */
+  public int deleteAll(Collection<K> keys) {
+    ArrayList<K> batch = new ArrayList<>(keys);
+    batch.sort(null);
 
-        // Let "parent" point to the new root node of the rotated sub-tree.
-        // It will be recolored in the next step, which we're going to fall-through to.
-        parent = node;
+    if (batch.size() >= size()) {
+      return rebuildWithout(batch);
+    }
+
+    int deleted = 0;
+    Node<K, V> finger = null;
+    K previous = null;
+    for (K key : batch) {
+      if (previous != null && previous.compareTo(key) == 0) {
+        continue;
+      }
+      previous = key;
+
+      Node<K, V> node = search(climb(finger, key), key);
+      if (node != null) {
+        // The predecessor is neither "node" nor its successor, so delete() leaves it in place
+        finger = predecessor(node);
+        delete(node);
+        deleted++;
       }
+    }
+    return deleted;
+  }
 
-      // Case 5b: Uncle is black and node is right->right "outer child" of its grandparent
-      rotateLeft(grandparent);
+  // Lowest ancestor-or-self of "finger" whose key range contains "key", which must be greater than
+  // the finger's key; the root if there is no finger yet. Only left-child steps compare keys:
+  // climbing out of a right child never lowers the upper bound.
+  private Node<K, V> climb(Node<K, V> finger, K key) {
+    if (finger == null) {
+      return getRoot();
+    }
 
-      // Recolor original parent and grandparent
-      parent.color = BLACK;
-      grandparent.color = RED;
+    Node<K, V> node = finger;
+    while (node.parent != null) {
+      Node<K, V> parent = node.parent;
+      if (node == parent.left && key.compareTo(parent.data.getKey()) < 0) {
+        return node;
+      }
+      node = parent;
     }
+    return node;
   }
 
-  private Node<K, V> getUncle(Node<K, V> parent) {
-    Node<K, V> grandparent = parent.parent;
-    if (grandparent.left == parent) {
-      return grandparent.right;
-    } else if (grandparent.right == parent) {
-      return grandparent.left;
-    } else {
-      throw new IllegalStateException("Parent is not a child of its grandparent");
+  // Merges the sorted batch with the content of the tree, then rebuilds; O(n + m)
+  private void rebuildWith(Pair<K, V>[] batch) {
+    ArrayList<Pair<K, V>> merged = new ArrayList<>(size() + batch.length);
+    int i = 0;
+    for (Node<K, V> node = first(); node != null; node = successor(node)) {
+      K key = node.data.getKey();
+      for (; i < batch.length && batch[i].getKey().compareTo(key) <= 0; i++) {
+        if (batch[i].getKey().compareTo(key) == 0) {
+          throw new IllegalArgumentException("BST already contains a node with key " + key);
+        }
+        merged.add(batch[i]);
+      }
+      merged.add(node.data);
+    }
+    for (; i < batch.length; i++) {
+      merged.add(batch[i]);
     }
+    buildFromSorted(merged.iterator(), merged.size());
   }
 
-  // -- Deletion -----------------------------------------------------------------------------------
+  private int rebuildWithout(ArrayList<K> batch) {
+    ArrayList<Pair<K, V>> kept = new ArrayList<>(size());
+    int i = 0;
+    for (Node<K, V> node = first(); node != null; node = successor(node)) {
+      K key = node.data.getKey();
+      while (i < batch.size() && batch.get(i).compareTo(key) < 0) {
+        i++;
+      }
+      if (i == batch.size() || batch.get(i).compareTo(key) != 0) {
+        kept.add(node.data);
+      }
+    }
+    int deleted = size() - kept.size();
+    buildFromSorted(kept.iterator(), kept.size());
+    return deleted;
+  }
 
-  @Override
-  public Optional<V> deleteNode(K key) {
-    Node<K, V> node = getRoot();
+  // -- Join and split -----------------------------------------------------------------------------
+
+  /**
+   * Joins {@code left}, {@code pivot} and {@code right} into {@code left} and returns it, in
+   * O(log n): {@code pivot} is linked in at the height where both trees have the same black
+   * height, followed by a normal insert fixup. {@code right} is left empty. Both trees should be
+   * of the same class, their nodes are moved, not copied.
+   * <p>
+   * The joined size is known if both sizes were. A lookup filter on {@code left} is rebuilt over
+   * the joined content, which makes the join O(n) for trees that have one.
+   *
+   * @throws IllegalArgumentException unless every key in left &lt; pivot &lt; every key in right
+   */
+  public static <K extends Comparable<K>, V> RedBlackTree<K, V> join(RedBlackTree<K, V> left, Pair<K, V> pivot,
+                                                                    RedBlackTree<K, V> right) {
+    K key = pivot.getKey();
+    if ((left.getRoot() != null && left.last().data.getKey().compareTo(key) >= 0)
+            || (right.getRoot() != null && right.first().data.getKey().compareTo(key) <= 0)) {
+      throw new IllegalArgumentException("Keys are not ordered around the pivot " + key);
+    }
 
-    // Find the node to be deleted
-    while (node != null && node.getData().getKey().compareTo(key) != 0) {
-      // Traverse the tree to the left or right depending on the key
-      if (key.compareTo(node.getData().getKey()) < 0) {
-        node = node.left;
-      } else {
-        node = node.right;
+    int joinedSize = (left.size == UNKNOWN_SIZE || right.size == UNKNOWN_SIZE)
+            ? UNKNOWN_SIZE : left.size + 1 + right.size;
+    left.root = left.joinNodes(left.root, left.newNode(pivot), right.root);
+    left.size = joinedSize;
+    right.root = null;
+    right.size = 0;
+    left.rebuildFilter();
+    right.rebuildFilter();
+    return left;
+  }
+
+  /**
+   * Moves all keys greater than or equal to {@code key} into a new tree and returns it, in
+   * O(log n). This tree keeps the smaller keys.
+   * <p>
+   * The sizes of the two parts are not known; each is counted in O(n) on its first
+   * {@link #size()} call. With a lookup filter on, the filters of both parts are rebuilt right
+   * away, which makes the split O(n).
+   */
+  public RedBlackTree<K, V> split(K key) {
+    Node<K, V>[] parts = splitNodes(root, key);
+    Node<K, V> upper = (parts[1] != null) ? joinNodes(null, parts[1], parts[2]) : parts[2];
+
+    RedBlackTree<K, V> upperTree = newTree();
+    upperTree.adopt(upper);
+    adopt(parts[0]);
+    return upperTree;
+  }
+
+  // Makes "node" the root of this tree; its subtree must be a valid red-black tree
+  void adopt(Node<K, V> node) {
+    if (node != null) {
+      node.parent = null;
+    }
+    root = node;
+    size = (node == null) ? 0 : UNKNOWN_SIZE;
+    rebuildFilter();
+  }
+
+  // Empties this tree and returns its former root
+  Node<K, V> disown() {
+    Node<K, V> node = root;
+    root = null;
+    size = 0;
+    rebuildFilter();
+    return node;
+  }
+
+  /**
+   * Joins two detached subtrees around a detached pivot and returns the new root. This tree's
+   * root field is only used as a work area, so any tree of the right class can do the joining.
+   */
+  Node<K, V> joinNodes(Node<K, V> left, Node<K, V> pivot, Node<K, V> right) {
+    // Black roots make the black heights comparable; that is always allowed
+    if (left != null) {
+      left.parent = null;
+      left.color = BLACK;
+    }
+    if (right != null) {
+      right.parent = null;
+      right.color = BLACK;
+    }
+    pivot.left = null;
+    pivot.right = null;
+    pivot.parent = null;
+    pivot.color = RED;
+
+    int leftHeight = blackHeight(left);
+    int rightHeight = blackHeight(right);
+    Node<K, V> parent = null;
+    if (leftHeight >= rightHeight) {
+      // Walk down the right spine of the taller left tree to a black node of the right height
+      root = left;
+      Node<K, V> node = left;
+      for (int height = leftHeight; !(isBlack(node) && height == rightHeight); node = node.right) {
+        if (node.color == BLACK) {
+          height--;
+        }
+        parent = node;
+      }
+      pivot.left = node;
+      pivot.right = right;
+      if (parent != null) {
+        parent.right = pivot;
+      }
+    } else {
+      root = right;
+      Node<K, V> node = right;
+      for (int height = rightHeight; !(isBlack(node) && height == leftHeight); node = node.left) {
+        if (node.color == BLACK) {
+          height--;
+        }
+        parent = node;
+      }
+      pivot.left = left;
+      pivot.right = node;
+      if (parent != null) {
+        parent.left = pivot;
       }
     }
 
-    // Node not found?
+    if (pivot.left != null) {
+      pivot.left.parent = pivot;
+    }
+    if (pivot.right != null) {
+      pivot.right.parent = pivot;
+    }
+    pivot.parent = parent;
+    if (parent == null) {
+      root = pivot;
+    }
+    afterStructureChange(pivot);
+
+    fixRedBlackPropertiesAfterInsert(pivot);
+    return root;
+  }
+
+  /** Joins two detached subtrees, all keys in left &lt; all keys in right, and returns the new root. */
+  Node<K, V> joinNodes(Node<K, V> left, Node<K, V> right) {
+    if (left == null || right == null) {
+      Node<K, V> node = (left != null) ? left : right;
+      if (node != null) {
+        node.parent = null;
+      }
+      return node;
+    }
+
+    // The maximum of the left tree becomes the pivot. It has no right child, so unlink() takes
+    // out that very node; the work area's size and filter are not involved.
+    left.parent = null;
+    root = left;
+    Node<K, V> maximum = findMaximum(left);
+    unlink(maximum);
+    return joinNodes(root, maximum, right);
+  }
+
+  /**
+   * Splits a detached subtree into {lower, node with the key or null, upper} in O(log n); the
+   * parts are detached valid subtrees. Uses this tree's root field as a work area.
+   */
+  Node<K, V>[] splitNodes(Node<K, V> node, K key) {
     if (node == null) {
-      return Optional.empty();
+      return parts(null, null, null);
     }
 
-    // At this point, "node" is the node to be deleted
+    Node<K, V> left = node.left;
+    Node<K, V> right = node.right;
+    int cmp = key.compareTo(node.data.getKey());
+    if (cmp == 0) {
+      if (left != null) {
+        left.parent = null;
+      }
+      if (right != null) {
+        right.parent = null;
+      }
+      node.left = null;
+      node.right = null;
+      node.parent = null;
+      return parts(left, node, right);
+    } else if (cmp < 0) {
+      Node<K, V>[] parts = splitNodes(left, key);
+      parts[2] = joinNodes(parts[2], node, right);
+      return parts;
+    } else {
+      Node<K, V>[] parts = splitNodes(right, key);
+      parts[0] = joinNodes(left, node, parts[0]);
+      return parts;
+    }
+  }
 
-    // In this variable, we'll store the node at which we're going to start to fix the R-B
-    // properties after deleting a node.
-    Node<K, V> movedUpNode;
-    boolean deletedNodeColor;
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private static <K extends Comparable<K>, V> Node<K, V>[] parts(Node<K, V> lower, Node<K, V> match,
+                                                                 Node<K, V> upper) {
+    return (Node<K, V>[]) new Node[] {lower, match, upper};
+  }
 
-    // Node has zero or one child
-    if (node.left == null || node.right == null) {
-      movedUpNode = deleteNodeWithZeroOrOneChild(node);
-      deletedNodeColor = node.color;
+  // Number of black nodes from "node" down to a leaf, counting "node" itself
+  private static int blackHeight(Node<?, ?> node) {
+    int height = 0;
+    for (; node != null; node = node.left) {
+      if (node.color == BLACK) {
+        height++;
+      }
     }
+    return height;
+  }
 
-    // Node has two children
-    else {
-      // Find minimum node of right subtree ("inorder successor" of current node)
-      Node<K, V> inOrderSuccessor = findMinimum(node.right);
+  // -- Deletion -----------------------------------------------------------------------------------
 
-      // Copy inorder successor's data to current node (keep its color!)
-      node.data = inOrderSuccessor.data;
+  @Override
+  public Optional<V> deleteNode(K key) {
+    // Find the node to be deleted
+    Node<K, V> node = searchNode(key);
 
-      // Delete inorder successor just as we would delete a node with 0 or 1 child
-      movedUpNode = deleteNodeWithZeroOrOneChild(inOrderSuccessor);
-      deletedNodeColor = inOrderSuccessor.color;
+    // Node not found?
+    if (node == null) {
+      return Optional.empty();
     }
 
-    if (deletedNodeColor == BLACK) {
-      fixRedBlackPropertiesAfterDelete(movedUpNode);
+    return Optional.of(delete(node));
+  }
 
-      // Remove the temporary NIL node
-      if (movedUpNode.getClass() == NilNode.class) {
-        replaceParentsChild(movedUpNode.parent, movedUpNode, null);
-      }
+  // Unlinks "node", or its inorder successor after taking over the successor's data. Nodes other
+  // than these two keep their data and stay in the tree.
+  private V delete(Node<K, V> node) {
+    V deletedValue = node.getData().getValue();
+    if (filter != null) {
+      filter.remove(node.data.getKey());
     }
-    return Optional.of(node.getData().getValue());
+    unlink(node);
+    if (size != UNKNOWN_SIZE) {
+      size--;
+    }
+    return deletedValue;
   }
 
-  private Node<K, V> deleteNodeWithZeroOrOneChild(Node<K, V> node) {
-    // Node has ONLY a left child --> replace by its left child
-    if (node.left != null) {
-      replaceParentsChild(node.parent, node, node.left);
-      return node.left; // moved-up node
+  // The rebalancing part of delete(), without the size and filter bookkeeping
+  private void unlink(Node<K, V> node) {
+    // Node has two children -->
+    // copy the inorder successor's data to it (keep its color!) and delete the inorder successor
+    // instead, which has at most one child
+    if (node.left != null && node.right != null) {
+      Node<K, V> inOrderSuccessor = findMinimum(node.right);
+      node.data = inOrderSuccessor.data;
+      node = inOrderSuccessor;
     }
 
-    // Node has ONLY a right child --> replace by its right child
-    else if (node.right != null) {
-      replaceParentsChild(node.parent, node, node.right);
-      return node.right; // moved-up node
+    Node<K, V> child = (node.left != null) ? node.left : node.right;
+    Node<K, V> parent;
+
+    // Node has one child --> replace it by its child. Such a node is always black with a red
+    // child, so recoloring the child restores the black height.
+    if (child != null) {
+      parent = node.parent;
+      replaceParentsChild(parent, node, child);
+      child.color = BLACK;
+      recolored(1);
     }
 
     // Node has no children -->
     // * node is red --> just remove it
-    // * node is black --> replace it by a temporary NIL node (needed to fix the R-B rules)
+    // * node is black --> fix the R-B rules first, with the node itself standing in for the NIL
+    //   leaf that will replace it, then remove it
     else {
-      Node<K, V> newChild = node.color == BLACK ? new NilNode<>() : null;
-      replaceParentsChild(node.parent, node, newChild);
-      return newChild;
+      if (node.color == BLACK) {
+        int fixupDepth = fixRedBlackPropertiesAfterDelete(node);
+        if (metrics != null) {
+          metrics.fixup(false, fixupDepth);
+        }
+      }
+      parent = node.parent;
+      replaceParentsChild(parent, node, null);
     }
+
+    node.left = null;
+    node.right = null;
+    node.parent = null;
+    afterStructureChange(parent);
   }
 
   private Node<K, V> findMinimum(Node<K, V> node) {
@@ -261,47 +907,57 @@ public class RedBlackTree<K extends Comparable<K>, V> extends BaseBinaryTree<K,
     return node;
   }
 
-  private void fixRedBlackPropertiesAfterDelete(Node<K, V> node) {
-    // Case 1: Examined node is root, end of recursion
-    if (node == getRoot()) {
-      // Uncomment the following line if you want to enforce black roots (rule 2):
-      // node.color = BLACK;
-      return;
+  private Node<K, V> findMaximum(Node<K, V> node) {
+    while (node.right != null) {
+      node = node.right;
     }
+    return node;
+  }
 
-    Node<K, V> sibling = getSibling(node);
+  // Returns the number of levels the fixup climbed
+  private int fixRedBlackPropertiesAfterDelete(Node<K, V> node) {
+    int depth = 0;
 
-    // Case 2: Red sibling
-    if (sibling.color == RED) {
-      handleRedSibling(node, sibling);
-      sibling = getSibling(node); // Get new sibling for fall-through to cases 3-6
-    }
+    // Case 1: Examined node is root, end of the loop
+    // (to enforce black roots (rule 2), color "node" black after the loop)
+    while (node != getRoot()) {
+      Node<K, V> sibling = getSibling(node);
 
-    // Cases 3+4: Black sibling with two black children
-    if (isBlack(sibling.left) && isBlack(sibling.right)) {
+      // Case 2: Red sibling
+      if (sibling.color == RED) {
+        handleRedSibling(node, sibling);
+        sibling = getSibling(node); // Get new sibling for fall-through to cases 3-6
+      }
+
+      // Case 5+6: Black sibling with at least one red child
+      if (!isBlack(sibling.left) || !isBlack(sibling.right)) {
+        handleBlackSiblingWithAtLeastOneRedChild(node, sibling);
+        return depth;
+      }
+
+      // Cases 3+4: Black sibling with two black children
       sibling.color = RED;
+      recolored(1);
 
       // Case 3: Black sibling with two black children + red parent
       if (node.parent.color == RED) {
         node.parent.color = BLACK;
+        recolored(1);
+        return depth;
       }
 
-      // Case 4: Black sibling with two black children + black parent
-      else {
-        fixRedBlackPropertiesAfterDelete(node.parent);
-      }
-    }
-
-    // Case 5+6: Black sibling with at least one red child
-    else {
-      handleBlackSiblingWithAtLeastOneRedChild(node, sibling);
+      // Case 4: Black sibling with two black children + black parent --> continue with parent
+      node = node.parent;
+      depth++;
     }
+    return depth;
   }
 
   private void handleRedSibling(Node<K, V> node, Node<K, V> sibling) {
     // Recolor...
     sibling.color = BLACK;
     node.parent.color = RED;
+    recolored(2);
 
     // ... and rotate
     if (node == node.parent.left) {
@@ -319,11 +975,13 @@ public class RedBlackTree<K extends Comparable<K>, V> extends BaseBinaryTree<K,
     if (nodeIsLeftChild && isBlack(sibling.right)) {
       sibling.left.color = BLACK;
       sibling.color = RED;
+      recolored(2);
       rotateRight(sibling);
       sibling = node.parent.right;
     } else if (!nodeIsLeftChild && isBlack(sibling.left)) {
       sibling.right.color = BLACK;
       sibling.color = RED;
+      recolored(2);
       rotateLeft(sibling);
       sibling = node.parent.left;
     }
@@ -334,6 +992,7 @@ public class RedBlackTree<K extends Comparable<K>, V> extends BaseBinaryTree<K,
     // --> Recolor sibling + parent + sibling's child, and rotate around parent
     sibling.color = node.parent.color;
     node.parent.color = BLACK;
+    recolored(3);
     if (nodeIsLeftChild) {
       sibling.right.color = BLACK;
       rotateLeft(node.parent);
@@ -358,10 +1017,9 @@ public class RedBlackTree<K extends Comparable<K>, V> extends BaseBinaryTree<K,
     return node == null || node.color == BLACK;
   }
 
-  private static class NilNode<K extends Comparable<K>, V> extends Node<K, V> {
-    private NilNode() {
-      super(new Pair<>(null, null));
-      this.color = BLACK;
+  private void recolored(int count) {
+    if (metrics != null) {
+      metrics.recolors(count);
     }
   }
 
@@ -380,6 +1038,11 @@ public class RedBlackTree<K extends Comparable<K>, V> extends BaseBinaryTree<K,
     node.parent = leftChild;
 
     replaceParentsChild(parent, node, leftChild);
+    refresh(node);
+    refresh(leftChild);
+    if (metrics != null) {
+      metrics.rotation();
+    }
   }
 
   private void rotateLeft(Node<K, V> node) {
@@ -395,6 +1058,11 @@ public class RedBlackTree<K extends Comparable<K>, V> extends BaseBinaryTree<K,
     node.parent = rightChild;
 
     replaceParentsChild(parent, node, rightChild);
+    refresh(node);
+    refresh(rightChild);
+    if (metrics != null) {
+      metrics.rotation();
+    }
   }
 
   private void replaceParentsChild(Node<K, V> parent, Node<K, V> oldChild, Node<K, V> newChild) {
@@ -413,58 +1081,284 @@ public class RedBlackTree<K extends Comparable<K>, V> extends BaseBinaryTree<K,
     }
   }
 
-  // -- For toString() -----------------------------------------------------------------------------
+  // -- Augmentation hooks -------------------------------------------------------------------------
+  // Subclasses that keep per-subtree data in their own Node type (e.g. subtree sizes) override
+  // these; RedBlackTree itself keeps nothing and the calls are no-ops.
 
-  private void appendNodeToString(Node<K, V> node, StringBuilder builder) {
-    builder.append("(").append(node.data.getKey())
-            .append(", ") .append(node.data.getValue()).append(") ")
-            .append(node.color == RED ? "[R]" : "[B]");
+  protected Node<K, V> newNode(Pair<K, V> pair) {
+    return new Node<>(pair);
   }
 
-  public void printPreOrder(PrintStream os) {
-    StringBuilder sb = new StringBuilder();
-    traversePreOrder(sb, "", "", this.root);
-    os.print(sb);
+  /** Recomputes the subtree data of {@code node} from its children. */
+  protected void refresh(Node<K, V> node) {
   }
 
-  // -- For Traversing -----------------------------------------------------------------------------
+  /** Called after a node was linked below, or unlinked from below, {@code node} (may be null). */
+  protected void afterStructureChange(Node<K, V> node) {
+  }
 
-  public List<K, V> traverseLevelOrder(Node<K, V> root, List<K, V> list) {
-    if (getRoot() == null) {
+  /** Empty tree of the same kind, for the parts built by split and the set operations. */
+  protected RedBlackTree<K, V> newTree() {
+    return new RedBlackTree<>();
+  }
+
+  /** Number of nodes below the root, in O(n) unless the nodes know their subtree sizes. */
+  protected int countNodes() {
+    int count = 0;
+    for (Node<K, V> node = first(); node != null; node = successor(node)) {
+      count++;
+    }
+    return count;
+  }
+
+  // -- Streams ------------------------------------------------------------------------------------
+
+  public Stream<Pair<K, V>> stream() { return StreamSupport.stream(spliterator(), false); }
+
+  public Stream<Pair<K, V>> parallelStream() { return StreamSupport.stream(spliterator(), true); }
+
+  /**
+   * Ascending spliterator that splits at subtree roots, so both halves cover about half of the
+   * remaining pairs. The tree must not be modified while it is in use.
+   */
+  @Override
+  public Spliterator<Pair<K, V>> spliterator() { return new TreeSpliterator<>(this, null, null, 0, -1); }
+
+  // Modeled on java.util.TreeMap's spliterators: covers the pairs from "current" (inclusive) up
+  // to "fence" (exclusive, null = end). "side" tells where the last split happened.
+  static final class TreeSpliterator<K extends Comparable<K>, V> implements Spliterator<Pair<K, V>> {
+    private final RedBlackTree<K, V> tree;
+    private Node<K, V> current;
+    private final Node<K, V> fence;
+    private int side;   // 0: top, -1: is a left split, +1: is a right split
+    private int est;    // size estimate (exact only for top level); -1 until first use
+
+    TreeSpliterator(RedBlackTree<K, V> tree, Node<K, V> origin, Node<K, V> fence, int side, int est) {
+      this.tree = tree;
+      this.current = origin;
+      this.fence = fence;
+      this.side = side;
+      this.est = est;
+    }
+
+    private int getEstimate() {
+      if (est < 0) {
+        est = tree.size();
+        current = tree.first();
+      }
+      return est;
+    }
+
+    @Override
+    public Spliterator<Pair<K, V>> trySplit() {
+      getEstimate();
+      Node<K, V> node = current;
+      Node<K, V> split = (node == null || node == fence) ? null
+              : (side == 0) ? tree.getRoot()
+              : (side > 0) ? node.right
+              : (fence != null) ? fence.left
+              : null;
+
+      if (split != null && split != node && split != fence
+              && node.data.getKey().compareTo(split.data.getKey()) < 0) {
+        side = 1;
+        est >>>= 1;
+        current = split;
+        return new TreeSpliterator<>(tree, node, split, -1, est);
+      }
       return null;
     }
 
-    Queue<Node<K, V>> queue = new ArrayDeque<>();
-    queue.add(root);
+    @Override
+    public boolean tryAdvance(Consumer<? super Pair<K, V>> action) {
+      getEstimate();
+      Node<K, V> node = current;
+      if (node == null || node == fence) {
+        return false;
+      }
+      current = successor(node);
+      action.accept(node.data);
+      return true;
+    }
 
-    while (!queue.isEmpty()) {
-      Node<K, V> node = queue.poll();
-      list.addNode(node.data);
+    @Override
+    public void forEachRemaining(Consumer<? super Pair<K, V>> action) {
+      getEstimate();
+      Node<K, V> node = current;
+      current = fence;
+      for (; node != null && node != fence; node = successor(node)) {
+        action.accept(node.data);
+      }
+    }
+
+    @Override
+    public long estimateSize() { return getEstimate(); }
+
+    @Override
+    public int characteristics() {
+      return (side == 0 ? Spliterator.SIZED : 0)
+              | Spliterator.DISTINCT | Spliterator.SORTED | Spliterator.ORDERED | Spliterator.NONNULL;
+    }
 
+    @Override
+    public Comparator<? super Pair<K, V>> getComparator() { return Comparator.comparing(Pair::getKey); }
+  }
+
+  // -- Traversal --------------------------------------------------------------------------------
+  // Lazy iterators; the tree must not be changed while one is in use.
+
+  /** In key order, following parent links: O(1) extra memory. */
+  @Override
+  public Iterator<Pair<K, V>> iterator() { return new InOrderIterator<>(first()); }
+
+  /** Root first, then every level left to right; keeps one level of nodes in a queue. */
+  public Iterator<Pair<K, V>> levelOrderIterator() { return new LevelOrderIterator<>(getRoot()); }
+
+  /** Node, left subtree, right subtree, following parent links: O(1) extra memory. */
+  public Iterator<Pair<K, V>> preOrderIterator() { return new PreOrderIterator<>(getRoot()); }
+
+  private static final class InOrderIterator<K extends Comparable<K>, V> implements Iterator<Pair<K, V>> {
+    private Node<K, V> next;
+
+    private InOrderIterator(Node<K, V> first) {
+      this.next = first;
+    }
+
+    @Override
+    public boolean hasNext() { return next != null; }
+
+    @Override
+    public Pair<K, V> next() {
+      if (next == null) {
+        throw new NoSuchElementException();
+      }
+      Node<K, V> node = next;
+      next = successor(node);
+      return node.data;
+    }
+  }
+
+  private static final class LevelOrderIterator<K extends Comparable<K>, V> implements Iterator<Pair<K, V>> {
+    private final Queue<Node<K, V>> queue = new ArrayDeque<>();
+
+    private LevelOrderIterator(Node<K, V> root) {
+      if (root != null) {
+        queue.add(root);
+      }
+    }
+
+    @Override
+    public boolean hasNext() { return !queue.isEmpty(); }
+
+    @Override
+    public Pair<K, V> next() {
+      Node<K, V> node = queue.poll();
+      if (node == null) {
+        throw new NoSuchElementException();
+      }
       if (node.left != null) {
         queue.add(node.left);
       }
       if (node.right != null) {
         queue.add(node.right);
       }
+      return node.data;
     }
-    return list;
   }
 
-  private void traversePreOrder(StringBuilder sb, String padding, String pointer,
-                               Node<K, V> node) {
-    if (node != null) {
-      sb.append(padding);
-      sb.append(pointer);
-      appendNodeToString(node, sb);
-      sb.append("\n");
+  private static final class PreOrderIterator<K extends Comparable<K>, V> implements Iterator<Pair<K, V>> {
+    private Node<K, V> next;
+
+    private PreOrderIterator(Node<K, V> root) {
+      this.next = root;
+    }
+
+    @Override
+    public boolean hasNext() { return next != null; }
+
+    @Override
+    public Pair<K, V> next() {
+      if (next == null) {
+        throw new NoSuchElementException();
+      }
+      Node<K, V> node = next;
+      next = preOrderSuccessor(node);
+      return node.data;
+    }
+  }
+
+  // Next node in pre-order: the first child, or else the right child of the nearest ancestor
+  // that was left through its left child and has one
+  static <K extends Comparable<K>, V> Node<K, V> preOrderSuccessor(Node<K, V> node) {
+    if (node.left != null) {
+      return node.left;
+    }
+    if (node.right != null) {
+      return node.right;
+    }
+
+    Node<K, V> parent = node.parent;
+    while (parent != null && (node == parent.right || parent.right == null)) {
+      node = parent;
+      parent = parent.parent;
+    }
+    return (parent != null) ? parent.right : null;
+  }
+
+  // -- For toString() -----------------------------------------------------------------------------
+
+  private void appendNodeToString(Node<K, V> node, StringBuilder builder) {
+    builder.append("(").append(node.data.getKey())
+            .append(", ") .append(node.data.getValue()).append(") ")
+            .append(node.color == RED ? "[R]" : "[B]");
+  }
+
+  /** Prints one line per node in pre-order, streaming; nothing proportional to the tree is kept. */
+  public void printPreOrder(PrintStream os) {
+    StringBuilder line = new StringBuilder();
+    int depth = 0;
+    for (Node<K, V> node = getRoot(); node != null; ) {
+      line.setLength(0);
+      for (int i = 0; i < depth; i++) {
+        line.append("│  ");
+      }
+      if (node.parent != null) {
+        line.append((node == node.parent.left && node.parent.right != null) ? "├──" : "└──");
+      }
+      appendNodeToString(node, line);
+      line.append("\n");
+      os.print(line);
+
+      // Same walk as preOrderSuccessor, keeping track of the depth
+      if (node.left != null) {
+        node = node.left;
+        depth++;
+      } else if (node.right != null) {
+        node = node.right;
+        depth++;
+      } else {
+        Node<K, V> parent = node.parent;
+        while (parent != null && (node == parent.right || parent.right == null)) {
+          node = parent;
+          parent = parent.parent;
+          depth--;
+        }
+        node = (parent != null) ? parent.right : null;
+      }
+    }
+  }
 
-      String paddingForBoth = padding + "│  ";
-      String pointerForRight = "└──";
-      String pointerForLeft = (node.right != null) ? "├──" : "└──";
+  // -- For Traversing -----------------------------------------------------------------------------
 
-      traversePreOrder(sb, paddingForBoth, pointerForLeft, node.left);
-      traversePreOrder(sb, paddingForBoth, pointerForRight, node.right);
+  /** Appends all pairs to {@code list} in level order and returns it, or null if this tree is empty. */
+  public List<K, V> traverseLevelOrder(Node<K, V> root, List<K, V> list) {
+    if (getRoot() == null) {
+      return null;
     }
+
+    for (Iterator<Pair<K, V>> pairs = new LevelOrderIterator<>(root); pairs.hasNext(); ) {
+      list.addNode(pairs.next());
+    }
+    return list;
   }
 }
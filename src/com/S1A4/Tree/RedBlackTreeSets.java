@@ -0,0 +1,114 @@
+package com.S1A4.Tree;
+
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Union, intersection and difference of two {@link RedBlackTree}s built on join and split, in
+ * O(m log(n/m + 1)) work for trees of sizes m &lt;= n. The two recursive halves of every step
+ * are independent and run as fork/join tasks near the top of the recursion.
+ * <p>
+ * The operations are destructive: the result is returned in {@code a}, {@code b} is left empty,
+ * and their nodes are moved, not copied. Both trees should be of the same class. The size of the
+ * result is counted on its first {@code size()} call, and a lookup filter on {@code a} is rebuilt
+ * over the result, each in O(n).
+ */
+public final class RedBlackTreeSets {
+
+  // Fork down to 8 * 2^floor(log2 p) leaf tasks, 4 to 8 per worker for a parallelism of p;
+  // forking deeper only adds overhead
+  private static final int FORK_DEPTH =
+          34 - Integer.numberOfLeadingZeros(ForkJoinPool.getCommonPoolParallelism());
+
+  private enum Operation { UNION, INTERSECTION, DIFFERENCE }
+
+  private RedBlackTreeSets() {
+  }
+
+  /** Keys in either tree; for keys in both, the pair from {@code a} is kept. */
+  public static <K extends Comparable<K>, V> RedBlackTree<K, V> union(RedBlackTree<K, V> a, RedBlackTree<K, V> b) {
+    return apply(Operation.UNION, a, b);
+  }
+
+  /** Keys in both trees, with the pairs from {@code a}. */
+  public static <K extends Comparable<K>, V> RedBlackTree<K, V> intersection(RedBlackTree<K, V> a,
+                                                                            RedBlackTree<K, V> b) {
+    return apply(Operation.INTERSECTION, a, b);
+  }
+
+  /** Keys in {@code a} but not in {@code b}. */
+  public static <K extends Comparable<K>, V> RedBlackTree<K, V> difference(RedBlackTree<K, V> a,
+                                                                          RedBlackTree<K, V> b) {
+    return apply(Operation.DIFFERENCE, a, b);
+  }
+
+  private static <K extends Comparable<K>, V> RedBlackTree<K, V> apply(Operation operation, RedBlackTree<K, V> a,
+                                                                       RedBlackTree<K, V> b) {
+    SetTask<K, V> task = new SetTask<>(operation, a, a.disown(), b.disown(), 0);
+    a.adopt(ForkJoinPool.commonPool().invoke(task));
+    return a;
+  }
+
+  private static final class SetTask<K extends Comparable<K>, V> extends RecursiveTask<Node<K, V>> {
+    private static final long serialVersionUID = 1L;
+
+    private final Operation operation;
+    private final RedBlackTree<K, V> prototype;
+    private final Node<K, V> a;
+    private final Node<K, V> b;
+    private final int depth;
+
+    private SetTask(Operation operation, RedBlackTree<K, V> prototype, Node<K, V> a, Node<K, V> b, int depth) {
+      this.operation = operation;
+      this.prototype = prototype;
+      this.a = a;
+      this.b = b;
+      this.depth = depth;
+    }
+
+    @Override
+    protected Node<K, V> compute() {
+      if (a == null || b == null) {
+        Node<K, V> result = (operation == Operation.UNION) ? (a != null ? a : b)
+                : (operation == Operation.DIFFERENCE) ? a : null;
+        if (result != null) {
+          result.parent = null;
+        }
+        return result;
+      }
+
+      // Every task joins in its own work area, see RedBlackTree.joinNodes
+      RedBlackTree<K, V> work = prototype.newTree();
+
+      // Split the other tree by the root of one tree, then recurse on both sides
+      Node<K, V> pivot = (operation == Operation.DIFFERENCE) ? b : a;
+      Node<K, V> pivotLeft = pivot.left;
+      Node<K, V> pivotRight = pivot.right;
+      Node<K, V>[] parts = work.splitNodes((operation == Operation.DIFFERENCE) ? a : b, pivot.data.getKey());
+
+      SetTask<K, V> left, right;
+      if (operation == Operation.DIFFERENCE) {
+        left = new SetTask<>(operation, prototype, parts[0], pivotLeft, depth + 1);
+        right = new SetTask<>(operation, prototype, parts[2], pivotRight, depth + 1);
+      } else {
+        left = new SetTask<>(operation, prototype, pivotLeft, parts[0], depth + 1);
+        right = new SetTask<>(operation, prototype, pivotRight, parts[2], depth + 1);
+      }
+
+      Node<K, V> lower, upper;
+      if (depth < FORK_DEPTH) {
+        right.fork();
+        lower = left.compute();
+        upper = right.join();
+      } else {
+        lower = left.compute();
+        upper = right.compute();
+      }
+
+      boolean keepPivot = (operation == Operation.UNION)
+              || (operation == Operation.INTERSECTION && parts[1] != null);
+      return keepPivot ? work.joinNodes(lower, pivot, upper) : work.joinNodes(lower, upper);
+    }
+  }
+}
@@ -0,0 +1,294 @@
+package com.S1A4.Tree;
+
+
+/**
+ * CLRS insertion and deletion over int slot indexes, shared by the trees that keep their nodes
+ * in arrays or buffers instead of objects ({@link LongRedBlackTree}, {@link OffHeapRedBlackTree}).
+ * Subclasses store the links, colors, keys and values of the slots and do their own searches;
+ * this class links and unlinks slots, rebalances and recycles freed slots.
+ * <p>
+ * Slot 0 is the shared black NIL sentinel. The root is always black: the insert fixup needs
+ * every red parent to have a grandparent. The delete fixup writes the parent link of NIL.
+ */
+abstract class SlotRedBlackTree {
+
+  static final boolean RED = false;
+  static final boolean BLACK = true;
+
+  public static final int NIL = 0;
+
+  int root = NIL;
+  private int size = 0;
+  private int nextUnused = 1;
+  private int freeList = NIL; // recycled slots, chained through "left"
+
+  public int size() { return size; }
+
+  public boolean isEmpty() { return size == 0; }
+
+  // -- Slot storage -------------------------------------------------------------------------------
+
+  abstract int left(int node);
+
+  abstract int right(int node);
+
+  abstract int parent(int node);
+
+  abstract boolean color(int node);
+
+  abstract void setLeft(int node, int child);
+
+  abstract void setRight(int node, int child);
+
+  abstract void setParent(int node, int nodeParent);
+
+  abstract void setColor(int node, boolean color);
+
+  /** Number of slots the storage holds, NIL included. */
+  abstract int capacity();
+
+  /** Makes room for at least one more slot. */
+  abstract void grow();
+
+  // -- Insertion ----------------------------------------------------------------------------------
+
+  /** Links a new red slot below {@code nodeParent} (NIL for the root) and rebalances. */
+  final void link(int newNode, int nodeParent, boolean isLeft) {
+    setLeft(newNode, NIL);
+    setRight(newNode, NIL);
+    setParent(newNode, nodeParent);
+    setColor(newNode, RED);
+
+    if (nodeParent == NIL) {
+      root = newNode;
+    } else if (isLeft) {
+      setLeft(nodeParent, newNode);
+    } else {
+      setRight(nodeParent, newNode);
+    }
+    size++;
+
+    fixRedBlackPropertiesAfterInsert(newNode);
+  }
+
+  private void fixRedBlackPropertiesAfterInsert(int node) {
+    while (color(parent(node)) == RED) {
+      int nodeParent = parent(node);
+      int grandparent = parent(nodeParent);
+
+      if (nodeParent == left(grandparent)) {
+        int uncle = right(grandparent);
+        if (color(uncle) == RED) {
+          setColor(nodeParent, BLACK);
+          setColor(uncle, BLACK);
+          setColor(grandparent, RED);
+          node = grandparent;
+        } else {
+          if (node == right(nodeParent)) {
+            node = nodeParent;
+            rotateLeft(node);
+            nodeParent = parent(node);
+          }
+          setColor(nodeParent, BLACK);
+          setColor(grandparent, RED);
+          rotateRight(grandparent);
+        }
+      } else {
+        int uncle = left(grandparent);
+        if (color(uncle) == RED) {
+          setColor(nodeParent, BLACK);
+          setColor(uncle, BLACK);
+          setColor(grandparent, RED);
+          node = grandparent;
+        } else {
+          if (node == left(nodeParent)) {
+            node = nodeParent;
+            rotateRight(node);
+            nodeParent = parent(node);
+          }
+          setColor(nodeParent, BLACK);
+          setColor(grandparent, RED);
+          rotateLeft(grandparent);
+        }
+      }
+    }
+    setColor(root, BLACK);
+  }
+
+  // -- Deletion -----------------------------------------------------------------------------------
+
+  /** Unlinks {@code node}, rebalances and recycles its slot. */
+  final void unlink(int node) {
+    int movedUpNode;
+    boolean deletedNodeColor = color(node);
+
+    if (left(node) == NIL) {
+      movedUpNode = right(node);
+      transplant(node, right(node));
+    } else if (right(node) == NIL) {
+      movedUpNode = left(node);
+      transplant(node, left(node));
+    } else {
+      // Splice out the in-order successor and put it in place of "node"
+      int successor = right(node);
+      while (left(successor) != NIL) {
+        successor = left(successor);
+      }
+      deletedNodeColor = color(successor);
+      movedUpNode = right(successor);
+
+      if (parent(successor) == node) {
+        setParent(movedUpNode, successor);
+      } else {
+        transplant(successor, right(successor));
+        setRight(successor, right(node));
+        setParent(right(successor), successor);
+      }
+      transplant(node, successor);
+      setLeft(successor, left(node));
+      setParent(left(successor), successor);
+      setColor(successor, color(node));
+    }
+
+    if (deletedNodeColor == BLACK) {
+      fixRedBlackPropertiesAfterDelete(movedUpNode);
+    }
+
+    release(node);
+    size--;
+  }
+
+  private void fixRedBlackPropertiesAfterDelete(int node) {
+    while (node != root && color(node) == BLACK) {
+      int nodeParent = parent(node);
+
+      if (node == left(nodeParent)) {
+        int sibling = right(nodeParent);
+        if (color(sibling) == RED) {
+          setColor(sibling, BLACK);
+          setColor(nodeParent, RED);
+          rotateLeft(nodeParent);
+          sibling = right(nodeParent);
+        }
+        if (color(left(sibling)) == BLACK && color(right(sibling)) == BLACK) {
+          setColor(sibling, RED);
+          node = nodeParent;
+        } else {
+          if (color(right(sibling)) == BLACK) {
+            setColor(left(sibling), BLACK);
+            setColor(sibling, RED);
+            rotateRight(sibling);
+            sibling = right(nodeParent);
+          }
+          setColor(sibling, color(nodeParent));
+          setColor(nodeParent, BLACK);
+          setColor(right(sibling), BLACK);
+          rotateLeft(nodeParent);
+          node = root;
+        }
+      } else {
+        int sibling = left(nodeParent);
+        if (color(sibling) == RED) {
+          setColor(sibling, BLACK);
+          setColor(nodeParent, RED);
+          rotateRight(nodeParent);
+          sibling = left(nodeParent);
+        }
+        if (color(left(sibling)) == BLACK && color(right(sibling)) == BLACK) {
+          setColor(sibling, RED);
+          node = nodeParent;
+        } else {
+          if (color(left(sibling)) == BLACK) {
+            setColor(right(sibling), BLACK);
+            setColor(sibling, RED);
+            rotateLeft(sibling);
+            sibling = left(nodeParent);
+          }
+          setColor(sibling, color(nodeParent));
+          setColor(nodeParent, BLACK);
+          setColor(left(sibling), BLACK);
+          rotateRight(nodeParent);
+          node = root;
+        }
+      }
+    }
+    setColor(node, BLACK);
+  }
+
+  // -- Helpers for insertion and deletion ---------------------------------------------------------
+
+  private void rotateRight(int node) {
+    int leftChild = left(node);
+
+    setLeft(node, right(leftChild));
+    if (right(leftChild) != NIL) {
+      setParent(right(leftChild), node);
+    }
+
+    replaceParentsChild(parent(node), node, leftChild);
+    setRight(leftChild, node);
+    setParent(node, leftChild);
+  }
+
+  private void rotateLeft(int node) {
+    int rightChild = right(node);
+
+    setRight(node, left(rightChild));
+    if (left(rightChild) != NIL) {
+      setParent(left(rightChild), node);
+    }
+
+    replaceParentsChild(parent(node), node, rightChild);
+    setLeft(rightChild, node);
+    setParent(node, rightChild);
+  }
+
+  // Unlike RedBlackTree.replaceParentsChild, this also sets the parent of NIL, which the delete
+  // fixup relies on.
+  private void transplant(int oldChild, int newChild) {
+    replaceParentsChild(parent(oldChild), oldChild, newChild);
+  }
+
+  private void replaceParentsChild(int nodeParent, int oldChild, int newChild) {
+    if (nodeParent == NIL) {
+      root = newChild;
+    } else if (left(nodeParent) == oldChild) {
+      setLeft(nodeParent, newChild);
+    } else {
+      setRight(nodeParent, newChild);
+    }
+    setParent(newChild, nodeParent);
+  }
+
+  // -- Slot management ----------------------------------------------------------------------------
+
+  /** A free slot, recycled if possible; its links are set by {@link #link}. */
+  final int allocate() {
+    if (freeList != NIL) {
+      int node = freeList;
+      freeList = left(node);
+      return node;
+    }
+    if (nextUnused == Integer.MAX_VALUE) {
+      throw new IllegalStateException("Tree is full");
+    }
+    if (nextUnused == capacity()) {
+      grow();
+    }
+    return nextUnused++;
+  }
+
+  /** Called when {@code node} is freed, before it goes on the free list. */
+  void release(int node) {
+    setLeft(node, freeList);
+    freeList = node;
+  }
+
+  /** Forgets all slots; the storage is kept. */
+  void reset() {
+    root = NIL;
+    size = 0;
+    nextUnused = 1;
+    freeList = NIL;
+  }
+}
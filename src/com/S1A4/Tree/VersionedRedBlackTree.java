@@ -0,0 +1,43 @@
+package com.S1A4.Tree;
+
+
+import com.S1A4.Pair;
+
+import java.util.Optional;
+
+/**
+ * Live {@link BinarySearchTree} over {@link PersistentRedBlackTree} versions. Writers are
+ * serialized and publish a new version per change; readers and {@link #snapshot()} only read
+ * the current version, so they never block and a snapshot never sees later writes.
+ */
+public class VersionedRedBlackTree<K extends Comparable<K>, V> implements BinarySearchTree<K, V> {
+
+  private volatile PersistentRedBlackTree<K, V> current = PersistentRedBlackTree.empty();
+
+  /** Point-in-time view of the tree, in O(1). */
+  public PersistentRedBlackTree<K, V> snapshot() { return current; }
+
+  public int size() { return current.size(); }
+
+  @Override
+  public Node<K, V> searchNode(K key) { return current.searchNode(key); }
+
+  public boolean contains(K key) { return current.contains(key); }
+
+  public Optional<V> get(K key) { return current.get(key); }
+
+  @Override
+  public synchronized void insertNode(Pair<K, V> toAdd) {
+    current = current.insert(toAdd);
+  }
+
+  @Override
+  public synchronized Optional<V> deleteNode(K key) {
+    PersistentRedBlackTree<K, V> version = current;
+    Optional<V> value = version.get(key);
+    if (value.isPresent()) {
+      current = version.delete(key);
+    }
+    return value;
+  }
+}
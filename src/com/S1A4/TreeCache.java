@@ -0,0 +1,323 @@
+package com.S1A4;
+
+import com.S1A4.Tree.Node;
+import com.S1A4.Tree.RedBlackTree;
+
+import java.util.Optional;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded cache with optional expiry. Entries live once, in a {@link TreeifiedHashMap}; two
+ * {@link RedBlackTree}s index the same entry objects by expiry time and by eviction order (last
+ * access for LRU, access count then last access for LFU). Lookups, updates and single evictions
+ * are O(log n).
+ * <p>
+ * When the cache is full, a put evicts the first entry of the eviction order. Expired entries are
+ * dropped when they are read and, in batches, by {@link #evictExpired()}, which
+ * {@link #scheduleExpiry} runs on a scheduler. All methods take one lock. Null keys and values are
+ * not permitted.
+ */
+public class TreeCache<K extends Comparable<K>, V> {
+
+    public enum Eviction { LRU, LFU }
+
+    static final int EXPIRY_BATCH = 256;
+    private static final long NO_EXPIRY = Long.MAX_VALUE;
+
+    // Index key: "minor" is a per-cache tick, which makes every key unique
+    static final class Slot implements Comparable<Slot> {
+        final long major;
+        final long minor;
+
+        Slot(long major, long minor) {
+            this.major = major;
+            this.minor = minor;
+        }
+
+        @Override
+        public int compareTo(Slot other) {
+            int cmp = Long.compare(major, other.major);
+            return (cmp != 0) ? cmp : Long.compare(minor, other.minor);
+        }
+    }
+
+    static final class Entry<K, V> {
+        final K key;
+        V value;
+        long expiresAt;
+        long hits;
+        Slot expirySlot;
+        Slot orderSlot;
+
+        Entry(K key) {
+            this.key = key;
+        }
+
+        boolean isExpired(long now) { return expiresAt != NO_EXPIRY && expiresAt - now <= 0; }
+    }
+
+    private final int maxSize;
+    private final Eviction eviction;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final TreeifiedHashMap<K, Entry<K, V>> entries = new TreeifiedHashMap<>();
+    private final RedBlackTree<Slot, Entry<K, V>> expiryIndex = new RedBlackTree<>();
+    private final RedBlackTree<Slot, Entry<K, V>> orderIndex = new RedBlackTree<>();
+    private long tick = 0;
+    private long defaultTtlNanos = 0;
+    private long evictedCount = 0;
+    private long expiredCount = 0;
+
+    public TreeCache(int maxSize) { this(maxSize, Eviction.LRU); }
+
+    public TreeCache(int maxSize, Eviction eviction) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Illegal maximum size: " + maxSize);
+        }
+        if (eviction == null) {
+            throw new IllegalArgumentException("Eviction policy is null");
+        }
+        this.maxSize = maxSize;
+        this.eviction = eviction;
+    }
+
+    /** Time to live of entries put without one; 0 means they never expire. */
+    public void setDefaultTtl(long ttl, TimeUnit unit) {
+        if (ttl < 0) {
+            throw new IllegalArgumentException("Illegal time to live: " + ttl);
+        }
+        lock.lock();
+        try {
+            defaultTtlNanos = unit.toNanos(ttl);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int maxSize() { return maxSize; }
+
+    public Eviction eviction() { return eviction; }
+
+    // -- Lookups ------------------------------------------------------------------------------------
+
+    public Optional<V> get(K key) {
+        lock.lock();
+        try {
+            Entry<K, V> entry = live(key, System.nanoTime());
+            if (entry == null) {
+                return Optional.empty();
+            }
+            entry.hits++;
+            reorder(entry);
+            return Optional.of(entry.value);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Like {@link #get} but leaves the eviction order alone. */
+    public boolean contains(K key) {
+        lock.lock();
+        try {
+            return live(key, System.nanoTime()) != null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Number of entries, expired ones that were not dropped yet included. */
+    public int size() {
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Entry of "key" unless it is missing or expired; an expired entry is dropped
+    private Entry<K, V> live(K key, long now) {
+        Entry<K, V> entry = entries.get(key).orElse(null);
+        if (entry != null && entry.isExpired(now)) {
+            unlink(entry);
+            expiredCount++;
+            return null;
+        }
+        return entry;
+    }
+
+    // -- Updates ------------------------------------------------------------------------------------
+
+    public Optional<V> put(K key, V value) {
+        lock.lock();
+        try {
+            return put(key, value, defaultTtlNanos);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Puts with its own time to live; 0 means the entry never expires. */
+    public Optional<V> put(K key, V value, long ttl, TimeUnit unit) {
+        if (ttl < 0) {
+            throw new IllegalArgumentException("Illegal time to live: " + ttl);
+        }
+        lock.lock();
+        try {
+            return put(key, value, unit.toNanos(ttl));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Optional<V> put(K key, V value, long ttlNanos) {
+        if (value == null) {
+            throw new IllegalArgumentException("Null values are not permitted");
+        }
+        long now = System.nanoTime();
+        Entry<K, V> entry = live(key, now);
+        Optional<V> oldValue;
+        if (entry != null) {
+            oldValue = Optional.of(entry.value);
+            if (entry.expirySlot != null) {
+                expiryIndex.deleteNode(entry.expirySlot);
+            }
+        } else {
+            oldValue = Optional.empty();
+            if (entries.size() >= maxSize) {
+                evictOne();
+            }
+            entry = new Entry<>(key);
+            entries.put(key, entry);
+        }
+
+        entry.value = value;
+        entry.hits++;
+        // Entries that never expire stay out of the expiry index
+        entry.expiresAt = (ttlNanos == 0 || now + ttlNanos < now) ? NO_EXPIRY : now + ttlNanos;
+        if (entry.expiresAt == NO_EXPIRY) {
+            entry.expirySlot = null;
+        } else {
+            entry.expirySlot = new Slot(entry.expiresAt, ++tick);
+            expiryIndex.insertNode(new Pair<>(entry.expirySlot, entry));
+        }
+        reorder(entry);
+        return oldValue;
+    }
+
+    public Optional<V> remove(K key) {
+        lock.lock();
+        try {
+            Entry<K, V> entry = live(key, System.nanoTime());
+            if (entry == null) {
+                return Optional.empty();
+            }
+            unlink(entry);
+            return Optional.of(entry.value);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void clear() {
+        lock.lock();
+        try {
+            entries.clear();
+            expiryIndex.setRoot(null);
+            orderIndex.setRoot(null);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Moves the entry to its new place in the eviction order
+    private void reorder(Entry<K, V> entry) {
+        if (entry.orderSlot != null) {
+            orderIndex.deleteNode(entry.orderSlot);
+        }
+        entry.orderSlot = (eviction == Eviction.LFU) ? new Slot(entry.hits, ++tick) : new Slot(++tick, 0);
+        orderIndex.insertNode(new Pair<>(entry.orderSlot, entry));
+    }
+
+    private void unlink(Entry<K, V> entry) {
+        entries.remove(entry.key);
+        if (entry.expirySlot != null) {
+            expiryIndex.deleteNode(entry.expirySlot);
+        }
+        orderIndex.deleteNode(entry.orderSlot);
+    }
+
+    // -- Eviction -----------------------------------------------------------------------------------
+
+    // An expired entry goes first, so a full cache doesn't evict live entries for dead ones
+    private void evictOne() {
+        Node<Slot, Entry<K, V>> next = expiryIndex.first();
+        if (next != null && next.getData().getValue().isExpired(System.nanoTime())) {
+            unlink(next.getData().getValue());
+            expiredCount++;
+        } else {
+            unlink(orderIndex.first().getData().getValue());
+            evictedCount++;
+        }
+    }
+
+    /**
+     * Drops every expired entry, at most {@link #EXPIRY_BATCH} per lock hold so readers get in
+     * between batches.
+     *
+     * @return the number of entries dropped
+     */
+    public int evictExpired() {
+        int dropped = 0;
+        long now = System.nanoTime();
+        boolean more = true;
+        while (more) {
+            lock.lock();
+            try {
+                int batch = 0;
+                Node<Slot, Entry<K, V>> next = expiryIndex.first();
+                while (next != null && batch < EXPIRY_BATCH && next.getData().getValue().isExpired(now)) {
+                    unlink(next.getData().getValue());
+                    batch++;
+                    next = expiryIndex.first();
+                }
+                expiredCount += batch;
+                dropped += batch;
+                more = (batch == EXPIRY_BATCH);
+            } finally {
+                lock.unlock();
+            }
+        }
+        return dropped;
+    }
+
+    /** Runs {@link #evictExpired()} on {@code scheduler} every {@code period}; cancel the future to stop. */
+    public ScheduledFuture<?> scheduleExpiry(ScheduledExecutorService scheduler, long period, TimeUnit unit) {
+        if (period <= 0) {
+            throw new IllegalArgumentException("Illegal period: " + period);
+        }
+        return scheduler.scheduleWithFixedDelay(this::evictExpired, period, period, unit);
+    }
+
+    /** Entries evicted to make room, since creation. */
+    public long evictedCount() {
+        lock.lock();
+        try {
+            return evictedCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Entries dropped because they expired, since creation. */
+    public long expiredCount() {
+        lock.lock();
+        try {
+            return expiredCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
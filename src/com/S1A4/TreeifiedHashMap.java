@@ -0,0 +1,208 @@
+package com.S1A4;
+
+import com.S1A4.Metrics.BucketMetrics;
+
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Hash map that owns a power-of-two table of {@link ListTree} buckets.
+ * Bucket form (list or red-black tree) follows the ListTree thresholds,
+ * but no bucket is treeified while the table is smaller than
+ * {@link #MIN_TREEIFY_CAPACITY}; the table is grown instead, like Java8 HashMap.
+ * Null keys and values are not permitted.
+ * <p>
+ * Keys are placed by {@code hashCode()} but matched within a bucket by {@code compareTo}, never
+ * by {@code equals}. The natural ordering of the key type must therefore be consistent with
+ * equals: two keys that compare as 0 but hash apart (BigDecimal 1.0 and 1.00) are two entries
+ * or one, depending on whether they happen to share a bucket.
+ */
+public class TreeifiedHashMap<K extends Comparable<K>, V> {
+
+    static final int DEFAULT_INITIAL_CAPACITY = 16;
+    static final int MAXIMUM_CAPACITY = 1 << 30;
+    static final float DEFAULT_LOAD_FACTOR = 0.75f;
+    static final int MIN_TREEIFY_CAPACITY = 64;
+
+    private final float loadFactor;
+    private ListTree<K, V>[] table;
+    private int threshold;
+    private int size = 0;
+    private BucketMetrics metrics;
+    private BucketPolicy policy = BucketPolicy.DEFAULT;
+    private int conversionStep = 0;
+    private boolean lookupFilter = false;
+
+    public TreeifiedHashMap() { this(DEFAULT_INITIAL_CAPACITY, DEFAULT_LOAD_FACTOR); }
+
+    public TreeifiedHashMap(int initialCapacity) { this(initialCapacity, DEFAULT_LOAD_FACTOR); }
+
+    public TreeifiedHashMap(int initialCapacity, float loadFactor) {
+        if (initialCapacity < 0) {
+            throw new IllegalArgumentException("Illegal initial capacity: " + initialCapacity);
+        }
+        if (loadFactor <= 0 || Float.isNaN(loadFactor)) {
+            throw new IllegalArgumentException("Illegal load factor: " + loadFactor);
+        }
+        this.loadFactor = loadFactor;
+        this.table = newTable(tableSizeFor(initialCapacity));
+        this.threshold = (int) (table.length * loadFactor);
+    }
+
+    static int spread(int h) { return h ^ (h >>> 16); }
+
+    static int tableSizeFor(int cap) {
+        int n = -1 >>> Integer.numberOfLeadingZeros(Math.max(cap, 1) - 1);
+        return (n < 0) ? 1 : (n >= MAXIMUM_CAPACITY) ? MAXIMUM_CAPACITY : n + 1;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static <K extends Comparable<K>, V> ListTree<K, V>[] newTable(int capacity) {
+        return (ListTree<K, V>[]) new ListTree[capacity];
+    }
+
+    private static int indexFor(int hash, int length) { return hash & (length - 1); }
+
+    /** Shares one set of counters between all buckets, current and future; null detaches them. */
+    public void setMetrics(BucketMetrics metrics) {
+        this.metrics = metrics;
+        for (ListTree<K, V> bucket : table) {
+            if (bucket != null) { bucket.setMetrics(metrics); }
+        }
+    }
+
+    public BucketMetrics getMetrics() { return metrics; }
+
+    /** Policy for all buckets, current and future. */
+    public void setBucketPolicy(BucketPolicy policy) {
+        this.policy = Objects.requireNonNull(policy, "policy");
+        for (ListTree<K, V> bucket : table) {
+            if (bucket != null) { bucket.setPolicy(policy); }
+        }
+    }
+
+    public BucketPolicy getBucketPolicy() { return policy; }
+
+    /** See {@link ListTree#setIncrementalConversion}; applies to all buckets, current and future. */
+    public void setIncrementalConversion(int entriesPerOp) {
+        for (ListTree<K, V> bucket : table) {
+            if (bucket != null) { bucket.setIncrementalConversion(entriesPerOp); }
+        }
+        this.conversionStep = entriesPerOp;
+    }
+
+    public int getIncrementalConversion() { return conversionStep; }
+
+    /** See {@link ListTree#setLookupFilter}; applies to all buckets, current and future. */
+    public void setLookupFilter(boolean enabled) {
+        this.lookupFilter = enabled;
+        for (ListTree<K, V> bucket : table) {
+            if (bucket != null) { bucket.setLookupFilter(enabled); }
+        }
+    }
+
+    public boolean hasLookupFilter() { return lookupFilter; }
+
+    private ListTree<K, V> newBucket() {
+        ListTree<K, V> bucket = new ListTree<>();
+        if (metrics != null) { bucket.setMetrics(metrics); }
+        bucket.setPolicy(policy);
+        bucket.setIncrementalConversion(conversionStep);
+        if (lookupFilter) { bucket.setLookupFilter(true); }
+        return bucket;
+    }
+
+    public Optional<V> put(K key, V value) { return put(new Pair<>(key, value)); }
+
+    public Optional<V> put(Pair<K, V> pair) {
+        Objects.requireNonNull(pair.getKey(), "key");
+        Objects.requireNonNull(pair.getValue(), "value");
+
+        int index = indexFor(spread(pair.getKey().hashCode()), table.length);
+        ListTree<K, V> bucket = table[index];
+        if (bucket == null) {
+            bucket = table[index] = newBucket();
+        } else {
+            Optional<V> oldValue = bucket.replace(pair);
+            if (oldValue.isPresent()) { return oldValue; }
+        }
+
+        boolean mayTreeify = table.length >= MIN_TREEIFY_CAPACITY;
+        bucket.put(pair, mayTreeify);
+
+        if (++size > threshold
+                || (!mayTreeify && bucket.size() >= ListTree.TREEIFY_THRESHOLD)) {
+            resize();
+        }
+        return Optional.empty();
+    }
+
+    public Optional<V> get(K key) {
+        ListTree<K, V> bucket = table[indexFor(spread(key.hashCode()), table.length)];
+        return (bucket == null) ? Optional.empty() : bucket.get(key);
+    }
+
+    public boolean contains(K key) {
+        ListTree<K, V> bucket = table[indexFor(spread(key.hashCode()), table.length)];
+        return bucket != null && bucket.contains(key);
+    }
+
+    public Optional<V> remove(K key) {
+        int index = indexFor(spread(key.hashCode()), table.length);
+        ListTree<K, V> bucket = table[index];
+        if (bucket == null) { return Optional.empty(); }
+
+        Optional<V> value = bucket.remove(key);
+        if (value.isPresent()) {
+            size--;
+            if (bucket.isEmpty()) { table[index] = null; }
+        }
+        return value;
+    }
+
+    public int size() { return size; }
+
+    public boolean isEmpty() { return size == 0; }
+
+    public int capacity() { return table.length; }
+
+    // Bucket that holds or would hold "key", or null; for tests
+    ListTree<K, V> bucketFor(K key) { return table[indexFor(spread(key.hashCode()), table.length)]; }
+
+    public void clear() {
+        table = newTable(table.length);
+        size = 0;
+    }
+
+    // Every bucket of the old table is split into a "low" half, which stays at the same index,
+    // and a "high" half, which moves to index + oldCapacity. Rebuilt halves pick their own form.
+    private void resize() {
+        ListTree<K, V>[] oldTable = table;
+        int oldCapacity = oldTable.length;
+        if (oldCapacity >= MAXIMUM_CAPACITY) {
+            threshold = Integer.MAX_VALUE;
+            return;
+        }
+
+        int newCapacity = oldCapacity << 1;
+        ListTree<K, V>[] newTable = newTable(newCapacity);
+        boolean mayTreeify = newCapacity >= MIN_TREEIFY_CAPACITY;
+
+        for (int i = 0; i < oldCapacity; i++) {
+            ListTree<K, V> bucket = oldTable[i];
+            if (bucket == null) { continue; }
+
+            ListTree<K, V> low = newBucket();
+            ListTree<K, V> high = newBucket();
+            bucket.forEach(pair -> {
+                if ((spread(pair.getKey().hashCode()) & oldCapacity) == 0) { low.put(pair, mayTreeify); }
+                else { high.put(pair, mayTreeify); }
+            });
+            if (!low.isEmpty()) { newTable[i] = low; }
+            if (!high.isEmpty()) { newTable[i + oldCapacity] = high; }
+        }
+
+        table = newTable;
+        threshold = (newCapacity < MAXIMUM_CAPACITY) ? (int) (newCapacity * loadFactor) : Integer.MAX_VALUE;
+    }
+}
@@ -0,0 +1,136 @@
+package com.S1A4.Codec;
+
+import com.S1A4.ListTree;
+import com.S1A4.Pair;
+import com.S1A4.Tree.RedBlackTree;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TreeCodecTest {
+
+    // Small blocks so that every tree spans several of them
+    private final TreeCodec<Integer, String> codec = new TreeCodec<>(Serializers.INTEGER, Serializers.STRING, 64);
+
+    private static RedBlackTree<Integer, String> randomTree(int size, long seed) {
+        ArrayList<Integer> keys = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            keys.add(i * 3);
+        }
+        Collections.shuffle(keys, new Random(seed));
+        RedBlackTree<Integer, String> tree = new RedBlackTree<>();
+        for (int key : keys) {
+            // Every 7th value is larger than a block
+            tree.insertNode(new Pair<>(key, "v" + key + (key % 7 == 0 ? "x".repeat(200) : "")));
+        }
+        return tree;
+    }
+
+    private static void assertSameContent(RedBlackTree<Integer, String> expected, RedBlackTree<Integer, String> actual) {
+        assertEquals(expected.size(), actual.size());
+        Iterator<Pair<Integer, String>> e = expected.iterator();
+        Iterator<Pair<Integer, String>> a = actual.iterator();
+        while (e.hasNext()) {
+            Pair<Integer, String> pair = a.next();
+            Pair<Integer, String> want = e.next();
+            assertEquals(want.getKey(), pair.getKey());
+            assertEquals(want.getValue(), pair.getValue());
+        }
+        assertFalse(a.hasNext());
+    }
+
+    private byte[] encode(RedBlackTree<Integer, String> tree) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        codec.write(tree, Channels.newChannel(out));
+        return out.toByteArray();
+    }
+
+    private static ReadableByteChannel channel(byte[] bytes) {
+        return Channels.newChannel(new ByteArrayInputStream(bytes));
+    }
+
+    @Test
+    void treeRoundTrip() throws IOException {
+        for (int size : new int[]{0, 1, 5, 100, 5000}) {
+            RedBlackTree<Integer, String> tree = randomTree(size, size);
+            assertSameContent(tree, codec.readTree(channel(encode(tree))));
+        }
+    }
+
+    @Test
+    void bucketRoundTrip() throws IOException {
+        for (int size : new int[]{0, 3, 7, 8, 50}) {
+            ListTree<Integer, String> bucket = new ListTree<>();
+            for (int i = size - 1; i >= 0; i--) {
+                bucket.put(new Pair<>(i, "w" + i));
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            codec.write(bucket, Channels.newChannel(out));
+
+            ListTree<Integer, String> read = codec.readListTree(channel(out.toByteArray()));
+            assertEquals(size, read.size());
+            assertEquals(size < 8, read.isListForm());
+            for (int i = 0; i < size; i++) {
+                assertEquals("w" + i, read.get(i).orElseThrow());
+            }
+        }
+    }
+
+    @Test
+    void readsBackToBackStreamsFromOneChannel() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ArrayList<RedBlackTree<Integer, String>> trees = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            RedBlackTree<Integer, String> tree = randomTree(i * 300, i);
+            trees.add(tree);
+            codec.write(tree, Channels.newChannel(out));
+        }
+
+        ReadableByteChannel in = channel(out.toByteArray());
+        for (RedBlackTree<Integer, String> tree : trees) {
+            assertSameContent(tree, codec.readTree(in));
+        }
+        assertEquals(-1, in.read(ByteBuffer.allocate(1)));
+    }
+
+    @Test
+    void truncatedStreamFails() throws IOException {
+        byte[] bytes = encode(randomTree(100, 1));
+        for (int cut : new int[]{3, 8, bytes.length / 2, bytes.length - 1}) {
+            byte[] truncated = Arrays.copyOf(bytes, cut);
+            assertThrows(EOFException.class, () -> codec.readTree(channel(truncated)));
+        }
+    }
+
+    @Test
+    void corruptBlockLengthFailsWithoutAllocating() throws IOException {
+        byte[] bytes = encode(randomTree(100, 1));
+        // First block length, right after the 16-byte header
+        bytes[TreeCodec.HEADER_SIZE] = 0x7f;
+        IOException e = assertThrows(IOException.class, () -> codec.readTree(channel(bytes)));
+        assertEquals("Corrupt block header", e.getMessage());
+    }
+
+    @Test
+    void rejectsForeignStream() {
+        byte[] bytes = new byte[32];
+        IOException e = assertThrows(IOException.class, () -> codec.readTree(channel(bytes)));
+        assertTrue(e.getMessage().startsWith("Not a tree stream"));
+    }
+}
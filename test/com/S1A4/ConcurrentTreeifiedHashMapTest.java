@@ -0,0 +1,94 @@
+package com.S1A4;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConcurrentTreeifiedHashMapTest {
+
+    private static final int THREADS = 4;
+    private static final int KEYS_PER_THREAD = 3000;
+
+    // Few distinct hashes, so buckets treeify and listify while the table resizes
+    static final class Collider implements Comparable<Collider> {
+        final int id;
+
+        Collider(int id) { this.id = id; }
+
+        @Override
+        public int compareTo(Collider other) { return Integer.compare(id, other.id); }
+
+        @Override
+        public boolean equals(Object other) { return other instanceof Collider && ((Collider) other).id == id; }
+
+        @Override
+        public int hashCode() { return id % 97; }
+
+        @Override
+        public String toString() { return "Collider(" + id + ")"; }
+    }
+
+    @Test
+    void concurrentUpdatesMatchHashMap() throws Exception {
+        ConcurrentTreeifiedHashMap<Collider, Integer> map = new ConcurrentTreeifiedHashMap<>(2);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<Map<Integer, Integer>>> workers = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                int thread = t;
+                workers.add(executor.submit(() -> churn(map, thread)));
+            }
+
+            Map<Integer, Integer> expected = new HashMap<>();
+            for (Future<Map<Integer, Integer>> worker : workers) {
+                expected.putAll(worker.get());
+            }
+
+            assertEquals(expected.size(), map.size());
+            for (int id = 0; id < THREADS * KEYS_PER_THREAD; id++) {
+                assertEquals(Optional.ofNullable(expected.get(id)), map.get(new Collider(id)), "key " + id);
+            }
+            assertTrue(map.capacity() > 2);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    // Random puts and removes on the keys of one thread, checked against a HashMap as they go
+    private static Map<Integer, Integer> churn(ConcurrentTreeifiedHashMap<Collider, Integer> map, int thread) {
+        Random random = new Random(thread);
+        Map<Integer, Integer> expected = new HashMap<>();
+        for (int op = 0; op < 50000; op++) {
+            // Inserts dominate early so the table keeps growing while the other threads work
+            int id = thread * KEYS_PER_THREAD + random.nextInt(KEYS_PER_THREAD);
+            Collider key = new Collider(id);
+            if (random.nextInt(3) > 0) {
+                assertEquals(Optional.ofNullable(expected.put(id, op)), map.put(key, op));
+            } else {
+                assertEquals(Optional.ofNullable(expected.remove(id)), map.remove(key));
+            }
+            assertEquals(Optional.ofNullable(expected.get(id)), map.get(key));
+        }
+        return expected;
+    }
+
+    @Test
+    void rejectsNulls() {
+        ConcurrentTreeifiedHashMap<Collider, Integer> map = new ConcurrentTreeifiedHashMap<>();
+        assertThrows(NullPointerException.class, () -> map.put(null, 1));
+        assertThrows(NullPointerException.class, () -> map.put(new Collider(1), null));
+        assertEquals(0, map.size());
+    }
+}
@@ -0,0 +1,99 @@
+package com.S1A4.Filter;
+
+import com.S1A4.ListTree;
+import com.S1A4.Pair;
+import com.S1A4.Tree.RedBlackTree;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CountingBloomFilterTest {
+
+    @Test
+    void noFalseNegativesAndFewFalsePositives() {
+        CountingBloomFilter<Integer> filter = new CountingBloomFilter<>(1000);
+        for (int i = 0; i < 1000; i++) {
+            filter.add(i);
+        }
+        for (int i = 0; i < 1000; i += 2) {
+            filter.remove(i);
+        }
+        for (int i = 1; i < 1000; i += 2) {
+            assertTrue(filter.mightContain(i));
+        }
+        int falsePositives = 0;
+        for (int i = 1000; i < 11000; i++) {
+            if (filter.mightContain(i)) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < 500, "false positives: " + falsePositives);
+    }
+
+    @Test
+    void filteredTreeMatchesTreeMap() {
+        Random random = new Random(3);
+        RedBlackTree<Integer, Integer> tree = new RedBlackTree<>();
+        tree.setLookupFilter(true);
+        TreeMap<Integer, Integer> expected = new TreeMap<>();
+
+        for (int round = 0; round < 20; round++) {
+            for (int i = 0; i < 500; i++) {
+                int key = random.nextInt(3000);
+                if (random.nextBoolean()) {
+                    if (expected.put(key, i) == null) {
+                        tree.insertNode(new Pair<>(key, i));
+                    } else {
+                        tree.replace(new Pair<>(key, i));
+                    }
+                } else {
+                    assertEquals(expected.remove(key) != null, tree.deleteNode(key).isPresent());
+                }
+            }
+
+            // Bulk changes rebuild the filter
+            List<Pair<Integer, Integer>> batch = new ArrayList<>();
+            for (int key = 3000 + round * 100; key < 3050 + round * 100; key++) {
+                batch.add(new Pair<>(key, key));
+                expected.put(key, key);
+            }
+            tree.insertAll(batch);
+
+            for (int key = -10; key < 6000; key++) {
+                assertEquals(expected.containsKey(key), tree.contains(key), "key " + key);
+            }
+        }
+        assertEquals(expected.size(), tree.size());
+    }
+
+    @Test
+    void filteredBucketMatchesTreeMap() {
+        Random random = new Random(4);
+        ListTree<Integer, Integer> bucket = new ListTree<>();
+        bucket.setLookupFilter(true);
+        bucket.setIncrementalConversion(2);
+        TreeMap<Integer, Integer> expected = new TreeMap<>();
+
+        for (int i = 0; i < 20000; i++) {
+            int key = random.nextInt(40);
+            if (random.nextInt(3) > 0) {
+                if (expected.put(key, i) == null) {
+                    bucket.put(new Pair<>(key, i));
+                } else {
+                    bucket.replace(new Pair<>(key, i));
+                }
+            } else {
+                assertEquals(expected.remove(key) != null, bucket.remove(key).isPresent());
+            }
+            int probe = random.nextInt(50);
+            assertEquals(expected.containsKey(probe), bucket.contains(probe), "key " + probe);
+            assertEquals(expected.size(), bucket.size());
+        }
+    }
+}
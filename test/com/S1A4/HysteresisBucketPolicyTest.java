@@ -0,0 +1,108 @@
+package com.S1A4;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HysteresisBucketPolicyTest {
+
+    private static final int CYCLES = 100;
+
+    @Test
+    void sizeInsideTheBandNeverConverts() {
+        ListTree<Integer, Integer> bucket = filled(new HysteresisBucketPolicy(), ListTree.UNTREEIFY_THRESHOLD);
+
+        // 6 <-> 7 in list form; the misses keep the cost check in favor of a tree at 8
+        for (int cycle = 0; cycle < CYCLES; cycle++) {
+            bucket.put(new Pair<>(100, 100));
+            bucket.get(-1);
+            bucket.remove(100);
+        }
+        assertEquals(0, bucket.getConversions());
+
+        // 7 <-> 8 once treeified at 8
+        bucket.put(new Pair<>(100, 100));
+        bucket.put(new Pair<>(101, 101));
+        assertFalse(bucket.isListForm());
+        for (int cycle = 0; cycle < CYCLES; cycle++) {
+            bucket.remove(101);
+            bucket.put(new Pair<>(101, 101));
+        }
+        assertFalse(bucket.isListForm());
+        assertEquals(1, bucket.getConversions());
+    }
+
+    @Test
+    void withoutCooldownEveryCrossingConverts() {
+        int[] gaps = crossBand(new HysteresisBucketPolicy(ListTree.TREEIFY_THRESHOLD, ListTree.UNTREEIFY_THRESHOLD, 0));
+        assertEquals(2 * CYCLES, gaps.length);
+    }
+
+    @Test
+    void cooldownSpacesConversionsOutAfterTheFreeOnes() {
+        int cooldown = HysteresisBucketPolicy.DEFAULT_COOLDOWN;
+        int[] gaps = crossBand(new HysteresisBucketPolicy());
+
+        // The free conversions happen at the first crossings, within the first two cycles; after
+        // that, each conversion waits out the cooldown and then happens at the next crossing,
+        // within one cycle of 8 operations
+        for (int i = HysteresisBucketPolicy.FREE_CONVERSIONS; i < gaps.length; i++) {
+            assertTrue(gaps[i] >= cooldown, "conversion " + i + " only " + gaps[i] + " operations after the previous");
+            assertTrue(gaps[i] < cooldown + 8, "conversion " + i + " held back for " + gaps[i] + " operations");
+        }
+        // 14 of the 200 conversions fixed thresholds make (see withoutCooldownEveryCrossingConverts)
+        assertEquals(14, gaps.length);
+    }
+
+    @Test
+    void rejectsAnEmptyBandAndNegativeCooldown() {
+        assertThrows(IllegalArgumentException.class, () -> new HysteresisBucketPolicy(8, 8, 64));
+        assertThrows(IllegalArgumentException.class, () -> new HysteresisBucketPolicy(8, -1, 64));
+        assertThrows(IllegalArgumentException.class, () -> new HysteresisBucketPolicy(8, 6, -1));
+    }
+
+    private static ListTree<Integer, Integer> filled(BucketPolicy policy, int size) {
+        ListTree<Integer, Integer> bucket = new ListTree<>();
+        bucket.setPolicy(policy);
+        for (int key = 0; key < size; key++) {
+            bucket.put(new Pair<>(key, key));
+        }
+        return bucket;
+    }
+
+    // Swings the size 6 -> 8 -> 6 with a few list-probing misses in between, so that the cost
+    // check favors a tree at 8; returns the operations between consecutive conversions
+    private static int[] crossBand(BucketPolicy policy) {
+        ListTree<Integer, Integer> bucket = filled(policy, ListTree.UNTREEIFY_THRESHOLD);
+        int[] gaps = new int[2 * CYCLES];
+        int conversions = 0;
+        int ops = 0;
+        int lastConversion = 0;
+
+        for (int cycle = 0; cycle < CYCLES; cycle++) {
+            for (int op = 0; op < 8; op++) {
+                switch (op) {
+                    case 0: case 1: case 2: case 3:
+                        bucket.get(-1);
+                        break;
+                    case 4: case 5:
+                        bucket.put(new Pair<>(100 + op, op));
+                        break;
+                    default:
+                        bucket.remove(100 + op - 2);
+                }
+                ops++;
+                if (bucket.getConversions() > conversions) {
+                    gaps[conversions++] = ops - lastConversion;
+                    lastConversion = ops;
+                }
+            }
+        }
+        int[] result = new int[conversions];
+        System.arraycopy(gaps, 0, result, 0, conversions);
+        return result;
+    }
+}
@@ -0,0 +1,105 @@
+package com.S1A4;
+
+import com.S1A4.Metrics.BucketMetrics;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ListTreeConversionTest {
+
+    private static final String EVENT = "com.S1A4.BucketConversion";
+
+    @Test
+    void listifyListsTheTreeInLevelOrder() {
+        ListTree<Integer, Integer> bucket = new ListTree<>();
+        for (int key = 0; key < 20; key++) {
+            bucket.put(new Pair<>(key * 7 % 20, key));
+        }
+        assertFalse(bucket.isListForm());
+
+        List<Pair<Integer, Integer>> levelOrder = new ArrayList<>();
+        for (Iterator<Pair<Integer, Integer>> pairs = bucket.treeContainer.levelOrderIterator(); pairs.hasNext(); ) {
+            levelOrder.add(pairs.next());
+        }
+        bucket.listify();
+
+        List<Pair<Integer, Integer>> listed = new ArrayList<>();
+        for (com.S1A4.List.List.Node<Integer, Integer> node = bucket.listContainer.getHead(); node != null;
+                node = node.getNext()) {
+            listed.add(node.getData());
+        }
+        assertEquals(levelOrder, listed);
+        assertEquals(20, bucket.listContainer.size());
+        assertNull(bucket.treeContainer.getRoot());
+    }
+
+    @Test
+    void incrementalConversionsEmitOneEventEach() throws Exception {
+        BucketMetrics metrics = new BucketMetrics();
+        ListTree<Integer, Integer> bucket = new ListTree<>();
+        bucket.setMetrics(metrics);
+        bucket.setIncrementalConversion(2);
+
+        List<RecordedEvent> events;
+        try (Recording recording = new Recording()) {
+            recording.enable(EVENT).withThreshold(Duration.ZERO);
+            recording.start();
+
+            int key = 0;
+            while (!bucket.isMigrating()) {
+                bucket.put(new Pair<>(key, key));
+                key++;
+            }
+            int treeifySize = key;
+            // A migration in progress has not converted yet
+            assertEquals(0, metrics.snapshot().getTreeifies());
+
+            while (bucket.isMigrating()) {
+                bucket.get(0);
+            }
+            assertFalse(bucket.isListForm());
+            assertEquals(1, metrics.snapshot().getTreeifies());
+
+            while (!bucket.isMigrating()) {
+                bucket.remove(--key);
+            }
+            int listifySize = key;
+            while (bucket.isMigrating()) {
+                bucket.get(0);
+            }
+            assertTrue(bucket.isListForm());
+            assertEquals(1, metrics.snapshot().getListifies());
+
+            recording.stop();
+            Path file = Files.createTempFile("conversions", ".jfr");
+            try {
+                recording.dump(file);
+                events = RecordingFile.readAllEvents(file).stream()
+                        .filter(event -> event.getEventType().getName().equals(EVENT))
+                        .collect(Collectors.toList());
+            } finally {
+                Files.delete(file);
+            }
+
+            assertEquals(2, events.size());
+            assertEquals("treeify", events.get(0).getString("conversion"));
+            assertEquals(treeifySize, events.get(0).getInt("bucketSize"));
+            assertEquals("listify", events.get(1).getString("conversion"));
+            assertEquals(listifySize, events.get(1).getInt("bucketSize"));
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package com.S1A4;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ListTreeMigrationTest {
+
+    private static final int KEYS = 24;
+
+    // Converts on size alone, so that the random walk below keeps crossing the thresholds
+    private static final BucketPolicy BY_SIZE = bySize(ListTree.TREEIFY_THRESHOLD, ListTree.UNTREEIFY_THRESHOLD);
+
+    private static BucketPolicy bySize(int treeifyAt, int listifyAt) {
+        return new BucketPolicy() {
+            @Override
+            public boolean shouldTreeify(ListTree<?, ?> bucket) { return bucket.size() >= treeifyAt; }
+
+            @Override
+            public boolean shouldListify(ListTree<?, ?> bucket) { return bucket.size() <= listifyAt; }
+        };
+    }
+
+    @Test
+    void interleavedOperationsDuringMigrationsMatchHashMap() {
+        int reversals = 0;
+        int sourceRemovals = 0;
+        int loadsWhileMigrating = 0;
+        for (int seed = 0; seed < 12; seed++) {
+            int[] counts = run(new Random(seed), 1 + seed % 3, seed % 2 == 0);
+            reversals += counts[0];
+            sourceRemovals += counts[1];
+            loadsWhileMigrating += counts[2];
+        }
+        assertTrue(reversals > 0, "no migration was reversed midway");
+        assertTrue(sourceRemovals > 0, "no key was removed from the source container");
+        assertTrue(loadsWhileMigrating > 0, "loadSorted never ran during a migration");
+    }
+
+    @Test
+    void removalBelowTheThresholdReversesATreeifyMidway() {
+        ListTree<Integer, Integer> bucket = new ListTree<>();
+        bucket.setPolicy(BY_SIZE);
+        bucket.setIncrementalConversion(1);
+        for (int key = 0; key < ListTree.TREEIFY_THRESHOLD; key++) {
+            bucket.put(new Pair<>(key, key));
+        }
+        assertTrue(bucket.isMigrating());
+        assertFalse(bucket.isListForm());
+
+        // Keys 0 and 1 are in the tree by now, 2 to 5 still in the list
+        bucket.remove(7);
+        bucket.remove(6);
+        assertTrue(bucket.isMigrating());
+        assertTrue(bucket.isListForm());
+        assertEquals(2, bucket.getConversions());
+        assertContents(Map.of(0, 0, 1, 1, 2, 2, 3, 3, 4, 4, 5, 5), bucket);
+
+        while (bucket.isMigrating()) { bucket.get(0); }
+        assertNull(bucket.treeContainer.getRoot());
+        assertContents(Map.of(0, 0, 1, 1, 2, 2, 3, 3, 4, 4, 5, 5), bucket);
+    }
+
+    @Test
+    void reversalThatFitsInOneStepConvertsAtOnce() {
+        ListTree<Integer, Integer> bucket = new ListTree<>();
+        bucket.setPolicy(bySize(8, 7));
+        bucket.setIncrementalConversion(7);
+        for (int key = 0; key < 8; key++) {
+            bucket.put(new Pair<>(key, key));
+        }
+        assertTrue(bucket.isMigrating());
+        assertEquals(1, bucket.listContainer.size());
+
+        // Key 0 is in the tree, key 7 still in the list; both containers are merged back
+        bucket.remove(0);
+        assertFalse(bucket.isMigrating());
+        assertTrue(bucket.isListForm());
+        assertNull(bucket.treeContainer.getRoot());
+        assertContents(Map.of(1, 1, 2, 2, 3, 3, 4, 4, 5, 5, 6, 6, 7, 7), bucket);
+    }
+
+    // Returns the number of reversals, removals from the source container and loads seen while
+    // migrating
+    private static int[] run(Random random, int step, boolean lookupFilter) {
+        ListTree<Integer, Integer> bucket = new ListTree<>();
+        bucket.setPolicy(BY_SIZE);
+        bucket.setIncrementalConversion(step);
+        bucket.setLookupFilter(lookupFilter);
+        Map<Integer, Integer> expected = new HashMap<>();
+        int[] counts = new int[3];
+
+        for (int op = 0; op < 3_000; op++) {
+            boolean wasMigrating = bucket.isMigrating();
+            boolean wasListForm = bucket.isListForm();
+            // An operation moves at most "step" entries, so a migration with more left can't finish
+            boolean cannotFinish = sourceSize(bucket) > step + 1;
+            int key = random.nextInt(KEYS);
+            int value = random.nextInt();
+            int choice = random.nextInt(100);
+
+            if (choice < 40) {
+                // As TreeifiedHashMap does it: put only keys replace didn't find
+                Optional<Integer> old = bucket.replace(new Pair<>(key, value));
+                assertEquals(Optional.ofNullable(expected.get(key)), old);
+                if (old.isEmpty()) { bucket.put(new Pair<>(key, value)); }
+                expected.put(key, value);
+            } else if (choice < 70) {
+                if (wasMigrating && inSource(bucket, key)) { counts[1]++; }
+                assertEquals(Optional.ofNullable(expected.remove(key)), bucket.remove(key));
+            } else if (choice < 85) {
+                assertEquals(Optional.ofNullable(expected.get(key)), bucket.get(key));
+            } else if (choice < 99) {
+                assertEquals(expected.containsKey(key), bucket.contains(key));
+            } else {
+                if (wasMigrating) { counts[2]++; }
+                TreeMap<Integer, Integer> sorted = new TreeMap<>();
+                int count = random.nextInt(2 * ListTree.TREEIFY_THRESHOLD);
+                while (sorted.size() < count) { sorted.put(random.nextInt(KEYS), random.nextInt()); }
+                java.util.List<Pair<Integer, Integer>> pairs = new ArrayList<>();
+                sorted.forEach((k, v) -> pairs.add(new Pair<>(k, v)));
+                bucket.loadSorted(pairs.iterator(), count);
+                expected = new HashMap<>(sorted);
+            }
+
+            if (wasMigrating && cannotFinish && bucket.isMigrating() && wasListForm != bucket.isListForm()) {
+                counts[0]++;
+            }
+            assertContents(expected, bucket);
+        }
+        return counts;
+    }
+
+    private static long sourceSize(ListTree<Integer, Integer> bucket) {
+        if (!bucket.isMigrating()) { return 0; }
+        return bucket.isListForm() ? bucket.treeContainer.size()
+                : bucket.listContainer.size();
+    }
+
+    private static boolean inSource(ListTree<Integer, Integer> bucket, int key) {
+        return bucket.isListForm() ? bucket.treeContainer.contains(key) : bucket.listContainer.contains(key);
+    }
+
+    // Reads the containers directly: the public lookups would advance the migration
+    private static void assertContents(Map<Integer, Integer> expected, ListTree<Integer, Integer> bucket) {
+        Map<Integer, Integer> actual = new HashMap<>();
+        for (com.S1A4.List.List.Node<Integer, Integer> node = bucket.listContainer.getHead(); node != null;
+                node = node.getNext()) {
+            assertNull(actual.put(node.getKey(), node.getData().getValue()), "duplicate key");
+        }
+        bucket.treeContainer.spliterator().forEachRemaining(pair ->
+                assertNull(actual.put(pair.getKey(), pair.getValue()), "key in both containers"));
+
+        assertEquals(expected, actual);
+        assertEquals(expected.size(), bucket.size());
+        if (!bucket.isMigrating()) {
+            assertTrue(bucket.isListForm() ? bucket.treeContainer.getRoot() == null
+                    : bucket.listContainer.getHead() == null, "stale entries in the other form");
+        }
+    }
+}
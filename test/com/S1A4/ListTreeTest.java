@@ -0,0 +1,53 @@
+package com.S1A4;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ListTreeTest {
+
+    @Test
+    void failedPutLeavesFilterAndSizeAlone() {
+        ListTree<Integer, Integer> bucket = new ListTree<>();
+        bucket.setLookupFilter(true);
+        for (int key = 0; key < 10; key++) {
+            bucket.put(new Pair<>(key, key));
+        }
+        assertFalse(bucket.isListForm());
+        assertEquals(10, bucket.lookupFilter().size());
+
+        assertThrows(IllegalArgumentException.class, () -> bucket.put(new Pair<>(3, -3)));
+        assertEquals(10, bucket.size());
+        assertEquals(10, bucket.lookupFilter().size());
+        assertEquals(Optional.of(3), bucket.get(3));
+
+        // A stale count would keep key 3 in the filter after its only entry is gone
+        assertEquals(Optional.of(3), bucket.remove(3));
+        assertEquals(9, bucket.size());
+        assertEquals(9, bucket.lookupFilter().size());
+        assertFalse(bucket.contains(3));
+    }
+
+    @Test
+    void failedPutDuringAMigrationLeavesFilterAndSizeAlone() {
+        ListTree<Integer, Integer> bucket = new ListTree<>();
+        bucket.setLookupFilter(true);
+        bucket.setIncrementalConversion(1);
+        for (int key = 0; key < 8; key++) { // the treeify threshold
+            bucket.put(new Pair<>(key, key));
+        }
+        // Key 0 was moved to the tree first
+        assertTrue(bucket.isMigrating());
+
+        assertThrows(IllegalArgumentException.class, () -> bucket.put(new Pair<>(0, -1)));
+        assertEquals(8, bucket.size());
+        assertEquals(8, bucket.lookupFilter().size());
+        assertEquals(Optional.of(0), bucket.remove(0));
+        assertEquals(7, bucket.lookupFilter().size());
+    }
+}
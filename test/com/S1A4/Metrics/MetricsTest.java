@@ -0,0 +1,100 @@
+package com.S1A4.Metrics;
+
+import com.S1A4.ListTree;
+import com.S1A4.Pair;
+import com.S1A4.Tree.RedBlackTree;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MetricsTest {
+
+    @Test
+    void treeCountsAKnownSequenceExactly() {
+        TreeMetrics metrics = new TreeMetrics();
+        RedBlackTree<Integer, Integer> tree = new RedBlackTree<>();
+        tree.setMetrics(metrics);
+
+        // 1 becomes the red root; 2 recolors it black; 3 rotates left at 1 and recolors 2 and 1;
+        // 4 recolors 1, 3 and 2 and climbs one level: 2 (red root) over 1 and 3, 4 below 3
+        for (int key = 1; key <= 4; key++) {
+            tree.insertNode(new Pair<>(key, key));
+        }
+        assertSnapshot(metrics.snapshot(), 4, 0 + 1 + 2 + 2, 1, 1 + 2 + 3, 4, 0, 1, 1, 2);
+
+        // A hit and a miss at the bottom, 3 comparisons each
+        assertEquals(Optional.of(4), tree.get(4));
+        assertEquals(Optional.empty(), tree.get(9));
+        assertSnapshot(metrics.snapshot(), 6, 11, 1, 6, 4, 0, 1, 1, 3);
+
+        // Removing the red leaf 4 needs no fixup; removing the black leaf 3 recolors its red parent
+        // black and its sibling red
+        tree.deleteNode(4);
+        tree.deleteNode(3);
+        assertSnapshot(metrics.snapshot(), 8, 16, 1, 8, 4, 1, 1, 1, 3);
+
+        // The tree is 2 levels high now, but maxDescent keeps the longest path seen
+        assertEquals(Optional.of(1), tree.get(1));
+        assertEquals(3, metrics.snapshot().getMaxDescent());
+        assertEquals(18.0 / 9, metrics.snapshot().getComparisonsPerDescent());
+
+        metrics.reset();
+        assertSnapshot(metrics.snapshot(), 0, 0, 0, 0, 0, 0, 0, 0, 0);
+        assertEquals(0.0, metrics.snapshot().getComparisonsPerDescent());
+    }
+
+    @Test
+    void bucketCountsConversionsAndItsTreeForm() {
+        BucketMetrics metrics = new BucketMetrics();
+        ListTree<Integer, Integer> bucket = new ListTree<>();
+        bucket.setMetrics(metrics);
+
+        for (int key = 0; key < 8; key++) { // the treeify threshold
+            bucket.put(new Pair<>(key, key));
+        }
+        BucketMetrics.Snapshot snapshot = metrics.snapshot();
+        assertEquals(1, snapshot.getTreeifies());
+        assertEquals(0, snapshot.getListifies());
+        // Treeifying builds the tree from the sorted list: no descents, no fixups
+        assertEquals(0, snapshot.getTree().getDescents());
+        assertEquals(0, snapshot.getTree().getInsertFixups());
+
+        // The tree form counts its searches: one per get and one per remove
+        bucket.get(3);
+        bucket.get(-1);
+        bucket.remove(7);
+        bucket.remove(6);
+        snapshot = metrics.snapshot();
+        assertEquals(4, snapshot.getTree().getDescents());
+        assertEquals(1, snapshot.getTreeifies());
+        assertEquals(1, snapshot.getListifies());
+        assertTrue(snapshot.getTreeifyNanos() >= 0 && snapshot.getListifyNanos() >= 0);
+
+        // A list-form bucket leaves the tree counters alone
+        bucket.get(3);
+        assertEquals(4, metrics.snapshot().getTree().getDescents());
+
+        metrics.reset();
+        snapshot = metrics.snapshot();
+        assertEquals(0, snapshot.getTreeifies());
+        assertEquals(0, snapshot.getListifies());
+        assertEquals(0, snapshot.getTree().getDescents());
+    }
+
+    private static void assertSnapshot(TreeMetrics.Snapshot snapshot, long descents, long comparisons,
+            long rotations, long recolors, long insertFixups, long deleteFixups, long fixupSteps,
+            long maxFixupDepth, long maxDescent) {
+        assertEquals(descents, snapshot.getDescents(), "descents");
+        assertEquals(comparisons, snapshot.getComparisons(), "comparisons");
+        assertEquals(rotations, snapshot.getRotations(), "rotations");
+        assertEquals(recolors, snapshot.getRecolors(), "recolors");
+        assertEquals(insertFixups, snapshot.getInsertFixups(), "insertFixups");
+        assertEquals(deleteFixups, snapshot.getDeleteFixups(), "deleteFixups");
+        assertEquals(fixupSteps, snapshot.getFixupSteps(), "fixupSteps");
+        assertEquals(maxFixupDepth, snapshot.getMaxFixupDepth(), "maxFixupDepth");
+        assertEquals(maxDescent, snapshot.getMaxDescent(), "maxDescent");
+    }
+}
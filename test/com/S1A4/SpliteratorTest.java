@@ -0,0 +1,118 @@
+package com.S1A4;
+
+import com.S1A4.Tree.RedBlackTree;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Spliterator;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SpliteratorTest {
+
+    private static final int ALWAYS = Spliterator.DISTINCT | Spliterator.SORTED | Spliterator.ORDERED
+            | Spliterator.NONNULL;
+
+    private static RedBlackTree<Integer, Integer> randomTree(TreeSet<Integer> keys, int size, long seed) {
+        Random random = new Random(seed);
+        RedBlackTree<Integer, Integer> tree = new RedBlackTree<>();
+        while (keys.size() < size) {
+            int key = random.nextInt(10 * size + 1);
+            if (keys.add(key)) {
+                tree.insertNode(new Pair<>(key, key));
+            }
+        }
+        return tree;
+    }
+
+    @Test
+    void topLevelSpliteratorIsSizedAndSorted() {
+        TreeSet<Integer> keys = new TreeSet<>();
+        Spliterator<Pair<Integer, Integer>> spliterator = randomTree(keys, 1000, 1).spliterator();
+        assertEquals(ALWAYS | Spliterator.SIZED, spliterator.characteristics());
+        assertEquals(1000, spliterator.estimateSize());
+        assertEquals(1000, spliterator.getExactSizeIfKnown());
+        assertTrue(spliterator.getComparator().compare(new Pair<>(1, 9), new Pair<>(2, 0)) < 0);
+    }
+
+    @Test
+    void splitsPartitionTheKeysInOrder() {
+        for (int size : new int[] {0, 1, 2, 3, 10, 1000, 4095}) {
+            TreeSet<Integer> keys = new TreeSet<>();
+            Spliterator<Pair<Integer, Integer>> spliterator = randomTree(keys, size, size).spliterator();
+
+            List<Integer> seen = new ArrayList<>();
+            int leaves = collect(spliterator, seen, 0);
+            assertEquals(new ArrayList<>(keys), seen, "size " + size);
+            // Splitting at subtree roots goes about log2(n) levels deep
+            if (size >= 1000) {
+                assertTrue(leaves >= 64, "only " + leaves + " leaves for size " + size);
+            }
+        }
+    }
+
+    // Splits depth-first, checks each split, and appends the keys in encounter order
+    private static int collect(Spliterator<Pair<Integer, Integer>> spliterator, List<Integer> seen, int depth) {
+        long estimate = spliterator.estimateSize();
+        Spliterator<Pair<Integer, Integer>> prefix = (depth < 20) ? spliterator.trySplit() : null;
+        if (prefix == null) {
+            spliterator.forEachRemaining(pair -> seen.add(pair.getKey()));
+            // Exhausted: no more elements and no more splits
+            assertFalse(spliterator.tryAdvance(pair -> seen.add(-1)));
+            assertNull(spliterator.trySplit());
+            return 1;
+        }
+
+        // Both halves estimate half of the parent and lose SIZED, which is only exact at the top
+        assertEquals(estimate >>> 1, prefix.estimateSize());
+        assertEquals(estimate >>> 1, spliterator.estimateSize());
+        assertEquals(ALWAYS, prefix.characteristics());
+        assertEquals(ALWAYS, spliterator.characteristics());
+        return collect(prefix, seen, depth + 1) + collect(spliterator, seen, depth + 1);
+    }
+
+    @Test
+    void parallelStreamMatchesSequential() {
+        TreeSet<Integer> keys = new TreeSet<>();
+        RedBlackTree<Integer, Integer> tree = randomTree(keys, 100000, 2);
+        long expected = keys.stream().mapToLong(Integer::longValue).sum();
+
+        assertEquals(expected, tree.stream().mapToLong(Pair::getValue).sum());
+        assertEquals(expected, tree.parallelStream().mapToLong(Pair::getValue).sum());
+        assertEquals(new ArrayList<>(keys),
+                tree.parallelStream().map(Pair::getKey).collect(Collectors.toList()));
+    }
+
+    @Test
+    void listTreeStreamsBothForms() {
+        ListTree<Integer, Integer> bucket = new ListTree<>();
+        List<Integer> inserted = new ArrayList<>();
+        for (int key : new int[] {5, 3, 9, 1}) {
+            bucket.put(new Pair<>(key, key));
+            inserted.add(key);
+        }
+        assertTrue(bucket.isListForm());
+        Spliterator<Pair<Integer, Integer>> spliterator = bucket.spliterator();
+        assertTrue(spliterator.hasCharacteristics(Spliterator.SIZED | Spliterator.ORDERED | Spliterator.NONNULL));
+        assertEquals(4, spliterator.estimateSize());
+        assertEquals(inserted, bucket.stream().map(Pair::getKey).collect(Collectors.toList()));
+
+        for (int key = 100; bucket.isListForm(); key++) {
+            bucket.put(new Pair<>(key, key));
+            inserted.add(key);
+        }
+        TreeSet<Integer> sorted = new TreeSet<>(inserted);
+        assertEquals(new ArrayList<>(sorted), bucket.parallelStream().map(Pair::getKey).collect(Collectors.toList()));
+        assertEquals(sorted.stream().mapToLong(Integer::longValue).sum(),
+                bucket.parallelStream().mapToLong(Pair::getValue).sum());
+        assertNotNull(bucket.spliterator().getComparator());
+    }
+}
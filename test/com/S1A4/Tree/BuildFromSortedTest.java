@@ -0,0 +1,42 @@
+package com.S1A4.Tree;
+
+
+import com.S1A4.Pair;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class BuildFromSortedTest {
+
+  @Test
+  void buildsValidTreesOfEverySize() {
+    for (int size = 0; size <= 300; size++) {
+      List<Pair<Integer, Integer>> pairs = new ArrayList<>();
+      List<Integer> keys = new ArrayList<>();
+      for (int i = 0; i < size; i++) {
+        pairs.add(new Pair<>(2 * i, i));
+        keys.add(2 * i);
+      }
+      RedBlackTree<Integer, Integer> tree = new RedBlackTree<>();
+      tree.buildFromSorted(pairs.iterator(), size);
+      assertEquals(keys, TreeInvariants.check(tree));
+      assertEquals(size, tree.size());
+
+      // The result is an ordinary tree that keeps working
+      tree.insertNode(new Pair<>(-1, -1));
+      tree.deleteNode(0);
+      TreeInvariants.check(tree);
+    }
+  }
+
+  @Test
+  void rejectsNegativeSize() {
+    RedBlackTree<Integer, Integer> tree = new RedBlackTree<>();
+    List<Pair<Integer, Integer>> none = new ArrayList<>();
+    assertThrows(IllegalArgumentException.class, () -> tree.buildFromSorted(none.iterator(), -1));
+  }
+}
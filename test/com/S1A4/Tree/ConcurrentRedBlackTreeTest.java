@@ -0,0 +1,122 @@
+package com.S1A4.Tree;
+
+
+import com.S1A4.Pair;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConcurrentRedBlackTreeTest {
+
+  private static final int KEYS = 4000;
+
+  @Test
+  void optimisticReadsSeeStableKeysDuringWrites() throws Exception {
+    // Keys 4i are always present with value 4i, keys 4i + 2 never are; the two writers churn
+    // keys 4i + 1 and 4i + 3, which moves the stable keys around through rotations
+    ConcurrentRedBlackTree<Integer, Integer> tree = new ConcurrentRedBlackTree<>();
+    for (int key = 0; key < KEYS; key += 4) {
+      tree.insertNode(new Pair<>(key, key));
+    }
+
+    AtomicBoolean done = new AtomicBoolean();
+    ExecutorService executor = Executors.newFixedThreadPool(6);
+    try {
+      List<Future<TreeMap<Integer, Integer>>> writers = new ArrayList<>();
+      for (int residue = 1; residue <= 3; residue += 2) {
+        int offset = residue;
+        writers.add(executor.submit(() -> churn(tree, offset, new Random(offset))));
+      }
+      List<Future<Integer>> readers = new ArrayList<>();
+      for (int i = 0; i < 4; i++) {
+        long seed = i;
+        readers.add(executor.submit(() -> {
+          Random random = new Random(seed);
+          int reads = 0;
+          while (!done.get()) {
+            int stable = 4 * random.nextInt(KEYS / 4);
+            assertEquals(Optional.of(stable), tree.get(stable));
+            assertTrue(tree.contains(stable));
+            assertFalse(tree.contains(stable + 2));
+            reads++;
+          }
+          return reads;
+        }));
+      }
+
+      List<TreeMap<Integer, Integer>> expected = new ArrayList<>();
+      for (Future<TreeMap<Integer, Integer>> writer : writers) {
+        expected.add(writer.get());
+      }
+      done.set(true);
+      for (Future<Integer> reader : readers) {
+        assertTrue(reader.get() > 0);
+      }
+
+      for (int key = 0; key < KEYS; key++) {
+        Integer value = (key % 4 == 0) ? Integer.valueOf(key)
+                : (key % 4 == 2) ? null : expected.get(key % 4 / 2).get(key);
+        assertEquals(Optional.ofNullable(value), tree.get(key), "key " + key);
+      }
+    } finally {
+      done.set(true);
+      executor.shutdownNow();
+    }
+  }
+
+  // Random inserts, replaces, deletes and batches on the keys 4i + offset; returns what is left
+  private static TreeMap<Integer, Integer> churn(ConcurrentRedBlackTree<Integer, Integer> tree, int offset,
+                                                 Random random) {
+    TreeMap<Integer, Integer> expected = new TreeMap<>();
+    for (int op = 0; op < 40000; op++) {
+      int key = 4 * random.nextInt(KEYS / 4) + offset;
+      switch (random.nextInt(4)) {
+        case 0:
+          if (!expected.containsKey(key)) {
+            tree.insertNode(new Pair<>(key, op));
+            expected.put(key, op);
+          }
+          break;
+        case 1:
+          assertEquals(Optional.ofNullable(expected.remove(key)), tree.deleteNode(key));
+          break;
+        case 2:
+          assertEquals(Optional.ofNullable(expected.get(key)), tree.replace(new Pair<>(key, op)));
+          if (expected.containsKey(key)) {
+            expected.put(key, op);
+          }
+          break;
+        default:
+          List<Pair<Integer, Integer>> inserts = new ArrayList<>();
+          List<Integer> deletes = new ArrayList<>();
+          for (int i = 0; i < 8; i++) {
+            int batchKey = 4 * random.nextInt(KEYS / 4) + offset;
+            if (!expected.containsKey(batchKey)) {
+              inserts.add(new Pair<>(batchKey, op));
+              expected.put(batchKey, op);
+            } else if (!deletes.contains(batchKey) && random.nextBoolean()) {
+              deletes.add(batchKey);
+            }
+          }
+          deletes.removeIf(k -> inserts.stream().anyMatch(pair -> pair.getKey().equals(k)));
+          tree.insertAll(inserts);
+          assertEquals(deletes.size(), tree.deleteAll(deletes));
+          deletes.forEach(expected::remove);
+          break;
+      }
+    }
+    return expected;
+  }
+}
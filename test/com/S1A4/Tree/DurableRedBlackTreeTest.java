@@ -0,0 +1,323 @@
+package com.S1A4.Tree;
+
+
+import com.S1A4.Codec.Serializer;
+import com.S1A4.Codec.Serializers;
+import com.S1A4.Codec.TreeCodec;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.TreeMap;
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DurableRedBlackTreeTest {
+
+  @TempDir
+  Path dir;
+
+  private DurableRedBlackTree<Integer, String> open() throws IOException {
+    return DurableRedBlackTree.open(dir, Serializers.INTEGER, Serializers.STRING);
+  }
+
+  private static void assertContent(Map<Integer, String> expected, DurableRedBlackTree<Integer, String> store) {
+    assertEquals(expected.size(), store.size());
+    expected.forEach((key, value) -> assertEquals(value, store.get(key).orElseThrow()));
+  }
+
+  private Path lastSegment() throws IOException {
+    try (Stream<Path> files = Files.list(dir)) {
+      return files.filter(file -> file.getFileName().toString().startsWith("wal-"))
+              .max(Comparator.naturalOrder()).orElseThrow();
+    }
+  }
+
+  @Test
+  void recoversCheckpointAndLogTailWithoutClose() throws IOException {
+    Map<Integer, String> expected = new TreeMap<>();
+    Random random = new Random(1);
+    DurableRedBlackTree<Integer, String> store = open();
+    for (int i = 0; i < 3000; i++) {
+      int key = random.nextInt(500);
+      if (random.nextInt(4) == 0) {
+        assertEquals(Optional.ofNullable(expected.remove(key)), store.remove(key));
+      } else {
+        assertEquals(Optional.ofNullable(expected.put(key, "v" + i)), store.put(key, "v" + i));
+      }
+      if (i % 1000 == 999) {
+        store.checkpoint();
+      }
+    }
+
+    // The first store is abandoned as if the process had died
+    assertContent(expected, open());
+  }
+
+  @Test
+  void concurrentWritersWithBackgroundCheckpoints() throws Exception {
+    DurableRedBlackTree<Integer, String> store = open();
+    store.setCheckpointThreshold(4096);
+    ExecutorService writers = Executors.newFixedThreadPool(8);
+    List<Future<?>> done = new ArrayList<>();
+    for (int t = 0; t < 8; t++) {
+      int thread = t;
+      done.add(writers.submit(() -> {
+        for (int i = 0; i < 500; i++) {
+          int key = thread * 10000 + i;
+          store.put(key, "v" + key);
+          if (i % 3 == 0) {
+            store.remove(key);
+          }
+        }
+        return null;
+      }));
+    }
+    for (Future<?> future : done) {
+      future.get();
+    }
+    writers.shutdown();
+    store.close();
+    assertTrue(store.getCheckpointFailure().isEmpty());
+
+    Map<Integer, String> expected = new TreeMap<>();
+    for (int t = 0; t < 8; t++) {
+      for (int i = 0; i < 500; i++) {
+        if (i % 3 != 0) {
+          expected.put(t * 10000 + i, "v" + (t * 10000 + i));
+        }
+      }
+    }
+    try (DurableRedBlackTree<Integer, String> reopened = open()) {
+      assertContent(expected, reopened);
+    }
+    try (Stream<Path> files = Files.list(dir)) {
+      assertTrue(files.anyMatch(file -> file.getFileName().toString().startsWith("checkpoint-")));
+    }
+  }
+
+  @Test
+  void writesThatReturnAreDurableWhenClosedConcurrently() throws Exception {
+    DurableRedBlackTree<Integer, String> store = open();
+    store.setCheckpointThreshold(1);
+    Map<Integer, Boolean> succeeded = new ConcurrentHashMap<>();
+    ExecutorService writers = Executors.newFixedThreadPool(4);
+    List<Future<?>> done = new ArrayList<>();
+    for (int t = 0; t < 4; t++) {
+      int thread = t;
+      done.add(writers.submit(() -> {
+        for (int i = 0; i < 50; i++) {
+          int key = thread * 100 + i;
+          try {
+            store.put(key, "v");
+            succeeded.put(key, true);
+          } catch (IOException e) {
+            succeeded.put(key, false);
+          }
+        }
+      }));
+    }
+    Thread.sleep(5);
+    store.close();
+    for (Future<?> future : done) {
+      future.get();
+    }
+    writers.shutdown();
+
+    try (DurableRedBlackTree<Integer, String> reopened = open()) {
+      succeeded.forEach((key, ok) -> assertEquals(ok, reopened.contains(key), "key " + key));
+    }
+  }
+
+  @Test
+  void cutsOffTornRecordAtTheEnd() throws IOException {
+    try (DurableRedBlackTree<Integer, String> store = open()) {
+      store.put(1, "a");
+      store.put(2, "b");
+    }
+    try (FileChannel log = FileChannel.open(lastSegment(), StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+      log.write(ByteBuffer.wrap(new byte[]{0, 0, 0, 20, 1, 2, 3}));
+    }
+    long tornSize = Files.size(lastSegment());
+
+    try (DurableRedBlackTree<Integer, String> store = open()) {
+      assertEquals(2, store.size());
+      assertTrue(Files.size(lastSegment()) < tornSize);
+      store.put(3, "c");
+    }
+    try (DurableRedBlackTree<Integer, String> store = open()) {
+      assertContent(Map.of(1, "a", 2, "b", 3, "c"), store);
+    }
+  }
+
+  @Test
+  void ignoresRecordWithBadChecksum() throws IOException {
+    try (DurableRedBlackTree<Integer, String> store = open()) {
+      store.put(1, "a");
+      store.put(2, "b");
+    }
+    // Flip the last byte of the second record's value
+    try (FileChannel log = FileChannel.open(lastSegment(), StandardOpenOption.WRITE)) {
+      log.write(ByteBuffer.wrap(new byte[]{'x'}), log.size() - 1);
+    }
+    try (DurableRedBlackTree<Integer, String> store = open()) {
+      assertContent(Map.of(1, "a"), store);
+    }
+  }
+
+  @Test
+  void closedStoreRejectsWrites() throws IOException {
+    DurableRedBlackTree<Integer, String> store = open();
+    store.put(1, "a");
+    store.close();
+    assertThrows(IOException.class, () -> store.put(2, "b"));
+    assertFalse(store.contains(2));
+  }
+
+  @Test
+  void replayErrorNamesSegmentAndOffset() throws IOException {
+    try (DurableRedBlackTree<Integer, String> store = open()) {
+      store.put(1, "a");
+    }
+    long offset = Files.size(lastSegment());
+    try (DurableRedBlackTree<Integer, String> store = open()) {
+      store.put(2, "b");
+      store.put(3, "c");
+    }
+
+    Serializer<Integer> failsOnTwo = new Serializer<>() {
+      @Override
+      public int fixedSize() { return Serializers.INTEGER.fixedSize(); }
+      @Override
+      public int sizeOf(Integer value) { return Serializers.INTEGER.sizeOf(value); }
+      @Override
+      public void write(ByteBuffer buffer, Integer value) { Serializers.INTEGER.write(buffer, value); }
+
+      @Override
+      public Integer read(ByteBuffer buffer) {
+        Integer value = Serializers.INTEGER.read(buffer);
+        if (value == 2) {
+          throw new IllegalStateException("bad key");
+        }
+        return value;
+      }
+    };
+    IOException e = assertThrows(IOException.class, () -> DurableRedBlackTree.open(dir, failsOnTwo, Serializers.STRING));
+    assertTrue(e.getMessage().contains(lastSegment().toString()), e.getMessage());
+    assertTrue(e.getMessage().contains("at byte " + offset), e.getMessage());
+    assertEquals(IllegalStateException.class, e.getCause().getClass());
+  }
+
+  @Test
+  void recordReadToADifferentLengthIsAnError() throws IOException {
+    try (DurableRedBlackTree<Integer, String> store = open()) {
+      store.put(1, "a");
+    }
+    // Reading the string as an int leaves bytes of the record unread
+    IOException e = assertThrows(IOException.class,
+        () -> DurableRedBlackTree.open(dir, Serializers.INTEGER, Serializers.INTEGER));
+    assertTrue(e.getMessage().contains("at byte 0"), e.getMessage());
+  }
+
+  @Test
+  void checkpointWritesASnapshotWhileWritersCarryOn() throws Exception {
+    CountDownLatch writing = new CountDownLatch(1);
+    CountDownLatch resume = new CountDownLatch(1);
+    Thread[] checkpointer = new Thread[1];
+    // Holds the checkpoint up in the middle of writing out the tree
+    Serializer<String> stalling = new Serializer<>() {
+      @Override
+      public int fixedSize() { return Serializers.STRING.fixedSize(); }
+      @Override
+      public int sizeOf(String value) { return Serializers.STRING.sizeOf(value); }
+      @Override
+      public String read(ByteBuffer buffer) { return Serializers.STRING.read(buffer); }
+
+      @Override
+      public void write(ByteBuffer buffer, String value) {
+        if (Thread.currentThread() == checkpointer[0] && writing.getCount() > 0) {
+          writing.countDown();
+          try {
+            resume.await();
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+        }
+        Serializers.STRING.write(buffer, value);
+      }
+    };
+
+    Map<Integer, String> expected = new TreeMap<>();
+    DurableRedBlackTree<Integer, String> store = DurableRedBlackTree.open(dir, Serializers.INTEGER, stalling);
+    for (int key = 0; key < 100; key++) {
+      store.put(key, "v" + key);
+      expected.put(key, "v" + key);
+    }
+    Map<Integer, String> checkpointed = new TreeMap<>(expected);
+
+    IOException[] failure = new IOException[1];
+    checkpointer[0] = new Thread(() -> {
+      try {
+        store.checkpoint();
+      } catch (IOException e) {
+        failure[0] = e;
+      }
+    });
+    checkpointer[0].start();
+    assertTrue(writing.await(10, TimeUnit.SECONDS));
+
+    assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+      store.put(100, "v100");
+      store.put(0, "w0");
+      store.remove(1);
+      assertEquals(Optional.of("v2"), store.get(2));
+    });
+    expected.put(100, "v100");
+    expected.put(0, "w0");
+    expected.remove(1);
+    assertContent(expected, store);
+
+    resume.countDown();
+    checkpointer[0].join();
+    assertEquals(null, failure[0]);
+    store.close();
+
+    // The checkpoint holds the tree as it was at its start; the log has the writes made meanwhile
+    Path checkpoint;
+    try (Stream<Path> files = Files.list(dir)) {
+      checkpoint = files.filter(file -> file.getFileName().toString().endsWith(".rbc")).findFirst().orElseThrow();
+    }
+    try (FileChannel in = FileChannel.open(checkpoint, StandardOpenOption.READ)) {
+      Map<Integer, String> actual = new TreeMap<>();
+      new TreeCodec<>(Serializers.INTEGER, Serializers.STRING).readPersistentTree(in)
+          .forEach(pair -> actual.put(pair.getKey(), pair.getValue()));
+      assertEquals(checkpointed, actual);
+    }
+    try (DurableRedBlackTree<Integer, String> reopened = open()) {
+      assertContent(expected, reopened);
+    }
+  }
+}
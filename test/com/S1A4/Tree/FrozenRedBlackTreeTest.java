@@ -0,0 +1,83 @@
+package com.S1A4.Tree;
+
+
+import com.S1A4.Pair;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.function.LongFunction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class FrozenRedBlackTreeTest {
+
+  @Test
+  void integerKeysMatchTreeMap() {
+    // Extreme keys catch overflow in the branch-free comparison
+    matchesTreeMap(k -> (int) k, Integer.MIN_VALUE, Integer.MAX_VALUE);
+  }
+
+  @Test
+  void longKeysMatchTreeMap() {
+    matchesTreeMap(k -> k, Long.MIN_VALUE, Long.MAX_VALUE);
+  }
+
+  @Test
+  void stringKeysMatchTreeMap() {
+    matchesTreeMap(k -> String.format("%06d", k), "000000", "999999");
+  }
+
+  @Test
+  void emptyTree() {
+    FrozenRedBlackTree<Integer, Integer> frozen = new RedBlackTree<Integer, Integer>().freeze();
+    assertEquals(0, frozen.size());
+    assertFalse(frozen.contains(1));
+    assertEquals(Optional.empty(), frozen.get(1));
+    assertNull(frozen.floor(1));
+    assertNull(frozen.ceiling(1));
+  }
+
+  private static <K extends Comparable<K>> void matchesTreeMap(LongFunction<K> key, K min, K max) {
+    Random random = new Random(19);
+    // Every size up to 70 covers full and partial last levels of the implicit tree
+    for (int size = 0; size < 300; size += (size < 70) ? 1 : 37) {
+      RedBlackTree<K, Long> tree = new RedBlackTree<>();
+      TreeMap<K, Long> expected = new TreeMap<>();
+      while (expected.size() < size) {
+        long k = random.nextInt(2000) * 3L;
+        if (expected.put(key.apply(k), k) == null) {
+          tree.insertNode(new Pair<>(key.apply(k), k));
+        }
+      }
+      FrozenRedBlackTree<K, Long> frozen = tree.freeze();
+      assertEquals(size, frozen.size());
+
+      for (long k = -2; k < 6002; k++) {
+        check(frozen, expected, key.apply(k));
+      }
+      check(frozen, expected, min);
+      check(frozen, expected, max);
+    }
+  }
+
+  private static <K extends Comparable<K>> void check(FrozenRedBlackTree<K, Long> frozen, TreeMap<K, Long> expected,
+                                                      K key) {
+    assertEquals(expected.containsKey(key), frozen.contains(key), "contains " + key);
+    assertEquals(Optional.ofNullable(expected.get(key)), frozen.get(key), "get " + key);
+    assertEquals(keyOf(expected.floorEntry(key)), keyOf(frozen.floor(key)), "floor " + key);
+    assertEquals(keyOf(expected.ceilingEntry(key)), keyOf(frozen.ceiling(key)), "ceiling " + key);
+  }
+
+  private static <K> K keyOf(Map.Entry<K, Long> entry) {
+    return (entry != null) ? entry.getKey() : null;
+  }
+
+  private static <K extends Comparable<K>> K keyOf(Pair<K, Long> pair) {
+    return (pair != null) ? pair.getKey() : null;
+  }
+}
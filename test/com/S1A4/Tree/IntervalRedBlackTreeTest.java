@@ -0,0 +1,144 @@
+package com.S1A4.Tree;
+
+
+import com.S1A4.Pair;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IntervalRedBlackTreeTest {
+
+  @Test
+  void queriesMatchBruteForce() {
+    Random random = new Random(25);
+    IntervalRedBlackTree<Integer, Integer> tree = new IntervalRedBlackTree<>();
+    TreeMap<Interval<Integer>, Integer> expected = new TreeMap<>();
+
+    for (int op = 0; op < 4000; op++) {
+      Interval<Integer> interval = randomInterval(random);
+      if (random.nextInt(3) > 0) {
+        if (!expected.containsKey(interval)) {
+          tree.insertNode(interval.getLow(), interval.getHigh(), op);
+          expected.put(interval, op);
+        }
+      } else {
+        // Mostly delete a present interval, so the tree doesn't only grow
+        Interval<Integer> victim = expected.isEmpty() ? interval
+                : expected.ceilingKey(interval) != null ? expected.ceilingKey(interval) : expected.firstKey();
+        assertEquals(Optional.ofNullable(expected.remove(victim)), tree.deleteNode(victim));
+      }
+
+      if (op % 20 == 0) {
+        check(tree, expected);
+        for (int query = 0; query < 10; query++) {
+          Interval<Integer> range = randomInterval(random);
+          checkQuery(tree, expected, range.getLow(), range.getHigh());
+        }
+      }
+    }
+  }
+
+  @Test
+  void splitAndJoinKeepMaxima() {
+    Random random = new Random(26);
+    for (int round = 0; round < 100; round++) {
+      IntervalRedBlackTree<Integer, Integer> tree = new IntervalRedBlackTree<>();
+      TreeMap<Interval<Integer>, Integer> expected = new TreeMap<>();
+      for (int i = random.nextInt(300); i > 0; i--) {
+        Interval<Integer> interval = randomInterval(random);
+        if (expected.putIfAbsent(interval, i) == null) {
+          tree.insertNode(new Pair<>(interval, i));
+        }
+      }
+
+      Interval<Integer> at = randomInterval(random);
+      RedBlackTree<Interval<Integer>, Integer> upper = tree.split(at);
+      assertInstanceOf(IntervalRedBlackTree.class, upper);
+      check(tree, new TreeMap<>(expected.headMap(at)));
+      check((IntervalRedBlackTree<Integer, Integer>) upper, new TreeMap<>(expected.tailMap(at, true)));
+
+      // Rejoin with "at" as the pivot, after taking it out of the upper half
+      RedBlackTree<Interval<Integer>, Integer> right = upper.split(new Interval<>(at.getLow(), at.getHigh() + 1));
+      Pair<Interval<Integer>, Integer> pivot = new Pair<>(new Interval<>(at.getLow(), at.getHigh()), -1);
+      RedBlackTree.join(tree, pivot, right);
+      TreeMap<Interval<Integer>, Integer> joined = new TreeMap<>(expected);
+      joined.put(pivot.getKey(), -1);
+      check(tree, joined);
+      for (int query = 0; query < 10; query++) {
+        Interval<Integer> range = randomInterval(random);
+        checkQuery(tree, joined, range.getLow(), range.getHigh());
+      }
+    }
+  }
+
+  @Test
+  void emptyAndInvertedQueries() {
+    IntervalRedBlackTree<Integer, Integer> tree = new IntervalRedBlackTree<>();
+    assertNull(tree.maxEndpoint());
+    assertNull(tree.anyOverlapping(0, 10));
+    tree.insertNode(1, 5, 0);
+    assertTrue(tree.overlapping(4, 2).isEmpty());
+    assertEquals(1, tree.stabbing(5).size());
+    assertTrue(tree.stabbing(6).isEmpty());
+  }
+
+  private static Interval<Integer> randomInterval(Random random) {
+    int low = random.nextInt(1000);
+    // Mostly short intervals with a few long ones, so maxima differ from the own high endpoint
+    int length = (random.nextInt(10) == 0) ? random.nextInt(500) : random.nextInt(20);
+    return new Interval<>(low, low + length);
+  }
+
+  private static void check(IntervalRedBlackTree<Integer, Integer> tree,
+                            TreeMap<Interval<Integer>, Integer> expected) {
+    assertEquals(new ArrayList<>(expected.keySet()), TreeInvariants.check(tree));
+    checkMax(tree.getRoot());
+    Integer max = expected.keySet().stream().map(Interval::getHigh).max(Integer::compare).orElse(null);
+    assertEquals(max, tree.maxEndpoint());
+  }
+
+  // Returns the subtree maximum after checking that every node stores it
+  private static int checkMax(Node<Interval<Integer>, Integer> node) {
+    if (node == null) {
+      return Integer.MIN_VALUE;
+    }
+    int max = Math.max(node.data.getKey().getHigh(), Math.max(checkMax(node.left), checkMax(node.right)));
+    assertInstanceOf(IntervalRedBlackTree.MaxNode.class, node);
+    assertEquals(max, IntervalRedBlackTree.maxOf(node), "max at " + node.data.getKey());
+    return max;
+  }
+
+  private static void checkQuery(IntervalRedBlackTree<Integer, Integer> tree,
+                                 TreeMap<Interval<Integer>, Integer> expected, int lo, int hi) {
+    List<Interval<Integer>> overlaps = new ArrayList<>();
+    for (Interval<Integer> interval : expected.keySet()) {
+      if (interval.overlaps(lo, hi)) {
+        overlaps.add(interval);
+      }
+    }
+
+    List<Interval<Integer>> found = new ArrayList<>();
+    tree.overlapping(lo, hi).forEach(pair -> found.add(pair.getKey()));
+    assertEquals(overlaps, found, "overlapping [" + lo + ", " + hi + "]");
+
+    Node<Interval<Integer>, Integer> any = tree.anyOverlapping(lo, hi);
+    if (overlaps.isEmpty()) {
+      assertNull(any);
+    } else {
+      assertTrue(any.data.getKey().overlaps(lo, hi));
+    }
+
+    List<Interval<Integer>> stabbed = new ArrayList<>();
+    tree.stabbing(lo).forEach(pair -> stabbed.add(pair.getKey()));
+    assertEquals(overlaps.stream().filter(interval -> interval.contains(lo)).count(), stabbed.size());
+  }
+}
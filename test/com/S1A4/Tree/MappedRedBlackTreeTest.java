@@ -0,0 +1,135 @@
+package com.S1A4.Tree;
+
+
+import com.S1A4.Codec.Serializers;
+import com.S1A4.Pair;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Optional;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class MappedRedBlackTreeTest {
+
+  // Record layout of MappedRedBlackTree with int keys and long values
+  private static final int RECORD_SIZE = 9 + Integer.BYTES + Long.BYTES;
+
+  @TempDir
+  Path directory;
+
+  private Path save(RedBlackTree<Integer, Long> tree) throws IOException {
+    Path file = directory.resolve("tree.rbt");
+    MappedRedBlackTree.save(tree, file, Serializers.INTEGER, Serializers.LONG);
+    return file;
+  }
+
+  private static MappedRedBlackTree<Integer, Long> open(Path file) throws IOException {
+    return MappedRedBlackTree.open(file, Serializers.INTEGER, Serializers.LONG);
+  }
+
+  private static RedBlackTree<Integer, Long> randomTree(TreeMap<Integer, Long> expected, int size, long seed) {
+    Random random = new Random(seed);
+    RedBlackTree<Integer, Long> tree = new RedBlackTree<>();
+    while (expected.size() < size) {
+      int key = random.nextInt(10 * size + 1) - 5 * size;
+      long value = random.nextLong();
+      if (expected.putIfAbsent(key, value) == null) {
+        tree.insertNode(new Pair<>(key, value));
+      }
+    }
+    return tree;
+  }
+
+  @Test
+  void roundTripMatchesTreeMap() throws IOException {
+    for (int size : new int[] {0, 1, 2, 3, 100, 5000}) {
+      TreeMap<Integer, Long> expected = new TreeMap<>();
+      Path file = save(randomTree(expected, size, size));
+
+      try (MappedRedBlackTree<Integer, Long> mapped = open(file)) {
+        assertEquals(size, mapped.size());
+        for (int key = -5 * size - 2; key <= 5 * size + 2; key++) {
+          assertEquals(Optional.ofNullable(expected.get(key)), mapped.get(key), "key " + key);
+        }
+        RedBlackTree<Integer, Long> loaded = mapped.load();
+        assertEquals(new ArrayList<>(expected.keySet()), TreeInvariants.check(loaded));
+        for (Pair<Integer, Long> pair : loaded) {
+          assertEquals(expected.get(pair.getKey()), pair.getValue());
+        }
+      }
+    }
+  }
+
+  @Test
+  void saveReplacesSnapshotWithoutDisturbingOpenReaders() throws IOException {
+    TreeMap<Integer, Long> first = new TreeMap<>();
+    Path file = save(randomTree(first, 500, 1));
+    try (MappedRedBlackTree<Integer, Long> old = open(file)) {
+      TreeMap<Integer, Long> second = new TreeMap<>();
+      save(randomTree(second, 20, 2));
+
+      for (Integer key : first.keySet()) {
+        assertEquals(Optional.of(first.get(key)), old.get(key));
+      }
+      try (MappedRedBlackTree<Integer, Long> current = open(file)) {
+        assertEquals(20, current.size());
+      }
+    }
+    assertFalse(Files.exists(directory.resolve("tree.rbt.tmp")));
+  }
+
+  @Test
+  void truncatedFileIsRejected() throws IOException {
+    Path file = save(randomTree(new TreeMap<>(), 100, 3));
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+      channel.truncate(channel.size() - 1);
+    }
+    assertThrows(IOException.class, () -> open(file));
+  }
+
+  @Test
+  void negativeRecordCountIsRejected() throws IOException {
+    Path file = save(randomTree(new TreeMap<>(), 10, 4));
+    patchInt(file, 8, -1);
+    assertThrows(IOException.class, () -> open(file));
+  }
+
+  @Test
+  void corruptChildLinksAreRejected() throws IOException {
+    int header = MappedRedBlackTree.HEADER_SIZE;
+    // Past the end, back to the root (a cycle), and skipping a record
+    for (int child : new int[] {1000, 0, 2}) {
+      Path file = save(randomTree(new TreeMap<>(), 100, 5));
+      patchInt(file, header, child);
+      assertThrows(IOException.class, () -> open(file), "left child " + child);
+    }
+    Path file = save(randomTree(new TreeMap<>(), 100, 5));
+    patchInt(file, header + 50 * RECORD_SIZE + 4, 7);
+    assertThrows(IOException.class, () -> open(file));
+  }
+
+  @Test
+  void foreignFileIsRejected() throws IOException {
+    Path file = directory.resolve("foreign");
+    Files.write(file, new byte[64]);
+    assertThrows(IOException.class, () -> open(file));
+  }
+
+  private static void patchInt(Path file, long position, int value) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+      channel.write(ByteBuffer.allocate(Integer.BYTES).putInt(0, value), position);
+    }
+  }
+}
@@ -0,0 +1,115 @@
+package com.S1A4.Tree;
+
+
+import com.S1A4.Codec.Serializers;
+import com.S1A4.Pair;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OffHeapRedBlackTreeTest {
+
+  @Test
+  void matchesTreeMapAcrossChunksAndSlotReuse() {
+    Random random = new Random(7);
+    // Tiny chunks, so the tree grows through many buffers
+    OffHeapRedBlackTree<Integer, Long> tree = new OffHeapRedBlackTree<>(Serializers.INTEGER, Serializers.LONG, 8);
+    TreeMap<Integer, Long> expected = new TreeMap<>();
+    int maxSize = 0;
+
+    for (int op = 0; op < 20000; op++) {
+      // Grow to a few hundred keys, shrink, then grow again over the freed slots
+      boolean growing = (op / 5000) % 2 == 0;
+      int key = random.nextInt(600);
+      if (random.nextInt(4) < (growing ? 3 : 1)) {
+        if (expected.putIfAbsent(key, (long) op) == null) {
+          tree.insertNode(new Pair<>(key, (long) op));
+        } else {
+          assertThrows(IllegalArgumentException.class, () -> tree.insertNode(new Pair<>(key, 0L)));
+        }
+      } else {
+        assertEquals(Optional.ofNullable(expected.remove(key)), tree.deleteNode(key));
+      }
+
+      // Freed slots are reused before a new chunk is added: never more chunks than the most
+      // keys ever held, plus NIL, need
+      maxSize = Math.max(maxSize, expected.size());
+      assertTrue(tree.capacity() <= (maxSize + 1 + 7) / 8 * 8, "capacity " + tree.capacity());
+      if (op % 10 == 0) {
+        check(tree, expected);
+      }
+    }
+    check(tree, expected);
+  }
+
+  @Test
+  void matchesLongRedBlackTree() {
+    // The two trees share their balancing, so the same operations give the same shape
+    Random random = new Random(8);
+    OffHeapRedBlackTree<Long, Long> offHeap = new OffHeapRedBlackTree<>(Serializers.LONG, Serializers.LONG);
+    LongRedBlackTree<Long> onHeap = new LongRedBlackTree<>();
+    for (int op = 0; op < 5000; op++) {
+      long key = random.nextInt(1000);
+      if (random.nextBoolean()) {
+        if (!onHeap.contains(key)) {
+          onHeap.insertNode(key, key);
+          offHeap.insertNode(new Pair<>(key, key));
+        }
+      } else {
+        onHeap.deleteNode(key);
+        offHeap.deleteNode(key);
+      }
+    }
+    List<Long> offHeapKeys = new ArrayList<>();
+    for (int slot : TreeInvariants.checkSlots(offHeap)) {
+      offHeapKeys.add(offHeap.readKey(slot));
+    }
+    List<Long> onHeapKeys = new ArrayList<>();
+    for (int slot : TreeInvariants.checkSlots(onHeap)) {
+      onHeapKeys.add(onHeap.keyAt(slot));
+    }
+    assertEquals(onHeapKeys, offHeapKeys);
+    assertEquals(onHeap.keyAt(onHeap.getRoot()), offHeap.readKey(offHeap.root));
+  }
+
+  @Test
+  void clearReleasesEverything() {
+    OffHeapRedBlackTree<Integer, Long> tree = new OffHeapRedBlackTree<>(Serializers.INTEGER, Serializers.LONG, 4);
+    for (int key = 0; key < 100; key++) {
+      tree.insertNode(new Pair<>(key, (long) key));
+    }
+    long reserved = tree.reservedBytes();
+    tree.clear();
+    assertTrue(tree.reservedBytes() < reserved);
+    assertEquals(0, tree.size());
+    assertNull(tree.searchNode(5));
+    tree.insertNode(new Pair<>(5, 6L));
+    assertEquals(Optional.of(6L), tree.get(5));
+  }
+
+  @Test
+  void rejectsVariableWidthSerializers() {
+    assertThrows(IllegalArgumentException.class,
+            () -> new OffHeapRedBlackTree<>(Serializers.STRING, Serializers.LONG));
+  }
+
+  private static void check(OffHeapRedBlackTree<Integer, Long> tree, TreeMap<Integer, Long> expected) {
+    List<Integer> keys = new ArrayList<>();
+    for (int slot : TreeInvariants.checkSlots(tree)) {
+      keys.add(tree.readKey(slot));
+    }
+    assertEquals(new ArrayList<>(expected.keySet()), keys);
+    for (int probe = -1; probe <= 600; probe += 7) {
+      assertEquals(Optional.ofNullable(expected.get(probe)), tree.get(probe));
+    }
+  }
+}
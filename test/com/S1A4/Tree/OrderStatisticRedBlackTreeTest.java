@@ -0,0 +1,121 @@
+package com.S1A4.Tree;
+
+
+import com.S1A4.Pair;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class OrderStatisticRedBlackTreeTest {
+
+  @Test
+  void ranksMatchTreeSet() {
+    Random random = new Random(10);
+    OrderStatisticRedBlackTree<Integer, Integer> tree = new OrderStatisticRedBlackTree<>();
+    TreeSet<Integer> expected = new TreeSet<>();
+
+    for (int round = 0; round < 300; round++) {
+      // Single updates and batches, both of which have to keep the subtree sizes right
+      if (random.nextBoolean()) {
+        int key = random.nextInt(2000);
+        if (expected.add(key)) {
+          tree.insertNode(new Pair<>(key, key));
+        } else {
+          expected.remove(key);
+          tree.deleteNode(key);
+        }
+      } else {
+        List<Pair<Integer, Integer>> inserts = new ArrayList<>();
+        List<Integer> deletes = new ArrayList<>();
+        int base = random.nextInt(2000);
+        for (int i = 0; i < 20; i++) {
+          int key = base + random.nextInt(60);
+          if (!expected.contains(key)) {
+            expected.add(key);
+            inserts.add(new Pair<>(key, key));
+          }
+        }
+        for (int i = 0; i < 10; i++) {
+          int key = random.nextInt(2000);
+          if (!deletes.contains(key) && inserts.stream().noneMatch(pair -> pair.getKey() == key)) {
+            deletes.add(key);
+          }
+        }
+        tree.insertAll(inserts);
+        tree.deleteAll(deletes);
+        expected.removeAll(deletes);
+      }
+      check(tree, expected, random);
+    }
+  }
+
+  @Test
+  void splitAndJoinKeepSizes() {
+    Random random = new Random(11);
+    for (int round = 0; round < 100; round++) {
+      OrderStatisticRedBlackTree<Integer, Integer> tree = new OrderStatisticRedBlackTree<>();
+      TreeSet<Integer> expected = new TreeSet<>();
+      for (int i = random.nextInt(500); i > 0; i--) {
+        int key = random.nextInt(2000);
+        if (expected.add(key)) {
+          tree.insertNode(new Pair<>(key, key));
+        }
+      }
+
+      int at = random.nextInt(2000);
+      RedBlackTree<Integer, Integer> upper = tree.split(at);
+      assertInstanceOf(OrderStatisticRedBlackTree.class, upper);
+      check(tree, new TreeSet<>(expected.headSet(at)), random);
+      check((OrderStatisticRedBlackTree<Integer, Integer>) upper, new TreeSet<>(expected.tailSet(at)), random);
+
+      RedBlackTree<Integer, Integer> right = upper.split(at + 1);
+      RedBlackTree.join(tree, new Pair<>(at, at), right);
+      expected.add(at);
+      check(tree, expected, random);
+    }
+  }
+
+  @Test
+  void selectRejectsOutOfBoundsIndex() {
+    OrderStatisticRedBlackTree<Integer, Integer> tree = new OrderStatisticRedBlackTree<>();
+    assertThrows(IndexOutOfBoundsException.class, () -> tree.select(0));
+    tree.insertNode(new Pair<>(1, 1));
+    assertThrows(IndexOutOfBoundsException.class, () -> tree.select(1));
+    assertThrows(IndexOutOfBoundsException.class, () -> tree.select(-1));
+  }
+
+  private static void check(OrderStatisticRedBlackTree<Integer, Integer> tree, TreeSet<Integer> expected,
+                            Random random) {
+    assertEquals(new ArrayList<>(expected), TreeInvariants.check(tree));
+    checkSizes(tree.getRoot());
+    assertEquals(expected.size(), tree.size());
+
+    List<Integer> keys = new ArrayList<>(expected);
+    for (int i = 0; i < keys.size(); i++) {
+      assertEquals(keys.get(i), tree.select(i).getData().getKey());
+    }
+    for (int i = 0; i < 20; i++) {
+      int key = random.nextInt(2100) - 50;
+      assertEquals(expected.headSet(key).size(), tree.rank(key), "rank " + key);
+      int hi = key + random.nextInt(200) - 20;
+      int count = (key <= hi) ? expected.subSet(key, true, hi, true).size() : 0;
+      assertEquals(count, tree.countBetween(key, hi), "count [" + key + ", " + hi + "]");
+    }
+  }
+
+  private static int checkSizes(Node<Integer, Integer> node) {
+    if (node == null) {
+      return 0;
+    }
+    int size = 1 + checkSizes(node.left) + checkSizes(node.right);
+    assertEquals(size, OrderStatisticRedBlackTree.sizeOf(node), "size at " + node.data.getKey());
+    return size;
+  }
+}
@@ -0,0 +1,125 @@
+package com.S1A4.Tree;
+
+
+import com.S1A4.Pair;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class PersistentRedBlackTreeTest {
+
+  @Test
+  void everyVersionKeepsItsContent() {
+    Random random = new Random(12);
+    PersistentRedBlackTree<Integer, Integer> tree = PersistentRedBlackTree.empty();
+    TreeMap<Integer, Integer> expected = new TreeMap<>();
+    List<PersistentRedBlackTree<Integer, Integer>> versions = new ArrayList<>();
+    List<TreeMap<Integer, Integer>> contents = new ArrayList<>();
+
+    for (int op = 0; op < 3000; op++) {
+      int key = random.nextInt(500);
+      if (random.nextInt(3) > 0 && !expected.containsKey(key)) {
+        tree = tree.insert(new Pair<>(key, op));
+        expected.put(key, op);
+      } else {
+        PersistentRedBlackTree<Integer, Integer> next = tree.delete(key);
+        if (expected.remove(key) == null) {
+          assertSame(tree, next);
+        }
+        tree = next;
+      }
+      assertEquals(new ArrayList<>(expected.keySet()), TreeInvariants.checkWithoutParents(tree.getRoot()));
+      assertEquals(expected.size(), tree.size());
+
+      if (op % 100 == 0) {
+        versions.add(tree.snapshot());
+        contents.add(new TreeMap<>(expected));
+      }
+    }
+
+    // Later versions share nodes with these; none of them may have changed
+    for (int i = 0; i < versions.size(); i++) {
+      PersistentRedBlackTree<Integer, Integer> version = versions.get(i);
+      TreeMap<Integer, Integer> content = contents.get(i);
+      assertEquals(new ArrayList<>(content.keySet()), TreeInvariants.checkWithoutParents(version.getRoot()));
+      for (int key = 0; key < 500; key++) {
+        assertEquals(Optional.ofNullable(content.get(key)), version.get(key), "version " + i + ", key " + key);
+      }
+    }
+  }
+
+  @Test
+  void duplicateInsertLeavesVersionUnchanged() {
+    PersistentRedBlackTree<Integer, String> tree = PersistentRedBlackTree.<Integer, String>empty()
+            .insert(new Pair<>(1, "a"))
+            .insert(new Pair<>(2, "b"));
+    assertThrows(IllegalArgumentException.class, () -> tree.insert(new Pair<>(1, "c")));
+    assertEquals(Optional.of("a"), tree.get(1));
+    assertEquals(2, tree.size());
+  }
+
+  @Test
+  void putInsertsOrReplacesAndIteratesInKeyOrder() {
+    Random random = new Random(13);
+    PersistentRedBlackTree<Integer, Integer> tree = PersistentRedBlackTree.empty();
+    TreeMap<Integer, Integer> expected = new TreeMap<>();
+
+    for (int op = 0; op < 2000; op++) {
+      int key = random.nextInt(300);
+      PersistentRedBlackTree<Integer, Integer> before = tree;
+      Optional<Integer> old = before.get(key);
+      tree = tree.put(new Pair<>(key, op));
+      expected.put(key, op);
+      // The previous version keeps its value
+      assertEquals(old, before.get(key));
+
+      if (op % 50 == 0) {
+        assertEquals(new ArrayList<>(expected.keySet()), TreeInvariants.checkWithoutParents(tree.getRoot()));
+        List<Integer> keys = new ArrayList<>();
+        List<Integer> values = new ArrayList<>();
+        tree.forEach(pair -> {
+          keys.add(pair.getKey());
+          values.add(pair.getValue());
+        });
+        assertEquals(new ArrayList<>(expected.keySet()), keys);
+        assertEquals(new ArrayList<>(expected.values()), values);
+      }
+    }
+    assertEquals(expected.size(), tree.size());
+
+    Iterator<Pair<Integer, Integer>> empty = PersistentRedBlackTree.<Integer, Integer>empty().iterator();
+    assertFalse(empty.hasNext());
+    assertThrows(NoSuchElementException.class, empty::next);
+  }
+
+  @Test
+  void fromSortedBuildsAValidTreeThatCanChange() {
+    for (int size = 0; size < 100; size++) {
+      List<Pair<Integer, Integer>> pairs = new ArrayList<>();
+      for (int key = 0; key < size; key++) {
+        pairs.add(new Pair<>(2 * key, key));
+      }
+      PersistentRedBlackTree<Integer, Integer> tree = PersistentRedBlackTree.fromSorted(pairs.iterator(), size);
+      List<Integer> keys = TreeInvariants.checkWithoutParents(tree.getRoot());
+      assertEquals(size, keys.size());
+      assertEquals(size, tree.size());
+
+      // Inserts and deletes rebalance the built tree like any other version
+      PersistentRedBlackTree<Integer, Integer> changed = tree.insert(new Pair<>(-1, -1)).put(new Pair<>(-1, -2)).delete(0);
+      assertEquals(Math.max(size, 1), TreeInvariants.checkWithoutParents(changed.getRoot()).size());
+      assertEquals(Optional.of(-2), changed.get(-1));
+      assertEquals(keys, TreeInvariants.checkWithoutParents(tree.getRoot()));
+    }
+  }
+}
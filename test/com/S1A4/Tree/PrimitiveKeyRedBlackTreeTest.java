@@ -0,0 +1,57 @@
+package com.S1A4.Tree;
+
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class PrimitiveKeyRedBlackTreeTest {
+
+  @Test
+  void bothMatchTreeMap() {
+    Random random = new Random(6);
+    IntRedBlackTree<Integer> ints = new IntRedBlackTree<>();
+    LongRedBlackTree<Integer> longs = new LongRedBlackTree<>();
+    TreeMap<Integer, Integer> expected = new TreeMap<>();
+    for (int i = 0; i < 50000; i++) {
+      int key = random.nextInt(2000);
+      if (random.nextBoolean()) {
+        if (expected.putIfAbsent(key, i) == null) {
+          ints.insertNode(key, i);
+          longs.insertNode(key + (1L << 40), i);
+        }
+      } else {
+        boolean present = expected.remove(key) != null;
+        assertEquals(present, ints.deleteNode(key));
+        assertEquals(present, longs.deleteNode(key + (1L << 40)));
+      }
+      int probe = random.nextInt(2000);
+      assertEquals(expected.get(probe), ints.get(probe).orElse(null));
+      assertEquals(expected.get(probe), longs.get(probe + (1L << 40)).orElse(null));
+    }
+    assertEquals(expected.size(), ints.size());
+    assertEquals(expected.size(), longs.size());
+  }
+
+  @Test
+  void intKeysKeepTheirSignAndRange() {
+    IntRedBlackTree<String> tree = new IntRedBlackTree<>(0);
+    int[] keys = {Integer.MIN_VALUE, -1, 0, 1, Integer.MAX_VALUE};
+    for (int key : keys) {
+      tree.insertNode(key, "v" + key);
+    }
+    for (int key : keys) {
+      int node = tree.searchNode(key);
+      assertEquals(key, tree.keyAt(node));
+      assertEquals("v" + key, tree.valueAt(node));
+    }
+    assertEquals(Optional.empty(), tree.get(2));
+    assertEquals("none", tree.getOrDefault(2, "none"));
+    assertThrows(IllegalArgumentException.class, () -> tree.insertNode(0, "again"));
+  }
+}
@@ -0,0 +1,64 @@
+package com.S1A4.Tree;
+
+
+import com.S1A4.Pair;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class RedBlackTreeBatchTest {
+
+  @Test
+  void batchesMatchTreeMap() {
+    Random random = new Random(17);
+    RedBlackTree<Integer, Integer> tree = new RedBlackTree<>();
+    TreeMap<Integer, Integer> expected = new TreeMap<>();
+
+    for (int round = 0; round < 200; round++) {
+      // Mostly small clustered batches, now and then one larger than the tree
+      int batchSize = (round % 25 == 0) ? expected.size() + 50 : random.nextInt(40);
+      int base = random.nextInt(100000);
+
+      List<Pair<Integer, Integer>> inserts = new ArrayList<>();
+      for (int i = 0; i < batchSize; i++) {
+        int key = base + random.nextInt(4 * batchSize + 1);
+        if (!expected.containsKey(key)) {
+          expected.put(key, round);
+          inserts.add(new Pair<>(key, round));
+        }
+      }
+      tree.insertAll(inserts);
+
+      List<Integer> deletes = new ArrayList<>();
+      int deleted = 0;
+      for (int i = 0; i < batchSize / 2; i++) {
+        int key = random.nextInt(100000);
+        if (!deletes.contains(key)) {
+          deletes.add(key);
+          if (expected.remove(key) != null) {
+            deleted++;
+          }
+        }
+      }
+      assertEquals(deleted, tree.deleteAll(deletes));
+
+      assertEquals(new ArrayList<>(expected.keySet()), TreeInvariants.check(tree));
+      assertEquals(expected.size(), tree.size());
+    }
+  }
+
+  @Test
+  void duplicateInBatchInsertsNothing() {
+    RedBlackTree<Integer, String> tree = new RedBlackTree<>();
+    tree.insertNode(new Pair<>(1, "a"));
+    List<Pair<Integer, String>> batch = List.of(new Pair<>(5, "b"), new Pair<>(3, "c"), new Pair<>(5, "d"));
+    assertThrows(IllegalArgumentException.class, () -> tree.insertAll(batch));
+    assertEquals(List.of(1), TreeInvariants.check(tree));
+  }
+}
@@ -0,0 +1,139 @@
+package com.S1A4.Tree;
+
+
+import com.S1A4.Pair;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class RedBlackTreeNavigationTest {
+
+  @Test
+  void nearestKeysMatchTreeMap() {
+    Random random = new Random(9);
+    for (int size = 0; size < 200; size += (size < 20) ? 1 : 23) {
+      RedBlackTree<Integer, Integer> tree = new RedBlackTree<>();
+      TreeMap<Integer, Integer> expected = new TreeMap<>();
+      fill(random, size, tree, expected);
+      assertNavigation(tree, expected);
+
+      // Deletions leave shapes that insertions alone don't
+      for (int i = 0; i < size / 2; i++) {
+        Integer key = expected.ceilingKey(random.nextInt(3 * 200));
+        if (key == null) { continue; }
+        expected.remove(key);
+        tree.deleteNode(key);
+      }
+      assertNavigation(tree, expected);
+    }
+  }
+
+  @Test
+  void rangesMatchSubMap() {
+    Random random = new Random(10);
+    for (int size : new int[] {0, 1, 2, 7, 50}) {
+      RedBlackTree<Integer, Integer> tree = new RedBlackTree<>();
+      TreeMap<Integer, Integer> expected = new TreeMap<>();
+      fill(random, size, tree, expected);
+
+      // Bounds below the minimum, above the maximum, on keys and between them
+      for (int from = -4; from < 3 * 200 + 4; from += 5) {
+        for (int to = from; to < 3 * 200 + 4; to += 7) {
+          for (int flags = 0; flags < 4; flags++) {
+            boolean fromInclusive = (flags & 1) != 0;
+            boolean toInclusive = (flags & 2) != 0;
+            assertRange(expected.subMap(from, fromInclusive, to, toInclusive),
+                tree.range(from, fromInclusive, to, toInclusive));
+          }
+        }
+      }
+      assertRange(expected.subMap(-4, true, 100, false), tree.range(-4, 100));
+    }
+  }
+
+  @Test
+  void emptyAndInvertedRanges() {
+    RedBlackTree<Integer, Integer> tree = new RedBlackTree<>();
+    for (int key = 0; key < 30; key += 3) {
+      tree.insertNode(new Pair<>(key, key));
+    }
+
+    assertFalse(tree.range(3, 3).hasNext());
+    assertFalse(tree.range(3, false, 3, true).hasNext());
+    assertFalse(tree.range(4, true, 5, true).hasNext());
+    assertFalse(tree.range(-10, true, -1, true).hasNext());
+    assertFalse(tree.range(28, true, 100, true).hasNext());
+    assertEquals(List.of(3), keys(tree.range(3, true, 3, true)));
+
+    // TreeMap.subMap rejects from > to; range() is just empty
+    assertFalse(tree.range(20, 10).hasNext());
+    assertFalse(tree.range(21, true, 0, true).hasNext());
+    assertFalse(new RedBlackTree<Integer, Integer>().range(0, 10).hasNext());
+  }
+
+  @Test
+  void emptyTree() {
+    RedBlackTree<Integer, Integer> tree = new RedBlackTree<>();
+    assertNull(tree.floor(0));
+    assertNull(tree.ceiling(0));
+    assertNull(tree.lower(0));
+    assertNull(tree.higher(0));
+    assertNull(tree.first());
+    assertNull(tree.last());
+    assertThrows(NoSuchElementException.class, () -> tree.range(0, 1).next());
+  }
+
+  private static void fill(Random random, int size, RedBlackTree<Integer, Integer> tree,
+      TreeMap<Integer, Integer> expected) {
+    // Keys are multiples of 3, so every other probe falls between two keys
+    while (expected.size() < size) {
+      int key = 3 * random.nextInt(200);
+      if (expected.put(key, -key) == null) {
+        tree.insertNode(new Pair<>(key, -key));
+      }
+    }
+  }
+
+  private static void assertNavigation(RedBlackTree<Integer, Integer> tree, TreeMap<Integer, Integer> expected) {
+    for (int probe = -2; probe < 3 * 200 + 2; probe++) {
+      assertEquals(expected.floorKey(probe), key(tree.floor(probe)), "floor " + probe);
+      assertEquals(expected.ceilingKey(probe), key(tree.ceiling(probe)), "ceiling " + probe);
+      assertEquals(expected.lowerKey(probe), key(tree.lower(probe)), "lower " + probe);
+      assertEquals(expected.higherKey(probe), key(tree.higher(probe)), "higher " + probe);
+    }
+    assertEquals(expected.isEmpty() ? null : expected.firstKey(), key(tree.first()));
+    assertEquals(expected.isEmpty() ? null : expected.lastKey(), key(tree.last()));
+  }
+
+  private static void assertRange(Map<Integer, Integer> expected, Iterator<Pair<Integer, Integer>> range) {
+    List<Integer> values = new ArrayList<>();
+    List<Integer> actual = new ArrayList<>();
+    while (range.hasNext()) {
+      Pair<Integer, Integer> pair = range.next();
+      actual.add(pair.getKey());
+      values.add(pair.getValue());
+    }
+    assertEquals(new ArrayList<>(expected.keySet()), actual);
+    assertEquals(new ArrayList<>(expected.values()), values);
+    assertThrows(NoSuchElementException.class, range::next);
+  }
+
+  private static Integer key(Node<Integer, Integer> node) { return (node == null) ? null : node.getData().getKey(); }
+
+  private static List<Integer> keys(Iterator<Pair<Integer, Integer>> pairs) {
+    List<Integer> keys = new ArrayList<>();
+    pairs.forEachRemaining(pair -> keys.add(pair.getKey()));
+    return keys;
+  }
+}
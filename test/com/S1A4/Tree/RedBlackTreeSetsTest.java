@@ -0,0 +1,148 @@
+package com.S1A4.Tree;
+
+
+import com.S1A4.Pair;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class RedBlackTreeSetsTest {
+
+  @Test
+  void setOperationsMatchTreeSet() {
+    Random random = new Random(18);
+    for (int round = 0; round < 60; round++) {
+      // Sizes from empty to a few thousand, so both the sequential and the forked paths run
+      int range = 1 + random.nextInt(20000);
+      TreeSet<Integer> keysA = randomKeys(random, random.nextInt(3000), range);
+      TreeSet<Integer> keysB = randomKeys(random, random.nextInt(3000), range);
+
+      TreeSet<Integer> union = new TreeSet<>(keysA);
+      union.addAll(keysB);
+      assertEquals(new ArrayList<>(union), check(RedBlackTreeSets.union(tree(keysA), tree(keysB))));
+
+      TreeSet<Integer> intersection = new TreeSet<>(keysA);
+      intersection.retainAll(keysB);
+      assertEquals(new ArrayList<>(intersection),
+              check(RedBlackTreeSets.intersection(tree(keysA), tree(keysB))));
+
+      TreeSet<Integer> difference = new TreeSet<>(keysA);
+      difference.removeAll(keysB);
+      assertEquals(new ArrayList<>(difference), check(RedBlackTreeSets.difference(tree(keysA), tree(keysB))));
+    }
+  }
+
+  @Test
+  void operandsAreConsumed() {
+    RedBlackTree<Integer, Integer> a = tree(new TreeSet<>(List.of(1, 2, 3)));
+    RedBlackTree<Integer, Integer> b = tree(new TreeSet<>(List.of(3, 4)));
+    assertSame(a, RedBlackTreeSets.union(a, b));
+    assertEquals(List.of(1, 2, 3, 4), check(a));
+    assertEquals(List.of(), check(b));
+  }
+
+  @Test
+  void splitAndJoinMatchTreeSet() {
+    Random random = new Random(19);
+    for (int round = 0; round < 200; round++) {
+      TreeSet<Integer> keys = randomKeys(random, random.nextInt(2000), 10000);
+      RedBlackTree<Integer, Integer> lower = tree(keys);
+      int key = random.nextInt(10000);
+
+      RedBlackTree<Integer, Integer> upper = lower.split(key);
+      assertEquals(new ArrayList<>(keys.headSet(key)), check(lower));
+      assertEquals(new ArrayList<>(keys.tailSet(key)), check(upper));
+
+      // Join the halves back around a pivot that fits between them
+      RedBlackTree<Integer, Integer> right = upper.split(key + 1);
+      boolean present = keys.contains(key);
+      RedBlackTree<Integer, Integer> joined = RedBlackTree.join(lower, new Pair<>(key, key), right);
+      TreeSet<Integer> expected = new TreeSet<>(keys);
+      expected.add(key);
+      assertEquals(new ArrayList<>(expected), check(joined));
+      assertEquals(present ? List.of(key) : List.of(), check(upper));
+      assertEquals(List.of(), check(right));
+    }
+  }
+
+  @Test
+  void lookupFiltersFollowSetOperationsSplitAndJoin() {
+    Random random = new Random(20);
+    for (int round = 0; round < 30; round++) {
+      TreeSet<Integer> keysA = randomKeys(random, random.nextInt(1500), 4000);
+      TreeSet<Integer> keysB = randomKeys(random, random.nextInt(1500), 4000);
+      RedBlackTree<Integer, Integer> a = filtered(keysA);
+      RedBlackTree<Integer, Integer> b = filtered(keysB);
+
+      TreeSet<Integer> expected = new TreeSet<>(keysA);
+      expected.removeAll(keysB);
+      RedBlackTreeSets.difference(a, b);
+      assertLookups(expected, a);
+      assertLookups(new TreeSet<>(), b);
+
+      int at = random.nextInt(4000);
+      RedBlackTree<Integer, Integer> upper = a.split(at);
+      assertLookups(new TreeSet<>(expected.headSet(at)), a);
+      assertLookups(new TreeSet<>(expected.tailSet(at)), upper);
+
+      RedBlackTree<Integer, Integer> right = upper.split(at + 1);
+      RedBlackTree.join(a, new Pair<>(at, at), right);
+      expected.add(at);
+      assertLookups(expected, a);
+    }
+  }
+
+  private static RedBlackTree<Integer, Integer> filtered(TreeSet<Integer> keys) {
+    RedBlackTree<Integer, Integer> tree = tree(keys);
+    tree.setLookupFilter(true);
+    return tree;
+  }
+
+  // A stale filter would rule out keys that are present
+  private static void assertLookups(TreeSet<Integer> expected, RedBlackTree<Integer, Integer> tree) {
+    assertEquals(new ArrayList<>(expected), check(tree));
+    for (int key = -1; key <= 4000; key++) {
+      assertEquals(expected.contains(key), tree.searchNode(key) != null, "key " + key);
+    }
+  }
+
+  @Test
+  void joinRejectsUnorderedPivot() {
+    RedBlackTree<Integer, Integer> left = tree(new TreeSet<>(List.of(1, 5)));
+    RedBlackTree<Integer, Integer> right = tree(new TreeSet<>(List.of(9)));
+    assertThrows(IllegalArgumentException.class, () -> RedBlackTree.join(left, new Pair<>(5, 5), right));
+    assertThrows(IllegalArgumentException.class, () -> RedBlackTree.join(left, new Pair<>(9, 9), right));
+    assertEquals(List.of(1, 5), check(left));
+    assertEquals(List.of(9), check(right));
+  }
+
+  private static TreeSet<Integer> randomKeys(Random random, int count, int range) {
+    TreeSet<Integer> keys = new TreeSet<>();
+    for (int i = 0; i < count; i++) {
+      keys.add(random.nextInt(range));
+    }
+    return keys;
+  }
+
+  private static RedBlackTree<Integer, Integer> tree(TreeSet<Integer> keys) {
+    RedBlackTree<Integer, Integer> tree = new RedBlackTree<>();
+    for (Integer key : keys) {
+      tree.insertNode(new Pair<>(key, key));
+    }
+    return tree;
+  }
+
+  // Invariants, plus the size the tree reports against the keys it holds
+  private static List<Integer> check(RedBlackTree<Integer, Integer> tree) {
+    List<Integer> keys = TreeInvariants.check(tree);
+    assertEquals(keys.size(), tree.size());
+    return keys;
+  }
+}
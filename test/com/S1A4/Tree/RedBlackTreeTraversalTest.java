@@ -0,0 +1,177 @@
+package com.S1A4.Tree;
+
+
+import com.S1A4.List.List;
+import com.S1A4.Pair;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Queue;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class RedBlackTreeTraversalTest {
+
+  @Test
+  void iteratorsMatchRecursiveWalks() {
+    Random random = new Random(21);
+    for (int size = 0; size < 300; size += (size < 40) ? 1 : 29) {
+      RedBlackTree<Integer, Integer> tree = randomTree(random, size);
+      assertWalks(tree);
+
+      // Deletions leave shapes that insertions alone don't
+      for (int i = 0; i < size / 3; i++) {
+        Node<Integer, Integer> node = tree.ceiling(random.nextInt(1000));
+        if (node != null) { tree.deleteNode(node.getData().getKey()); }
+      }
+      assertWalks(tree);
+    }
+  }
+
+  @Test
+  void iteratorsOfAnEmptyTreeAreExhausted() {
+    RedBlackTree<Integer, Integer> tree = new RedBlackTree<>();
+    assertExhausted(tree.iterator());
+    assertExhausted(tree.levelOrderIterator());
+    assertExhausted(tree.preOrderIterator());
+    assertNull(tree.traverseLevelOrder(tree.getRoot(), new List<>()));
+  }
+
+  @Test
+  void printPreOrderDrawsOneLinePerNode() {
+    RedBlackTree<Integer, String> tree = new RedBlackTree<>();
+    for (int key = 1; key <= 5; key++) {
+      tree.insertNode(new Pair<>(key, "v" + key));
+    }
+    // This tree leaves the root red after a rotation at the top
+    assertEquals("(2, v2) [R]\n"
+            + "│  ├──(1, v1) [B]\n"
+            + "│  └──(4, v4) [B]\n"
+            + "│  │  ├──(3, v3) [R]\n"
+            + "│  │  └──(5, v5) [R]\n",
+        printed(tree));
+
+    tree.deleteNode(3);
+    tree.deleteNode(1);
+    assertEquals("(4, v4) [R]\n"
+            + "│  ├──(2, v2) [B]\n"
+            + "│  └──(5, v5) [B]\n",
+        printed(tree));
+    assertEquals("", printed(new RedBlackTree<Integer, String>()));
+  }
+
+  @Test
+  void printPreOrderMatchesRecursiveDrawing() {
+    Random random = new Random(22);
+    for (int size = 0; size < 200; size += 13) {
+      RedBlackTree<Integer, Integer> tree = randomTree(random, size);
+      StringBuilder expected = new StringBuilder();
+      draw(expected, "", "", tree.getRoot());
+      assertEquals(expected.toString(), printed(tree));
+    }
+  }
+
+  private static RedBlackTree<Integer, Integer> randomTree(Random random, int size) {
+    RedBlackTree<Integer, Integer> tree = new RedBlackTree<>();
+    while (tree.size() < size) {
+      int key = random.nextInt(1000);
+      if (!tree.contains(key)) { tree.insertNode(new Pair<>(key, -key)); }
+    }
+    return tree;
+  }
+
+  private static void assertWalks(RedBlackTree<Integer, Integer> tree) {
+    java.util.List<Pair<Integer, Integer>> inOrder = new ArrayList<>();
+    inOrder(tree.getRoot(), inOrder);
+    assertIterates(inOrder, tree::iterator);
+
+    java.util.List<Pair<Integer, Integer>> preOrder = new ArrayList<>();
+    preOrder(tree.getRoot(), preOrder);
+    assertIterates(preOrder, tree::preOrderIterator);
+
+    java.util.List<Pair<Integer, Integer>> levelOrder = new ArrayList<>();
+    Queue<Node<Integer, Integer>> queue = new ArrayDeque<>();
+    if (tree.getRoot() != null) { queue.add(tree.getRoot()); }
+    while (!queue.isEmpty()) {
+      Node<Integer, Integer> node = queue.poll();
+      levelOrder.add(node.data);
+      if (node.left != null) { queue.add(node.left); }
+      if (node.right != null) { queue.add(node.right); }
+    }
+    assertIterates(levelOrder, tree::levelOrderIterator);
+
+    if (tree.getRoot() != null) {
+      List<Integer, Integer> list = tree.traverseLevelOrder(tree.getRoot(), new List<>());
+      java.util.List<Pair<Integer, Integer>> listed = new ArrayList<>();
+      for (List.Node<Integer, Integer> node = list.getHead(); node != null; node = node.getNext()) {
+        listed.add(node.getData());
+      }
+      assertEquals(levelOrder, listed);
+    }
+  }
+
+  private static void assertIterates(java.util.List<Pair<Integer, Integer>> expected,
+      Supplier<Iterator<Pair<Integer, Integer>>> iterator) {
+    Iterator<Pair<Integer, Integer>> pairs = iterator.get();
+    for (Pair<Integer, Integer> pair : expected) {
+      assertEquals(pair, pairs.next());
+    }
+    assertExhausted(pairs);
+
+    // hasNext() is idempotent, next() alone walks the same sequence
+    pairs = iterator.get();
+    for (Pair<Integer, Integer> pair : expected) {
+      pairs.hasNext();
+      pairs.hasNext();
+      assertEquals(pair, pairs.next());
+    }
+    assertExhausted(pairs);
+  }
+
+  private static void assertExhausted(Iterator<?> pairs) {
+    assertFalse(pairs.hasNext());
+    assertThrows(NoSuchElementException.class, pairs::next);
+  }
+
+  private static void inOrder(Node<Integer, Integer> node, java.util.List<Pair<Integer, Integer>> out) {
+    if (node == null) { return; }
+    inOrder(node.left, out);
+    out.add(node.data);
+    inOrder(node.right, out);
+  }
+
+  private static void preOrder(Node<Integer, Integer> node, java.util.List<Pair<Integer, Integer>> out) {
+    if (node == null) { return; }
+    out.add(node.data);
+    preOrder(node.left, out);
+    preOrder(node.right, out);
+  }
+
+  // The recursive drawing printPreOrder replaced
+  private static void draw(StringBuilder sb, String padding, String pointer, Node<Integer, Integer> node) {
+    if (node == null) { return; }
+    sb.append(padding).append(pointer)
+        .append("(").append(node.data.getKey()).append(", ").append(node.data.getValue()).append(") ")
+        .append(node.color == RedBlackTree.RED ? "[R]" : "[B]").append("\n");
+    String paddingForBoth = padding + "│  ";
+    draw(sb, paddingForBoth, (node.right != null) ? "├──" : "└──", node.left);
+    draw(sb, paddingForBoth, "└──", node.right);
+  }
+
+  private static String printed(RedBlackTree<Integer, ?> tree) {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    tree.printPreOrder(new PrintStream(out, true, StandardCharsets.UTF_8));
+    return out.toString(StandardCharsets.UTF_8);
+  }
+}
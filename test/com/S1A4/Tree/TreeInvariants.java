@@ -0,0 +1,94 @@
+package com.S1A4.Tree;
+
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/** Red-black and search-tree invariants over the shared Node type, for the tests of this package. */
+final class TreeInvariants {
+
+  private TreeInvariants() {
+  }
+
+  /** Checks order, parent links, no red-red edge and equal black heights; returns the keys in order. */
+  static <K extends Comparable<K>> List<K> check(BaseBinaryTree<K, ?> tree) {
+    Node<K, ?> root = tree.getRoot();
+    if (root != null) {
+      assertSame(null, root.parent, "root has a parent");
+    }
+    return checkNodes(root, true);
+  }
+
+  /** Like {@link #check(BaseBinaryTree)} for trees that leave the parent links unused. */
+  static <K extends Comparable<K>> List<K> checkWithoutParents(Node<K, ?> root) {
+    return checkNodes(root, false);
+  }
+
+  private static <K extends Comparable<K>> List<K> checkNodes(Node<K, ?> root, boolean parentLinks) {
+    List<K> keys = new ArrayList<>();
+    blackHeight(root, keys, parentLinks);
+    for (int i = 1; i < keys.size(); i++) {
+      assertTrue(keys.get(i - 1).compareTo(keys.get(i)) < 0, "keys out of order at " + keys.get(i));
+    }
+    return keys;
+  }
+
+  /** Same checks for the slot-based trees, plus a black root; returns the slots in key order. */
+  static List<Integer> checkSlots(SlotRedBlackTree tree) {
+    assertEquals(SlotRedBlackTree.NIL, tree.parent(tree.root), "root has a parent");
+    assertEquals(SlotRedBlackTree.BLACK, tree.color(tree.root), "red root");
+    List<Integer> slots = new ArrayList<>();
+    slotBlackHeight(tree, tree.root, slots);
+    assertEquals(tree.size(), slots.size());
+    return slots;
+  }
+
+  private static int slotBlackHeight(SlotRedBlackTree tree, int node, List<Integer> slots) {
+    if (node == SlotRedBlackTree.NIL) {
+      return 1;
+    }
+    int left = tree.left(node);
+    int right = tree.right(node);
+    if (left != SlotRedBlackTree.NIL) {
+      assertEquals(node, tree.parent(left), "parent link");
+    }
+    if (right != SlotRedBlackTree.NIL) {
+      assertEquals(node, tree.parent(right), "parent link");
+    }
+    if (tree.color(node) == SlotRedBlackTree.RED) {
+      assertFalse(tree.color(left) == SlotRedBlackTree.RED || tree.color(right) == SlotRedBlackTree.RED,
+              "red-red edge");
+    }
+    int leftHeight = slotBlackHeight(tree, left, slots);
+    slots.add(node);
+    int rightHeight = slotBlackHeight(tree, right, slots);
+    assertEquals(leftHeight, rightHeight, "black height at slot " + node);
+    return leftHeight + (tree.color(node) == SlotRedBlackTree.BLACK ? 1 : 0);
+  }
+
+  private static <K extends Comparable<K>> int blackHeight(Node<K, ?> node, List<K> keys, boolean parentLinks) {
+    if (node == null) {
+      return 1;
+    }
+    if (parentLinks && node.left != null) {
+      assertSame(node, node.left.parent, "parent link");
+    }
+    if (parentLinks && node.right != null) {
+      assertSame(node, node.right.parent, "parent link");
+    }
+    if (node.color == RedBlackTree.RED) {
+      assertFalse(node.left != null && node.left.color == RedBlackTree.RED, "red-red edge");
+      assertFalse(node.right != null && node.right.color == RedBlackTree.RED, "red-red edge");
+    }
+    int left = blackHeight(node.left, keys, parentLinks);
+    keys.add(node.data.getKey());
+    int right = blackHeight(node.right, keys, parentLinks);
+    assertEquals(left, right, "black height at " + node.data.getKey());
+    return left + (node.color == RedBlackTree.BLACK ? 1 : 0);
+  }
+}
@@ -0,0 +1,127 @@
+package com.S1A4;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TreeCacheTest {
+
+    @Test
+    void lruMatchesAccessOrderedLinkedHashMap() {
+        int maxSize = 50;
+        TreeCache<Integer, Integer> cache = new TreeCache<>(maxSize);
+        Map<Integer, Integer> expected = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Integer> eldest) { return size() > maxSize; }
+        };
+
+        Random random = new Random(24);
+        long evictions = 0;
+        for (int op = 0; op < 20000; op++) {
+            int key = random.nextInt(120);
+            switch (random.nextInt(3)) {
+                case 0:
+                    boolean evicts = !expected.containsKey(key) && expected.size() == maxSize;
+                    assertEquals(Optional.ofNullable(expected.put(key, op)), cache.put(key, op));
+                    evictions += evicts ? 1 : 0;
+                    break;
+                case 1:
+                    assertEquals(Optional.ofNullable(expected.get(key)), cache.get(key));
+                    break;
+                default:
+                    assertEquals(Optional.ofNullable(expected.remove(key)), cache.remove(key));
+                    break;
+            }
+            assertEquals(expected.size(), cache.size());
+        }
+        for (int key = 0; key < 120; key++) {
+            assertEquals(expected.containsKey(key), cache.contains(key), "key " + key);
+        }
+        assertEquals(evictions, cache.evictedCount());
+    }
+
+    @Test
+    void lfuEvictsLeastFrequentlyUsed() {
+        TreeCache<String, Integer> cache = new TreeCache<>(3, TreeCache.Eviction.LFU);
+        cache.put("a", 1);
+        cache.put("b", 2);
+        cache.put("c", 3);
+        cache.get("a");
+        cache.get("a");
+        cache.get("c");
+
+        // b has one use; of two entries with equal counts the older use goes first
+        cache.put("d", 4);
+        assertFalse(cache.contains("b"));
+        cache.put("e", 5);
+        assertFalse(cache.contains("d"));
+        assertTrue(cache.contains("a"));
+        assertTrue(cache.contains("c"));
+        assertTrue(cache.contains("e"));
+        assertEquals(2, cache.evictedCount());
+    }
+
+    @Test
+    void expiredEntriesAreDroppedOnReadAndInBatches() throws InterruptedException {
+        TreeCache<Integer, Integer> cache = new TreeCache<>(10000);
+        int expiring = 3 * TreeCache.EXPIRY_BATCH + 5;
+        for (int key = 0; key < expiring; key++) {
+            cache.put(key, key, 1, TimeUnit.MILLISECONDS);
+        }
+        cache.put(-1, -1);
+        cache.put(-2, -2, 1, TimeUnit.HOURS);
+        Thread.sleep(20);
+
+        assertEquals(Optional.empty(), cache.get(0));
+        assertEquals(expiring + 1, cache.size());
+        assertEquals(expiring - 1, cache.evictExpired());
+        assertEquals(2, cache.size());
+        assertEquals(expiring, cache.expiredCount());
+        assertEquals(Optional.of(-1), cache.get(-1));
+        assertEquals(Optional.of(-2), cache.get(-2));
+        assertEquals(0, cache.evictExpired());
+    }
+
+    @Test
+    void fullCacheEvictsExpiredEntryBeforeLiveOne() throws InterruptedException {
+        TreeCache<Integer, Integer> cache = new TreeCache<>(2);
+        cache.put(1, 1);
+        cache.put(2, 2, 1, TimeUnit.MILLISECONDS);
+        Thread.sleep(20);
+        cache.put(3, 3);
+
+        assertTrue(cache.contains(1));
+        assertTrue(cache.contains(3));
+        assertEquals(0, cache.evictedCount());
+        assertEquals(1, cache.expiredCount());
+    }
+
+    @Test
+    void updateResetsTimeToLive() throws InterruptedException {
+        TreeCache<Integer, Integer> cache = new TreeCache<>(10);
+        cache.setDefaultTtl(1, TimeUnit.MILLISECONDS);
+        cache.put(1, 1);
+        cache.put(1, 2, 0, TimeUnit.MILLISECONDS);
+        Thread.sleep(20);
+        assertEquals(0, cache.evictExpired());
+        assertEquals(Optional.of(2), cache.get(1));
+    }
+
+    @Test
+    void rejectsIllegalArguments() {
+        assertThrows(IllegalArgumentException.class, () -> new TreeCache<Integer, Integer>(0));
+        TreeCache<Integer, Integer> cache = new TreeCache<>(1);
+        assertThrows(IllegalArgumentException.class, () -> cache.put(1, null));
+        assertThrows(IllegalArgumentException.class, () -> cache.put(1, 1, -1, TimeUnit.SECONDS));
+        assertThrows(IllegalArgumentException.class, () -> cache.setDefaultTtl(-1, TimeUnit.SECONDS));
+    }
+}
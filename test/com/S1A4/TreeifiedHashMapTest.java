@@ -0,0 +1,111 @@
+package com.S1A4;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TreeifiedHashMapTest {
+
+    // hashCode() is id / spread, so "spread" consecutive ids share a hash
+    static final class Key implements Comparable<Key> {
+        final int id;
+        final int spread;
+
+        Key(int id, int spread) {
+            this.id = id;
+            this.spread = spread;
+        }
+
+        @Override
+        public int compareTo(Key other) { return Integer.compare(id, other.id); }
+
+        @Override
+        public boolean equals(Object other) { return other instanceof Key && ((Key) other).id == id; }
+
+        @Override
+        public int hashCode() { return id / spread; }
+    }
+
+    @Test
+    void contentsSurviveResizesLikeHashMap() {
+        Random random = new Random(1);
+        for (int spread : new int[] {1, 3, 20}) {
+            TreeifiedHashMap<Key, Integer> map = new TreeifiedHashMap<>(1);
+            Map<Integer, Integer> expected = new HashMap<>();
+            int resizes = 0;
+
+            for (int op = 0; op < 30000; op++) {
+                int id = random.nextInt(op / 4 + 10);
+                Key key = new Key(id, spread);
+                int capacity = map.capacity();
+                if (random.nextInt(4) > 0) {
+                    assertEquals(Optional.ofNullable(expected.put(id, op)), map.put(key, op));
+                } else {
+                    assertEquals(Optional.ofNullable(expected.remove(id)), map.remove(key));
+                }
+                if (map.capacity() != capacity) {
+                    resizes++;
+                    // Right after a resize every bucket was split into its two halves
+                    assertContents(expected, map, spread);
+                }
+            }
+            assertContents(expected, map, spread);
+            assertTrue(resizes >= 8, resizes + " resizes");
+        }
+    }
+
+    private static void assertContents(Map<Integer, Integer> expected, TreeifiedHashMap<Key, Integer> map,
+                                       int spread) {
+        assertEquals(expected.size(), map.size());
+        int highest = expected.keySet().stream().mapToInt(Integer::intValue).max().orElse(0);
+        for (int id = 0; id <= highest + 1; id++) {
+            assertEquals(Optional.ofNullable(expected.get(id)), map.get(new Key(id, spread)), "id " + id);
+        }
+    }
+
+    @Test
+    void collidingBucketTreeifiesOnlyFromMinTreeifyCapacity() {
+        TreeifiedHashMap<Key, Integer> map = new TreeifiedHashMap<>(2);
+        Key first = new Key(0, Integer.MAX_VALUE);
+        for (int id = 0; id < 40; id++) {
+            int capacity = map.capacity();
+            map.put(new Key(id, Integer.MAX_VALUE), id);
+            ListTree<Key, Integer> bucket = map.bucketFor(first);
+            assertEquals(id + 1, bucket.size());
+
+            if (capacity < TreeifiedHashMap.MIN_TREEIFY_CAPACITY && bucket.size() >= ListTree.TREEIFY_THRESHOLD) {
+                assertEquals(2 * capacity, map.capacity(), "a long bucket must grow a small table");
+            }
+            if (map.capacity() < TreeifiedHashMap.MIN_TREEIFY_CAPACITY) {
+                // Too small a table: a long bucket grows the table instead of treeifying
+                assertTrue(bucket.isListForm(), "treeified at capacity " + map.capacity());
+            } else if (bucket.size() >= ListTree.TREEIFY_THRESHOLD) {
+                assertFalse(bucket.isListForm(), "still a list at capacity " + map.capacity());
+            }
+        }
+        assertEquals(TreeifiedHashMap.MIN_TREEIFY_CAPACITY, map.capacity());
+        for (int id = 0; id < 40; id++) {
+            assertEquals(Optional.of(id), map.get(new Key(id, Integer.MAX_VALUE)));
+        }
+    }
+
+    @Test
+    void largeInitialCapacityTreeifiesAtThreshold() {
+        TreeifiedHashMap<Key, Integer> map = new TreeifiedHashMap<>(TreeifiedHashMap.MIN_TREEIFY_CAPACITY);
+        for (int id = 0; id < ListTree.TREEIFY_THRESHOLD - 1; id++) {
+            map.put(new Key(id, Integer.MAX_VALUE), id);
+        }
+        Key key = new Key(0, Integer.MAX_VALUE);
+        assertTrue(map.bucketFor(key).isListForm());
+        map.put(new Key(ListTree.TREEIFY_THRESHOLD, Integer.MAX_VALUE), 0);
+        assertFalse(map.bucketFor(key).isListForm());
+        assertEquals(TreeifiedHashMap.MIN_TREEIFY_CAPACITY, map.capacity());
+    }
+}